@@ -0,0 +1,35 @@
+package priceComparator.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread pools shared by the requests of the application, created once and shut down with the context.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Threads evaluating the baskets of the batch optimization, shared by all concurrent batches
+     * (see {@link priceComparator.services.OptimizeBasketService#optimizeBaskets}).
+     *
+     * @param parallelism number of threads, {@code basket.batch.parallelism}
+     * @return a fixed pool, its work is bounded by the service
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService basketBatchExecutor(
+            @Value("${basket.batch.parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+            int parallelism) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "basket-batch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
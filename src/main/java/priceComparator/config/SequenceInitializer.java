@@ -0,0 +1,105 @@
+package priceComparator.config;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Moves the id sequences of the batched entities past the ids already in their tables.
+ * Product, Discount and PriceAlert ids used to be IDENTITY columns; on a database created back then the new
+ * pooled sequences start at 1 and the first inserts would collide with the existing rows. Runs on startup, once
+ * Hibernate has created or updated the schema, and only ever moves a sequence forward, so it is a no-op
+ * on later startups.
+ * <p>
+ * On MySQL the sequences are tables with a {@code next_val} column (see the README for the equivalent SQL),
+ * on H2 native sequences; other databases are left alone with a warning.
+ */
+@Component
+public class SequenceInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(SequenceInitializer.class);
+
+    /**
+     * Must match the {@code allocationSize} of the entities' {@code @SequenceGenerator}s.
+     */
+    private static final int ALLOCATION_SIZE = 50;
+
+    /**
+     * The sequences to seed, with the table whose ids they generate.
+     */
+    private static final List<String[]> SEQUENCES = List.of(
+            new String[]{"product_seq", "product"},
+            new String[]{"discount_seq", "discount"},
+            new String[]{"price_alert_seq", "price_alert"});
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Only injected so that the schema exists before the sequences are seeded.
+     */
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PostConstruct
+    public void seedSequences() {
+        for (String[] sequence : SEQUENCES) {
+            seed(sequence[0], sequence[1]);
+        }
+    }
+
+    /**
+     * Makes the next block handed out by the sequence start above the table's highest id.
+     * The pooled optimizer uses the sequence value as the end of a block of {@link #ALLOCATION_SIZE} ids.
+     */
+    private void seed(String sequence, String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + table, Long.class);
+        if (maxId == null) return;
+        long nextValue = maxId + ALLOCATION_SIZE + 1;
+
+        if (hasTable(sequence)) {
+            // Emulated with a table (MySQL): a single row holding the next value
+            int updated = jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ? WHERE next_val < ?",
+                    nextValue, nextValue);
+            if (updated > 0) log.info("Moved {} to {}, past the ids of {}", sequence, nextValue, table);
+        } else if (isH2()) {
+            Long current = jdbcTemplate.queryForObject(
+                    "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = ?",
+                    Long.class, sequence.toUpperCase(Locale.ROOT));
+            if (current != null && current < nextValue) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + nextValue);
+                log.info("Moved {} to {}, past the ids of {}", sequence, nextValue, table);
+            }
+        } else {
+            log.warn("Cannot check {} on this database, make sure it is past the highest id of {} ({})",
+                    sequence, table, maxId);
+        }
+    }
+
+    private boolean hasTable(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((Connection connection) -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String candidate : new String[]{name, name.toUpperCase(Locale.ROOT)}) {
+                try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, candidate, null)) {
+                    if (tables.next()) return true;
+                }
+            }
+            return false;
+        }));
+    }
+
+    private boolean isH2() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((Connection connection) ->
+                connection.getMetaData().getDatabaseProductName().equalsIgnoreCase("H2")));
+    }
+}
@@ -1,6 +1,7 @@
 package priceComparator.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import priceComparator.dtos.ProductDTO;
@@ -9,10 +10,13 @@ import priceComparator.models.Product;
 import priceComparator.services.AnalyticsService;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * REST controller that handles HTTP requests related to analytics of {@link Product} and {@link Discount} entities.
  * Provides endpoints to see top/ current/ new discounts, optimize basket, see price history .
+ * Responses served from the analytics snapshot carry its tag as ETag, so a client revalidating with
+ * {@code If-None-Match} gets a 304 until the next import or date change.
  */
 @RestController
 @RequestMapping("/analytics")
@@ -29,18 +33,47 @@ public class AnalyticsController {
      */
     @GetMapping("/currentDiscounts")
     public ResponseEntity<List<ProductDTO>> getAllCurrentDiscounts() {
-        return ResponseEntity.ok(analyticsService.getAllCurrentDiscounts());
+        ResponseEntity.BodyBuilder response = okWithSnapshotTag();
+        return response.body(analyticsService.getAllCurrentDiscounts());
     }
 
     /**
-     * Retrieves top discounted products sorted by discount percentage.
+     * Retrieves top discounted products sorted by discount percentage, optionally filtered by store, category and
+     * brand. When there are more, the cursor of the next page is returned in the {@code X-Next-Cursor} header
+     * and can be passed back as {@code after}.
      *
      * @param limit the maximum number of results to return (default is 5).
-     * @return a list of {@link ProductDTO} with highest discounts.
+     * @param store optional store filter.
+     * @param category optional category filter.
+     * @param brand optional brand filter.
+     * @param after optional cursor of the page to return.
+     * @return a list of {@link ProductDTO} with highest discounts or a bad request response if the limit or
+     * cursor is invalid.
      */
     @GetMapping("/topDiscounts")
-    public ResponseEntity<List<ProductDTO>> getTopDiscountsByDiscount(@RequestParam(defaultValue = "5") int limit) {
-        return ResponseEntity.ok(analyticsService.getTopDiscountsByDiscount(limit));
+    public ResponseEntity<?> getTopDiscountsByDiscount(
+            @RequestParam(defaultValue = "5") int limit,
+            @RequestParam(required = false) String store,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) String after
+    ) {
+        try {
+            ResponseEntity.BodyBuilder response = okWithSnapshotTag();
+            AnalyticsService.DiscountPage page = analyticsService.getTopDiscounts(
+                    limit,
+                    Optional.ofNullable(store),
+                    Optional.ofNullable(category),
+                    Optional.ofNullable(brand),
+                    Optional.ofNullable(after)
+            );
+            if (page.nextCursor() != null) {
+                response.header("X-Next-Cursor", page.nextCursor());
+            }
+            return response.body(page.discounts());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Failed to get top discounts: " + e.getMessage());
+        }
     }
 
     /**
@@ -50,8 +83,17 @@ public class AnalyticsController {
      */
     @GetMapping("/newDiscounts")
     public ResponseEntity<List<ProductDTO>> getNewDiscounts(){
-        return ResponseEntity.ok(analyticsService.getNewDiscounts());
+        ResponseEntity.BodyBuilder response = okWithSnapshotTag();
+        return response.body(analyticsService.getNewDiscounts());
     }
 
-
+    /**
+     * Starts an OK response tagged with the current analytics snapshot, if there is one. The tag is read before
+     * the data (see {@link AnalyticsService#getSnapshotTag()}); Spring answers 304 when it matches If-None-Match.
+     */
+    private ResponseEntity.BodyBuilder okWithSnapshotTag() {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        analyticsService.getSnapshotTag().ifPresent(tag -> response.eTag(tag).cacheControl(CacheControl.noCache()));
+        return response;
+    }
 }
@@ -2,14 +2,18 @@ package priceComparator.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import priceComparator.dtos.ImportOptions;
+import priceComparator.dtos.BulkImportSummaryDTO;
+import priceComparator.dtos.ImportJobDTO;
+import priceComparator.dtos.ImportSummaryDTO;
+import priceComparator.models.ImportJob;
 import priceComparator.models.Product;
 import priceComparator.models.Discount;
+import priceComparator.services.BulkImportService;
 import priceComparator.services.CSVImportService;
+import priceComparator.services.ImportJobService;
 
 /**
  * REST controller that handles the creation of {@link Product} and {@link Discount} entities.
@@ -21,6 +25,12 @@ public class CSVImportController{
     @Autowired
     private CSVImportService csvImportService;
 
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private ImportJobService importJobService;
+
     /**
      * Endpoint to import product data from a CSV file.
      * Example: POST /import/products
@@ -49,4 +59,137 @@ public class CSVImportController{
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Endpoint to import product data from a CSV file with chunked, JDBC-batched inserts.
+     * Example: POST /import/products/batch?chunkSize=5000&writers=4
+     *
+     * @param file the CSV file
+     * @param options optional chunkSize (rows committed per transaction) and writers (parallel writer workers)
+     * @return an {@link ImportSummaryDTO} with the number of rows and rows/sec
+     */
+    @PostMapping("/products/batch")
+    public ResponseEntity<?> importProductsBatched(@RequestParam("file") MultipartFile file, ImportOptions options) {
+        try {
+            ImportSummaryDTO summary = csvImportService.importProductsBatched(file.getResource(), options);
+            return ResponseEntity.ok(summary);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to import products: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint to import discount data from a CSV file with chunked, JDBC-batched inserts.
+     * Example: POST /import/discounts/batch?chunkSize=5000&writers=4
+     *
+     * @param file the CSV file
+     * @param options optional chunkSize (rows committed per transaction) and writers (parallel writer workers)
+     * @return an {@link ImportSummaryDTO} with the number of rows and rows/sec
+     */
+    @PostMapping("/discounts/batch")
+    public ResponseEntity<?> importDiscountsBatched(@RequestParam("file") MultipartFile file, ImportOptions options) {
+        try {
+            ImportSummaryDTO summary = csvImportService.importDiscountsBatched(file.getResource(), options);
+            return ResponseEntity.ok(summary);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to import discounts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint to import many product and discount CSV files packed in a zip, tar or tar.gz archive.
+     * Files are classified by name and imported concurrently, one lane per store.
+     * Example: POST /import/bulk?writers=2
+     *
+     * @param archive the archive containing files like 'Lidl_2025-05-01.csv' and 'Lidl_discounts_2025-05-01.csv'
+     * @param options optional chunkSize, writers and delta, applied to every file
+     * @return a {@link BulkImportSummaryDTO} with one entry per file
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<?> importBulk(@RequestParam("file") MultipartFile archive, ImportOptions options) {
+        try {
+            BulkImportSummaryDTO summary = bulkImportService.importArchive(archive, options);
+            return ResponseEntity.ok(summary);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to import archive: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint to import every CSV file of a directory on the server (inside {@code import.bulk.allowed-dir}).
+     * Example: POST /import/bulk/directory?path=2025-05-01
+     *
+     * @param path the directory, relative to (or inside) the allowed directory
+     * @param options optional chunkSize, writers and delta, applied to every file
+     * @return a {@link BulkImportSummaryDTO} with one entry per file
+     */
+    @PostMapping("/bulk/directory")
+    public ResponseEntity<?> importBulkDirectory(@RequestParam String path, ImportOptions options) {
+        try {
+            BulkImportSummaryDTO summary = bulkImportService.importDirectory(path, options);
+            return ResponseEntity.ok(summary);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to import directory: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint to import product data as an asynchronous job.
+     * The file is spooled to disk and the job is returned immediately, poll GET /import/jobs/{id} for progress.
+     * Example: POST /import/jobs/products?chunkSize=5000
+     *
+     * @param file the CSV file
+     * @param options optional chunkSize, delta and parser
+     * @return the queued {@link ImportJobDTO}
+     */
+    @PostMapping("/jobs/products")
+    public ResponseEntity<?> submitProductJob(@RequestParam("file") MultipartFile file, ImportOptions options) {
+        try {
+            return ResponseEntity.accepted().body(importJobService.submit(file, ImportJob.Type.PRODUCTS, options));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to submit product import: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint to import discount data as an asynchronous job.
+     * Example: POST /import/jobs/discounts
+     *
+     * @param file the CSV file
+     * @param options optional chunkSize and parser
+     * @return the queued {@link ImportJobDTO}
+     */
+    @PostMapping("/jobs/discounts")
+    public ResponseEntity<?> submitDiscountJob(@RequestParam("file") MultipartFile file, ImportOptions options) {
+        try {
+            return ResponseEntity.accepted().body(importJobService.submit(file, ImportJob.Type.DISCOUNTS, options));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to submit discount import: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Endpoint reporting the progress of an import job: rows processed, throughput and errors.
+     * Example: GET /import/jobs/42
+     */
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ImportJobDTO> getJob(@PathVariable Long id) {
+        return importJobService.getJob(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Endpoint to resume a failed import job from its last checkpoint.
+     * Example: POST /import/jobs/42/resume
+     */
+    @PostMapping("/jobs/{id}/resume")
+    public ResponseEntity<?> resumeJob(@PathVariable Long id) {
+        try {
+            return importJobService.resume(id)
+                    .<ResponseEntity<?>>map(job -> ResponseEntity.accepted().body(job))
+                    .orElse(ResponseEntity.notFound().build());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to resume job: " + e.getMessage());
+        }
+    }
+}
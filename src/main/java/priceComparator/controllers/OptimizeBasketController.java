@@ -1,12 +1,20 @@
 package priceComparator.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import priceComparator.dtos.BatchBasketResultDTO;
+import priceComparator.dtos.ConstrainedBasketDTO;
+import priceComparator.dtos.ConstrainedBasketRequest;
 import priceComparator.dtos.ProductDTO;
+import priceComparator.dtos.SubstitutionBasketDTO;
+import priceComparator.dtos.SubstitutionBasketRequest;
 import priceComparator.models.Discount;
 import priceComparator.models.Product;
 import priceComparator.services.OptimizeBasketService;
@@ -25,6 +33,9 @@ public class OptimizeBasketController {
     @Autowired
     OptimizeBasketService optimizeBasketService;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
     /**
      * Returns the best-priced version of each product in the user's basket,
      * after evaluating prices and discounts across all stores.
@@ -53,4 +64,61 @@ public class OptimizeBasketController {
         Map<String, List<ProductDTO>> grouped = optimizeBasketService.getOptimizedBasketGroupedByStore(productNames);
         return ResponseEntity.ok(grouped);
     }
+
+    /**
+     * Returns the cheapest basket when every visited store has a cost and/or the number of stores is limited.
+     * Example: POST /optimizeBasket/constrained
+     * Body: {"items": ["lapte zuzu", "spaghetti nr.5"], "visitCost": 5, "maxStores": 2}
+     *
+     * @param request the items, visit cost (RON per store), maximum number of stores and optional time budget
+     * @return a {@link ConstrainedBasketDTO} with the items per store and the cost breakdown
+     */
+    @PostMapping("/constrained")
+    public ResponseEntity<?> optimizeBasketConstrained(@RequestBody ConstrainedBasketRequest request) {
+        try {
+            ConstrainedBasketDTO basket = optimizeBasketService.getConstrainedBasket(request);
+            return ResponseEntity.ok(basket);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Failed to optimize basket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the cheapest basket by price per unit, substituting products of the same category across brands,
+     * package sizes and stores.
+     * Example: POST /optimizeBasket/substitutes
+     * Body: {"items": [{"category": "lactate", "name": "lapte", "quantity": 2, "unit": "l"}]}
+     *
+     * @param request the items, each with a category, a unit and optionally a name filter and a quantity
+     * @return a {@link SubstitutionBasketDTO} with the chosen products per store and the total cost
+     */
+    @PostMapping("/substitutes")
+    public ResponseEntity<?> optimizeBasketBySubstitutes(@RequestBody SubstitutionBasketRequest request) {
+        try {
+            return ResponseEntity.ok(optimizeBasketService.getSubstitutionBasket(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Failed to optimize basket: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Optimizes many baskets at once and streams the results as NDJSON, one {@link BatchBasketResultDTO} per line,
+     * in the order the baskets finish (each line carries the basket's index and id).
+     * Example: POST /optimizeBasket/batch
+     * Body: [{"id": "c1", "items": ["lapte zuzu", "spaghetti nr.5"]}, {"id": "c2", "items": ["lapte zuzu"], "visitCost": 5}]
+     *
+     * @param baskets the baskets, each accepting the same fields as /constrained plus an optional id
+     * @return the streamed results, a line is flushed as soon as its basket is done
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<StreamingResponseBody> optimizeBaskets(@RequestBody List<ConstrainedBasketRequest> baskets) {
+        StreamingResponseBody body = outputStream -> optimizeBasketService.optimizeBaskets(baskets, result -> {
+            outputStream.write(objectMapper.writeValueAsBytes(result));
+            outputStream.write('\n');
+            outputStream.flush();
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 }
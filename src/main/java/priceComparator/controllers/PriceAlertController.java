@@ -3,6 +3,10 @@ package priceComparator.controllers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import priceComparator.dtos.AlertCheckSummaryDTO;
+import priceComparator.dtos.AlertRequest;
+import priceComparator.dtos.BulkAlertResultDTO;
 import priceComparator.models.PriceAlert;
 import priceComparator.services.PriceAlertService;
 
@@ -39,18 +43,58 @@ public class PriceAlertController {
         return ResponseEntity.ok(alertService.createAlert(alert));
     }
 
+    /**
+     * Endpoint to create many price alerts at once.
+     * Example: POST /alerts/bulk with [{"email": "...", "productName": "lapte zuzu", "targetPrice": 7}]
+     *
+     * @param requests the alerts to create
+     * @return the number of alerts created and rejected, and the status of every alert
+     */
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkAlertResultDTO> createAlerts(@RequestBody List<AlertRequest> requests) {
+        return ResponseEntity.ok(alertService.createAlerts(requests));
+    }
+
+    /**
+     * Endpoint to create many price alerts at once from a CSV file (email;product_name;target_price).
+     * Example: POST /alerts/bulk/csv
+     *
+     * @param file the CSV file, with a header line
+     * @return the number of alerts created and rejected, and the status of every row
+     */
+    @PostMapping("/bulk/csv")
+    public ResponseEntity<?> createAlertsFromCsv(@RequestParam("file") MultipartFile file) {
+        try {
+            return ResponseEntity.ok(alertService.createAlerts(file.getResource()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body("Failed to import alerts: " + e.getMessage());
+        }
+    }
+
     /**
      * Endpoint to manually trigger a check for all unnotified alerts.
      * This method will:
-     * - Retrieve all alerts that haven't triggered yet (notified = false)
+     * - Claim the alerts that haven't triggered yet (notified = false) chunk by chunk, other instances
+     *   checking at the same time take the other chunks
      * - Evaluate the current best price for each product
-     * - If the current price is <= the target, mark alert as notified
+     * - If the current price is <= the target, mark alert as notified and queue the email
      *
-     * @return List of triggered alerts
+     * @return the progress summary of this instance's share of the check (alerts checked, triggered, alerts/sec)
      */
     @GetMapping("/check")
-    public ResponseEntity<List<PriceAlert>> checkAlerts() {
-        List<PriceAlert> triggered = alertService.checkAndTriggerAlerts();
-        return ResponseEntity.ok(triggered);
+    public ResponseEntity<AlertCheckSummaryDTO> checkAlerts() {
+        return ResponseEntity.ok(alertService.checkAndTriggerAlerts());
+    }
+
+    /**
+     * Endpoint reporting the progress of the running (or last) full alert check of this instance.
+     *
+     * @return the progress summary, or 404 if no check ran since startup
+     */
+    @GetMapping("/check/progress")
+    public ResponseEntity<AlertCheckSummaryDTO> getCheckProgress() {
+        return alertService.getCheckProgress()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
-}
\ No newline at end of file
+}
@@ -1,16 +1,21 @@
 package priceComparator.controllers;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RequestParam;
-import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import priceComparator.dtos.PriceHistoryBatchRequest;
+import priceComparator.dtos.PriceHistoryBucketDTO;
 import priceComparator.dtos.PriceHistoryPointDTO;
 import priceComparator.services.PriceHistoryService;
 import priceComparator.models.Product;
 import priceComparator.models.Discount;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,6 +29,9 @@ public class PriceHistoryController {
     @Autowired
     PriceHistoryService priceHistoryService;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
     /**
      * Returns the full price history timeline of a given product name,
      * including price changes and discount intervals. Optionally filters by store, brand, or category.
@@ -49,4 +57,81 @@ public class PriceHistoryController {
         );
         return ResponseEntity.ok(history);
     }
+
+    /**
+     * Returns the full price history timelines of many products at once, e.g. a whole category for a dashboard.
+     * The response is a JSON array of {@code {"productName": ..., "history": [...]}} objects, written with a
+     * streaming generator as each product's history is built, so the server never holds the whole response.
+     * Example: POST /priceHistory/batch
+     * Body: {"productNames": ["lapte zuzu", "iaurt grecesc"], "storeName": "Kaufland"}
+     *
+     * @param request the product names, and optional store/category/brand filters applied to all of them
+     * @return the streamed histories, products without any entry last with an empty history (an empty array if no
+     * product names are given)
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<StreamingResponseBody> getPriceHistories(@RequestBody PriceHistoryBatchRequest request) {
+        List<String> productNames = Optional.ofNullable(request.getProductNames()).orElse(List.of());
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                priceHistoryService.streamPriceHistories(
+                        productNames,
+                        Optional.ofNullable(request.getStoreName()),
+                        Optional.ofNullable(request.getCategory()),
+                        Optional.ofNullable(request.getBrand()),
+                        (productName, history) -> {
+                            generator.writeStartObject();
+                            generator.writeStringField("productName", productName);
+                            generator.writeObjectField("history", history);
+                            generator.writeEndObject();
+                            generator.flush();
+                        });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Returns the price history of a given product name aggregated per store into day, week or month buckets
+     * (min/max/average/closing price), so that long histories can be charted with a bounded number of points.
+     *
+     * @param productName the product name to fetch history for
+     * @param resolution bucket length: day, week or month (default day)
+     * @param from optional first day to include (yyyy-MM-dd)
+     * @param to optional last day to include (yyyy-MM-dd)
+     * @param storeName optional store name to filter by
+     * @param category optional product category
+     * @param brand optional brand name
+     * @return list of buckets, or 400 for an unknown resolution or from after to
+     */
+    @GetMapping("/aggregated")
+    public ResponseEntity<?> getAggregatedPriceHistory(
+            @RequestParam String productName,
+            @RequestParam(defaultValue = "day") String resolution,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String storeName,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String brand
+    ) {
+        try {
+            List<PriceHistoryBucketDTO> buckets = priceHistoryService.getAggregatedPriceHistory(
+                    productName,
+                    Optional.ofNullable(storeName),
+                    Optional.ofNullable(category),
+                    Optional.ofNullable(brand),
+                    PriceHistoryBucketDTO.Resolution.parse(resolution),
+                    Optional.ofNullable(from),
+                    Optional.ofNullable(to)
+            );
+            return ResponseEntity.ok(buckets);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Failed to aggregate price history: " + e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,54 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a full alert check on this application instance (the running one, or the last one).
+ * Other instances checking at the same time report their share of the alerts on their own.
+ */
+@Data
+public class AlertCheckSummaryDTO {
+
+    /**
+     * The instance that ran the check.
+     */
+    private String nodeId;
+
+    private boolean running;
+
+    private LocalDateTime startedAt;
+
+    /**
+     * Start of the check run shared by the instances, the same on every instance that joined it.
+     */
+    private LocalDateTime runStartedAt;
+
+    private LocalDateTime finishedAt;
+
+    /**
+     * Alerts claimed and checked by this instance.
+     */
+    private long alertsChecked;
+
+    /**
+     * Alerts whose target price was reached, their emails are queued.
+     */
+    private long alertsTriggered;
+
+    /**
+     * Chunks of alerts claimed by this instance.
+     */
+    private long chunks;
+
+    /**
+     * Wall-clock duration of the check so far, in milliseconds.
+     */
+    private long durationMillis;
+
+    /**
+     * Throughput: alerts checked per second.
+     */
+    private double alertsPerSecond;
+}
@@ -0,0 +1,25 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+
+/**
+ * One alert of a bulk alert creation request.
+ */
+@Data
+public class AlertRequest {
+
+    /**
+     * Email of the person who created the alert.
+     */
+    private String email;
+
+    /**
+     * Name of the watched product, as found in the catalog (case-insensitive).
+     */
+    private String productName;
+
+    /**
+     * Price the product should drop to.
+     */
+    private Double targetPrice;
+}
@@ -0,0 +1,24 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+
+/**
+ * One line of the batch basket optimization response: the optimized basket, or the reason it could not be optimized.
+ */
+@Data
+public class BatchBasketResultDTO {
+
+    /**
+     * Position of the basket in the request (results are streamed in completion order).
+     */
+    private int index;
+
+    /**
+     * The identifier given with the basket, if any.
+     */
+    private String id;
+
+    private ConstrainedBasketDTO basket;
+
+    private String error;
+}
@@ -0,0 +1,63 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk alert creation: totals and the status of every submitted alert.
+ */
+@Data
+public class BulkAlertResultDTO {
+
+    private long created;
+
+    private long rejected;
+
+    /**
+     * Wall-clock duration of the request, in milliseconds.
+     */
+    private long durationMillis;
+
+    /**
+     * Throughput (alerts created per second).
+     */
+    private double alertsPerSecond;
+
+    /**
+     * One entry per submitted alert, in request order.
+     */
+    private List<Row> rows;
+
+    /**
+     * Status of one submitted alert.
+     */
+    @Data
+    public static class Row {
+
+        /**
+         * Position of the alert in the request (0-based, header line excluded for CSV).
+         */
+        private int index;
+
+        private Status status;
+
+        /**
+         * Id of the created alert, null if rejected.
+         */
+        private Long alertId;
+
+        /**
+         * Why the alert was rejected, null if created.
+         */
+        private String error;
+    }
+
+    public enum Status {
+        CREATED,
+        INVALID,
+        UNKNOWN_PRODUCT,
+        /** Valid, but the chunk it was inserted with failed */
+        FAILED
+    }
+}
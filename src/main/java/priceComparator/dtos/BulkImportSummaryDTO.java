@@ -0,0 +1,46 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DTO summarizing a bulk import of many CSV files (from an archive or a directory).
+ * Holds the totals and one {@link ImportSummaryDTO} per file.
+ */
+@Data
+@NoArgsConstructor
+public class BulkImportSummaryDTO {
+
+    /**
+     * Number of files found.
+     */
+    private int files;
+
+    /**
+     * Number of files that could not be imported.
+     */
+    private int failedFiles;
+
+    /**
+     * Total number of rows persisted across all files.
+     */
+    private long rowsImported;
+
+    /**
+     * Wall-clock duration of the whole bulk import, in milliseconds.
+     */
+    private long durationMillis;
+
+    /**
+     * Overall throughput (rows persisted per second).
+     */
+    private double rowsPerSecond;
+
+    /**
+     * Per-file results, ordered by store and date.
+     */
+    private List<ImportSummaryDTO> results = new ArrayList<>();
+}
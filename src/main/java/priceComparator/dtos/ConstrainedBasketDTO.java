@@ -0,0 +1,60 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * DTO describing the cheapest basket found under a store-visit cost and/or a maximum number of stores.
+ */
+@Data
+@NoArgsConstructor
+public class ConstrainedBasketDTO {
+
+    /**
+     * The items to buy in every visited store.
+     */
+    private Map<String, List<ProductDTO>> byStore;
+
+    /**
+     * Items that no store sells.
+     */
+    private List<String> unavailable;
+
+    /**
+     * Sum of the item prices, in RON.
+     */
+    private double itemsCost;
+
+    /**
+     * Sum of the visit costs of the visited stores, in RON.
+     */
+    private double visitCost;
+
+    /**
+     * itemsCost + visitCost.
+     */
+    private double totalCost;
+
+    /**
+     * Number of stores to visit.
+     */
+    private int storesVisited;
+
+    /**
+     * Whether the basket is proven to be the cheapest (false if the time budget ran out first).
+     */
+    private boolean optimal;
+
+    /**
+     * Number of branch-and-bound nodes explored.
+     */
+    private long nodesExplored;
+
+    /**
+     * Duration of the search, in milliseconds.
+     */
+    private long elapsedMillis;
+}
@@ -0,0 +1,38 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Request body of the constrained basket optimization, also one basket of a batch optimization.
+ */
+@Data
+public class ConstrainedBasketRequest {
+
+    /**
+     * Client-chosen identifier (e.g. a customer id), echoed back in the result of a batch optimization.
+     */
+    private String id;
+
+    /**
+     * Product names in the basket, a name listed twice is bought twice.
+     */
+    private List<String> items;
+
+    /**
+     * Cost (in RON) added for every store visited, e.g. the time or fuel a trip is worth. Defaults to 0.
+     */
+    private Double visitCost;
+
+    /**
+     * Maximum number of stores to visit, unlimited if not set.
+     */
+    private Integer maxStores;
+
+    /**
+     * Time budget of the search in milliseconds, the configured default if not set.
+     * When it runs out, the best basket found so far is returned.
+     */
+    private Long timeBudgetMillis;
+}
@@ -0,0 +1,68 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import priceComparator.models.ImportJob;
+
+import java.time.LocalDateTime;
+
+/**
+ * DTO describing the progress of an asynchronous import job.
+ * Returned when a job is submitted and by the job status endpoint.
+ */
+@Data
+@NoArgsConstructor
+public class ImportJobDTO {
+
+    private Long id;
+
+    private ImportJob.Type type;
+
+    private ImportJob.Status status;
+
+    /**
+     * Original name of the uploaded file.
+     */
+    private String fileName;
+
+    /**
+     * Data rows processed by committed chunks (the resume checkpoint).
+     */
+    private long rowsProcessed;
+
+    /**
+     * Rows persisted to the database.
+     */
+    private long rowsImported;
+
+    /**
+     * Rows skipped because they could not be parsed.
+     */
+    private long rowErrors;
+
+    /**
+     * Description of the latest row that could not be parsed.
+     */
+    private String lastRowError;
+
+    /**
+     * Error that stopped the job, null unless it failed.
+     */
+    private String error;
+
+    /**
+     * Time spent importing so far, in milliseconds.
+     */
+    private long durationMillis;
+
+    /**
+     * Import throughput (rows processed per second).
+     */
+    private double rowsPerSecond;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+}
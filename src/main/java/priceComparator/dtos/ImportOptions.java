@@ -0,0 +1,50 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tuning knobs for the batched CSV import, bound from the request parameters.
+ * Fields left null fall back to the configured defaults.
+ */
+@Data
+@NoArgsConstructor
+public class ImportOptions {
+
+    /**
+     * Number of rows committed per transaction/JDBC batch.
+     */
+    private Integer chunkSize;
+
+    /**
+     * Number of writer workers persisting chunks in parallel.
+     * With 1 writer, parsing and persisting happen on the calling thread.
+     */
+    private Integer writers;
+
+    /**
+     * Delta mode (products only): persist only rows whose price differs from the latest known
+     * price of the same productId in the same store, or that are not known yet.
+     */
+    private boolean delta;
+
+    /**
+     * CSV parser used to read the file.
+     */
+    private CsvParser parser = CsvParser.OPENCSV;
+
+    /**
+     * Available CSV parsers.
+     */
+    public enum CsvParser {
+        /**
+         * OpenCSV, reads every row as a {@code String[]}.
+         */
+        OPENCSV,
+
+        /**
+         * Memory-mapped parser that scans the fields in place, meant for very large files.
+         */
+        MAPPED
+    }
+}
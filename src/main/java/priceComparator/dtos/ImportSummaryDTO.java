@@ -0,0 +1,65 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * DTO summarizing the outcome of a CSV import.
+ * Returned by the batched import endpoints so that callers can monitor throughput.
+ */
+@Data
+@NoArgsConstructor
+public class ImportSummaryDTO {
+
+    /**
+     * Original name of the imported file.
+     */
+    private String fileName;
+
+    /**
+     * Store name extracted from the file name.
+     */
+    private String storeName;
+
+    /**
+     * Date extracted from the file name.
+     */
+    private LocalDate dateAdded;
+
+    /**
+     * Number of rows persisted to the database.
+     */
+    private long rowsImported;
+
+    /**
+     * Wall-clock duration of the import, in milliseconds.
+     */
+    private long durationMillis;
+
+    /**
+     * Import throughput (rows persisted per second).
+     */
+    private double rowsPerSecond;
+
+    /**
+     * Delta import only: rows for products not seen before in this store.
+     */
+    private Long newRows;
+
+    /**
+     * Delta import only: rows whose price changed since the latest known entry.
+     */
+    private Long changedRows;
+
+    /**
+     * Delta import only: rows skipped because their price is the same as the latest known entry.
+     */
+    private Long unchangedRows;
+
+    /**
+     * Error message if the file could not be imported (bulk imports only), null on success.
+     */
+    private String error;
+}
@@ -0,0 +1,24 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Request body of the multi-product price history, e.g. every product of a category shown on a dashboard.
+ * The filters apply to every product, like the parameters of the single-product history.
+ */
+@Data
+public class PriceHistoryBatchRequest {
+
+    /**
+     * Product names (case-insensitive).
+     */
+    private List<String> productNames;
+
+    private String storeName;
+
+    private String category;
+
+    private String brand;
+}
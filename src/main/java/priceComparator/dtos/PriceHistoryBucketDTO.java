@@ -0,0 +1,108 @@
+package priceComparator.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * DTO summarizing a product's price history in one store over one day, week or month, so that a chart of a long
+ * history needs one point per bucket instead of every {@link PriceHistoryPointDTO} segment.
+ * The prices are the prices in RON of the days of the bucket covered by the history (discounted ones included).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceHistoryBucketDTO {
+
+    /**
+     * The name of the store offering these prices.
+     */
+    private String storeName;
+
+    /**
+     * First day of the bucket.
+     */
+    private LocalDate dateFrom;
+
+    /**
+     * First day of the next bucket.
+     */
+    private LocalDate dateTo;
+
+    private double minPrice;
+
+    private double maxPrice;
+
+    /**
+     * Average of the daily prices.
+     */
+    private double avgPrice;
+
+    /**
+     * Price on the last covered day of the bucket.
+     */
+    private double closePrice;
+
+    /**
+     * Days of the bucket with a known price; fewer than the bucket's length at the edges of the history.
+     */
+    private int days;
+
+    /**
+     * Days of the bucket with a discounted price.
+     */
+    private int discountedDays;
+
+    /**
+     * Length of the buckets.
+     */
+    public enum Resolution {
+        DAY,
+
+        /**
+         * ISO weeks, starting on Monday.
+         */
+        WEEK,
+
+        MONTH;
+
+        /**
+         * @return the first day of the bucket containing the date
+         */
+        public LocalDate bucketStart(LocalDate date) {
+            return switch (this) {
+                case DAY -> date;
+                case WEEK -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH -> date.withDayOfMonth(1);
+            };
+        }
+
+        /**
+         * @return the first day of the bucket following the one starting on the given date
+         */
+        public LocalDate nextBucketStart(LocalDate bucketStart) {
+            return switch (this) {
+                case DAY -> bucketStart.plusDays(1);
+                case WEEK -> bucketStart.plusWeeks(1);
+                case MONTH -> bucketStart.plusMonths(1);
+            };
+        }
+
+        /**
+         * Parses a resolution case-insensitively ("day", "week", "month").
+         *
+         * @throws IllegalArgumentException if it is none of them
+         */
+        public static Resolution parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown resolution '" + value + "', expected day, week or month");
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+import priceComparator.models.PackageUnit;
+
+/**
+ * The product chosen for one item of a substitution basket.
+ */
+@Data
+public class SubstituteDTO {
+
+    /**
+     * The item as requested.
+     */
+    private SubstitutionBasketRequest.Item requested;
+
+    /**
+     * The product with the lowest price per unit, current discount applied.
+     */
+    private ProductDTO product;
+
+    /**
+     * Number of packages needed to cover the requested quantity.
+     */
+    private int packages;
+
+    /**
+     * Final price per {@link #unit}, in RON.
+     */
+    private Double unitPrice;
+
+    /**
+     * Normalized unit of the price (kg, l, buc, ...).
+     */
+    private PackageUnit unit;
+
+    /**
+     * Price of all the packages, in RON.
+     */
+    private Double cost;
+}
@@ -0,0 +1,25 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of the substitution basket: the chosen products per store and the total cost.
+ */
+@Data
+public class SubstitutionBasketDTO {
+
+    /**
+     * Chosen products grouped by store name.
+     */
+    private Map<String, List<SubstituteDTO>> byStore;
+
+    /**
+     * Items for which no product of the category is sold by the requested unit.
+     */
+    private List<SubstitutionBasketRequest.Item> unavailable;
+
+    private Double totalCost;
+}
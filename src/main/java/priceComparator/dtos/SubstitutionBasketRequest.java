@@ -0,0 +1,43 @@
+package priceComparator.dtos;
+
+import lombok.Data;
+import priceComparator.models.PackageUnit;
+
+import java.util.List;
+
+/**
+ * Request body of the substitution basket: items described by what they are and how much is needed
+ * (e.g. 2 l of milk) instead of by product name.
+ */
+@Data
+public class SubstitutionBasketRequest {
+
+    private List<Item> items;
+
+    /**
+     * One item of the basket.
+     */
+    @Data
+    public static class Item {
+
+        /**
+         * Product category (e.g., "lactate").
+         */
+        private String category;
+
+        /**
+         * Optional text the product name must contain (e.g. "lapte"), any product of the category if not set.
+         */
+        private String name;
+
+        /**
+         * Amount needed, in {@link #unit}. One package of the cheapest product per unit if not set.
+         */
+        private Double quantity;
+
+        /**
+         * Unit the products are compared by (kg, l, buc, ...); g and ml are accepted and compared as kg and l.
+         */
+        private PackageUnit unit;
+    }
+}
@@ -0,0 +1,23 @@
+package priceComparator.events;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Published after products or discounts were written (an import, or a single product / discount saved).
+ * Listeners refresh what depends on prices: the latest-price index is marked stale, the materialized price
+ * history is rebuilt from the first affected date and the alerts watching the affected products are re-evaluated.
+ *
+ * @param productNames names of the products whose price or discount may have changed, as written
+ * @param storeName the store the rows were written for, null if unknown (any store may have changed)
+ * @param from the earliest date whose price may have changed (entry date, or discount start), null if unknown
+ */
+public record PriceDataChangedEvent(Set<String> productNames, String storeName, LocalDate from) {
+
+    /**
+     * Change of the given products in any store, at any date.
+     */
+    public PriceDataChangedEvent(Set<String> productNames) {
+        this(productNames, null, null);
+    }
+}
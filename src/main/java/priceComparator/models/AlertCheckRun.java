@@ -0,0 +1,34 @@
+package priceComparator.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity coordinating the full alert check across application instances.
+ * A single row holds the current (or last) check run: an instance starting a check joins the run in progress,
+ * or starts a new one if there is none, with conditional updates. The run's start time identifies it, alerts
+ * checked since then are skipped, so the instances of a run split the alerts instead of repeating them.
+ */
+@Entity
+@Data
+public class AlertCheckRun {
+
+    /**
+     * Id of the only row.
+     */
+    public static final long CURRENT = 1L;
+
+    @Id
+    private Long id;
+
+    /** When the run started, alerts checked since then are not checked again by the run */
+    private LocalDateTime startedAt;
+
+    /** Instances still checking alerts for the run, the run is over when it drops to 0 */
+    private int activeInstances;
+
+    /** Renewed by the instances while they check, the run is over once it expires (e.g. all of them crashed) */
+    private LocalDateTime leaseUntil;
+}
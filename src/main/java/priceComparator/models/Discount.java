@@ -15,6 +15,12 @@ import java.time.LocalDate;
  * Contains information such as the discount percentage, applicable date range, and product packaging details.
  */
 @Entity
+@Table(indexes = {
+        // Top discounts: scanned in (percentage, id) order, the order of the keyset cursor
+        @Index(name = "idx_discount_percentage_id", columnList = "percentage, id"),
+        // Active discounts of a percentage: the date range checked in the index
+        @Index(name = "idx_discount_percentage_dates", columnList = "percentage, dateFrom, dateTo")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -23,9 +29,11 @@ public class Discount {
 
     /**
      * Unique identifier for the discount.
+     * Drawn from a pooled sequence (instead of IDENTITY) so that inserts can be JDBC-batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "discount_seq")
+    @SequenceGenerator(name = "discount_seq", sequenceName = "discount_seq", allocationSize = 50)
     private Long id;
 
     /**
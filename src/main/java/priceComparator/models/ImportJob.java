@@ -0,0 +1,103 @@
+package priceComparator.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import priceComparator.dtos.ImportOptions;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entity tracking an asynchronous CSV import.
+ * The uploaded file is spooled to local disk and imported in chunks; every chunk is committed
+ * together with the job's checkpoint (rowOffset), so an interrupted job resumes after the last committed chunk.
+ * A job belongs to the instance holding its spooled file, which renews its lease while the job is queued or
+ * running; other instances only resume it once the lease expired.
+ */
+@Entity
+@Data
+public class ImportJob {
+
+    /**
+     * Lifecycle of an import job.
+     */
+    public enum Status {
+        /** Accepted, waiting for a worker */
+        QUEUED,
+        /** Being imported (or interrupted by a restart, in which case it is resumed by its owner on startup) */
+        RUNNING,
+        /** All rows were processed */
+        COMPLETED,
+        /** Stopped by an error, can be resumed from its checkpoint */
+        FAILED
+    }
+
+    /**
+     * Kind of rows contained in the file.
+     */
+    public enum Type {
+        PRODUCTS,
+        DISCOUNTS
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Type type;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    /** Original name of the uploaded file, used to extract the store and date */
+    private String fileName;
+
+    /** Location of the spooled copy of the upload */
+    private String spoolPath;
+
+    /**
+     * Instance that spooled (or took over) the job and runs it. Like the lease, only changed by the
+     * conditional updates of the repository, so saving the job never overwrites them.
+     */
+    @Column(updatable = false)
+    private String ownerNode;
+
+    /** Until when the owner is known to be alive, renewed by its heartbeat */
+    @Column(updatable = false)
+    private LocalDateTime leaseUntil;
+
+    /** Rows committed per transaction */
+    private int chunkSize;
+
+    /** Whether only new or changed prices are persisted (products only) */
+    private boolean delta;
+
+    @Enumerated(EnumType.STRING)
+    private ImportOptions.CsvParser parser;
+
+    /** Checkpoint: number of data rows (header excluded) processed by committed chunks */
+    private long rowOffset;
+
+    /** Number of rows persisted by committed chunks */
+    private long rowsImported;
+
+    /** Number of rows skipped because they could not be parsed */
+    private long rowErrors;
+
+    /** Description of the latest row that could not be parsed */
+    @Column(length = 1000)
+    private String lastRowError;
+
+    /** Error that stopped the job, null unless FAILED */
+    @Column(length = 1000)
+    private String error;
+
+    /** Time spent importing, summed over all runs of the job, in milliseconds */
+    private long processingMillis;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime updatedAt;
+
+    private LocalDateTime finishedAt;
+}
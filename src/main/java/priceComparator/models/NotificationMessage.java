@@ -0,0 +1,72 @@
+package priceComparator.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Entry of the outbound notification queue: one triggered {@link PriceAlert} waiting to be emailed.
+ * Enqueued in the transaction that marks the alert notified, sent later by the dispatcher, which coalesces
+ * the pending messages of a recipient into a single email and retries failed sends with backoff.
+ * A dispatcher claims messages before sending them, so that several application instances never send the same one.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_notification_status_next", columnList = "status, nextAttemptAt"))
+@Data
+public class NotificationMessage {
+
+    /**
+     * Delivery state of a message.
+     */
+    public enum Status {
+        /** Waiting to be sent, at nextAttemptAt at the earliest */
+        PENDING,
+        /** Claimed by a dispatcher until nextAttemptAt, claimable again after that (the dispatcher stopped) */
+        SENDING,
+        /** Delivered to the mail server */
+        SENT,
+        /** Given up after the maximum number of attempts */
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    /** Email address of the user */
+    private String recipient;
+
+    /** The alert that triggered this message */
+    private Long alertId;
+
+    /** The product of the alert */
+    private String productName;
+
+    /** The price that reached the alert's target, in RON */
+    private double price;
+
+    /** Date the alert was created */
+    private LocalDate alertCreatedAt;
+
+    /** Send attempts made so far */
+    private int attempts;
+
+    /** Earliest time of the next attempt; while SENDING, the end of the dispatcher's claim */
+    private LocalDateTime nextAttemptAt;
+
+    /** Dispatcher that claimed the message */
+    private String leaseOwner;
+
+    /** Error of the last failed attempt */
+    @Column(length = 1000)
+    private String lastError;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime sentAt;
+}
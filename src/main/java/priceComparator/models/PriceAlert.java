@@ -3,17 +3,29 @@ package priceComparator.models;
 import jakarta.persistence.*;
 import lombok.Data;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 /**
  * Entity representing a user-defined price alert for a product.
  * Used to notify the user when a product's price drops to or below the target.
+ * Several application instances check alerts concurrently: an instance claims a chunk of alerts by setting
+ * the lease columns with a conditional update, so no alert is checked or notified by two instances at once.
  */
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_price_alert_notified_id", columnList = "notified, id"),
+        // Alerts of the products changed by an import
+        @Index(name = "idx_price_alert_product_name", columnList = "productName, notified")
+})
 @Data
 public class PriceAlert {
 
+    /**
+     * Drawn from a pooled sequence (instead of IDENTITY) so that bulk creations can be JDBC-batched.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_alert_seq")
+    @SequenceGenerator(name = "price_alert_seq", sequenceName = "price_alert_seq", allocationSize = 50)
     private Long id;
 
     /** The product name this alert is set for */
@@ -30,4 +42,13 @@ public class PriceAlert {
 
     /** Date the alert was created */
     private LocalDate createdAt;
+
+    /** Worker currently holding the alert, null if not claimed */
+    private String leaseOwner;
+
+    /** When the claim expires, the alert can then be claimed by another worker */
+    private LocalDateTime leaseUntil;
+
+    /** Last time the alert was checked, used so that a scan shared by several instances checks it once */
+    private LocalDateTime checkedAt;
 }
\ No newline at end of file
@@ -0,0 +1,88 @@
+package priceComparator.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Materialized segment of a product's price history in one store (see {@code PriceSegmentService}).
+ * The segments of a (product name, store) series are kept in timeline order and rebuilt from the affected
+ * price period onward whenever products or discounts of the series are imported, so that reading the history
+ * is one indexed range read instead of recomputing it from the raw entries.
+ * The latest price period has no end yet (it lasts until today), it is stored as an {@link Kind#OPEN} row and
+ * the discounts overlapping it as {@link Kind#OPEN_DISCOUNT} rows, finished when the history is read.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_price_segment_name_store_period", columnList = "productName, storeKey, periodStart"))
+@Data
+public class PriceSegment {
+
+    /**
+     * Kind of row of a series.
+     */
+    public enum Kind {
+        /** A final segment of a past price period */
+        SEGMENT,
+        /** The latest price period, until today */
+        OPEN,
+        /** A discount overlapping the latest price period */
+        OPEN_DISCOUNT
+    }
+
+    /**
+     * Drawn from a pooled sequence so that the rows of a rebuild are JDBC-batched.
+     * Rows of a series are inserted in timeline order, so the id orders the segments of a period.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "price_segment_seq")
+    @SequenceGenerator(name = "price_segment_seq", sequenceName = "price_segment_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    private Kind kind;
+
+    /** Lower-cased product name */
+    private String productName;
+
+    /** Lower-cased store name */
+    private String storeKey;
+
+    /** Store name as written on the entry */
+    private String storeName;
+
+    /** Business id, category, brand and package of the entry the price period starts with */
+    private String productId;
+
+    private String category;
+
+    private String brand;
+
+    private Double packageQuantity;
+
+    @Enumerated(EnumType.STRING)
+    private PackageUnit packageUnit;
+
+    /** Date of the entry the price period starts with */
+    private LocalDate periodStart;
+
+    /** Price of the price period as imported, in {@link #currency} */
+    private double periodPrice;
+
+    @Enumerated(EnumType.STRING)
+    private Currency currency;
+
+    /** Start of the segment; start of the discount for {@link Kind#OPEN_DISCOUNT} */
+    private LocalDate dateFrom;
+
+    /** End of the segment, null for {@link Kind#OPEN}; end of the discount for {@link Kind#OPEN_DISCOUNT} */
+    private LocalDate dateTo;
+
+    /** Price of the segment in RON (discounted if the segment is), null for the open rows */
+    private Double price;
+
+    private boolean discounted;
+
+    /** Discount percentage, {@link Kind#OPEN_DISCOUNT} only */
+    private Integer percentage;
+}
@@ -13,6 +13,12 @@ import java.time.LocalDate;
  * Contains information such as price, brand, etc.
  */
 @Entity
+@Table(indexes = {
+        // Latest entry per (productId, store): partition columns first, then the ordering column
+        @Index(name = "idx_product_product_store_date", columnList = "productId, storeName, dateAdded"),
+        // Lookups and history by name
+        @Index(name = "idx_product_name_store_date", columnList = "name, storeName, dateAdded")
+})
 @Getter
 @Setter
 @AllArgsConstructor
@@ -21,9 +27,11 @@ public class Product {
 
     /**
      * Unique identifier for the product.
+     * Drawn from a pooled sequence (instead of IDENTITY) so that inserts can be JDBC-batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Long id;
 
     /**
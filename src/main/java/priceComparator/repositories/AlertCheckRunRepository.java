@@ -0,0 +1,66 @@
+package priceComparator.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import priceComparator.models.AlertCheckRun;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository interface for accessing and managing the {@link AlertCheckRun} row.
+ * Every update is conditional and evaluated by the database, so concurrent instances agree on the run.
+ */
+public interface AlertCheckRunRepository extends JpaRepository<AlertCheckRun, Long> {
+
+    /**
+     * Joins the run in progress, if any: one more active instance, lease renewed.
+     *
+     * @return 1 if a run was joined, 0 if there is none in progress
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE AlertCheckRun r SET r.activeInstances = r.activeInstances + 1, r.leaseUntil = :leaseUntil
+    WHERE r.id = :id AND r.activeInstances > 0 AND r.leaseUntil >= :now
+""")
+    int join(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Starts a new run, unless another instance started one in the meantime.
+     *
+     * @return 1 if the run was started, 0 if a run is still in progress
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE AlertCheckRun r SET r.startedAt = :now, r.activeInstances = 1, r.leaseUntil = :leaseUntil
+    WHERE r.id = :id AND (r.activeInstances = 0 OR r.leaseUntil < :now)
+""")
+    int start(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Extends the lease of the run started at the given time, while an instance is still checking.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE AlertCheckRun r SET r.leaseUntil = :leaseUntil
+    WHERE r.id = :id AND r.startedAt = :startedAt AND r.leaseUntil < :leaseUntil
+""")
+    int renew(@Param("id") Long id, @Param("startedAt") LocalDateTime startedAt,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Leaves the run started at the given time, once the instance found no more alerts to claim.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE AlertCheckRun r SET r.activeInstances = r.activeInstances - 1
+    WHERE r.id = :id AND r.startedAt = :startedAt AND r.activeInstances > 0
+""")
+    int leave(@Param("id") Long id, @Param("startedAt") LocalDateTime startedAt);
+}
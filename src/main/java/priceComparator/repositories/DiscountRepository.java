@@ -4,15 +4,19 @@ import priceComparator.models.Product;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import priceComparator.models.Discount;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Repository interface for managing {@link Discount} entities.
  * Provides methods to query active discounts and search with filters.
+ * Like in {@link ProductRepository}, names and stores are compared as stored, case-insensitively by the column
+ * collation, so that the product indexes can be used for the joins.
  */
 @Repository
 public interface DiscountRepository extends JpaRepository<Discount, Long> {
@@ -26,6 +30,104 @@ public interface DiscountRepository extends JpaRepository<Discount, Long> {
     @Query("SELECT d FROM Discount d WHERE :now BETWEEN d.dateFrom AND d.dateTo")
     List<Discount> findActiveDiscounts(@Param("now")LocalDate now);
 
+    /**
+     * Same as {@link #findActiveDiscounts(LocalDate)}, each discount joined with the most recent entry of its product
+     * in its store in the same statement.
+     * A discount whose latest entry date has several entries is returned once per entry, highest entry id first.
+     *
+     * @param now The current date to check discount validity.
+     * @return the active discounts with their latest product, ordered by discount id.
+     */
+    @Query("""
+    SELECT new priceComparator.repositories.DiscountWithLatestProduct(d, p)
+    FROM Discount d
+    LEFT JOIN Product p
+      ON p.productId = d.productId
+     AND p.storeName = d.storeName
+     AND p.dateAdded = (
+         SELECT MAX(p2.dateAdded) FROM Product p2
+         WHERE p2.productId = d.productId
+           AND p2.storeName = d.storeName
+     )
+    WHERE :now BETWEEN d.dateFrom AND d.dateTo
+    ORDER BY d.id, p.id DESC
+""")
+    List<DiscountWithLatestProduct> findActiveDiscountsWithLatestProduct(@Param("now") LocalDate now);
+
+    /**
+     * Returns the highest active discounts, optionally filtered, each joined with the latest entry of its product
+     * (see {@link #findActiveDiscountsWithLatestProduct(LocalDate)}); when several entries share the latest date,
+     * the one with the highest id, so that every discount is one row. Ordered by percentage, then by id, both
+     * descending so that the {@code (percentage, id)} index is read backwards; the database stops after
+     * {@code limit} rows.
+     *
+     * @param now The current date to check discount validity.
+     * @param store optional store filter
+     * @param category optional category filter
+     * @param brand optional brand filter
+     * @param limit maximum number of discounts
+     */
+    @Query("""
+    SELECT new priceComparator.repositories.DiscountWithLatestProduct(d, p)
+    FROM Discount d
+    LEFT JOIN Product p
+      ON p.id = (
+         SELECT MAX(p2.id) FROM Product p2
+         WHERE p2.productId = d.productId
+           AND p2.storeName = d.storeName
+           AND p2.dateAdded = (
+               SELECT MAX(p3.dateAdded) FROM Product p3
+               WHERE p3.productId = d.productId
+                 AND p3.storeName = d.storeName
+           )
+     )
+    WHERE :now BETWEEN d.dateFrom AND d.dateTo
+      AND (:store IS NULL OR d.storeName = :store)
+      AND (:category IS NULL OR d.category = :category)
+      AND (:brand IS NULL OR d.brand = :brand)
+    ORDER BY d.percentage DESC, d.id DESC
+""")
+    List<DiscountWithLatestProduct> findTopActiveDiscounts(@Param("now") LocalDate now,
+                                                           @Param("store") String store,
+                                                           @Param("category") String category,
+                                                           @Param("brand") String brand,
+                                                           Limit limit);
+
+    /**
+     * Next page of {@link #findTopActiveDiscounts}: the discounts after the given one in the same order.
+     *
+     * @param afterPercentage percentage of the last discount of the previous page
+     * @param afterId id of the last discount of the previous page
+     */
+    @Query("""
+    SELECT new priceComparator.repositories.DiscountWithLatestProduct(d, p)
+    FROM Discount d
+    LEFT JOIN Product p
+      ON p.id = (
+         SELECT MAX(p2.id) FROM Product p2
+         WHERE p2.productId = d.productId
+           AND p2.storeName = d.storeName
+           AND p2.dateAdded = (
+               SELECT MAX(p3.dateAdded) FROM Product p3
+               WHERE p3.productId = d.productId
+                 AND p3.storeName = d.storeName
+           )
+     )
+    WHERE :now BETWEEN d.dateFrom AND d.dateTo
+      AND (:store IS NULL OR d.storeName = :store)
+      AND (:category IS NULL OR d.category = :category)
+      AND (:brand IS NULL OR d.brand = :brand)
+      AND (d.percentage < :afterPercentage OR (d.percentage = :afterPercentage AND d.id < :afterId))
+    ORDER BY d.percentage DESC, d.id DESC
+""")
+    List<DiscountWithLatestProduct> findTopActiveDiscountsAfter(@Param("now") LocalDate now,
+                                                                @Param("store") String store,
+                                                                @Param("category") String category,
+                                                                @Param("brand") String brand,
+                                                                @Param("afterPercentage") int afterPercentage,
+                                                                @Param("afterId") long afterId,
+                                                                Limit limit);
+
     /**
      * Returns discounts that have dateAdded in a list of given dates.
      * Used for seeing which discounts have been added today/yesterday.
@@ -35,6 +137,29 @@ public interface DiscountRepository extends JpaRepository<Discount, Long> {
      */
     List<Discount> findByDateAddedIn(List<LocalDate> dates);
 
+    /**
+     * Same as {@link #findByDateAddedIn(List)}, each discount joined with the most recent entry of its product
+     * in its store in the same statement, see {@link #findActiveDiscountsWithLatestProduct(LocalDate)}.
+     *
+     * @param dates    The list of dates in which dateAdded should be.
+     * @return the matching discounts with their latest product, ordered by discount id.
+     */
+    @Query("""
+    SELECT new priceComparator.repositories.DiscountWithLatestProduct(d, p)
+    FROM Discount d
+    LEFT JOIN Product p
+      ON p.productId = d.productId
+     AND p.storeName = d.storeName
+     AND p.dateAdded = (
+         SELECT MAX(p2.dateAdded) FROM Product p2
+         WHERE p2.productId = d.productId
+           AND p2.storeName = d.storeName
+     )
+    WHERE d.dateAdded IN :dates
+    ORDER BY d.id, p.id DESC
+""")
+    List<DiscountWithLatestProduct> findByDateAddedInWithLatestProduct(@Param("dates") List<LocalDate> dates);
+
     /**
      * Returns a list of discounts for a given {@link Product} that existed.
      * Used to show price history.
@@ -43,4 +168,40 @@ public interface DiscountRepository extends JpaRepository<Discount, Long> {
      * @return a list of matching discounts for that {@link Product}
      */
     List<Discount> findByNameIgnoreCase(String productName);
+
+    /**
+     * Returns the discounts of several products at once, see {@link #findByNameIgnoreCase(String)}.
+     *
+     * @param names lower-cased product names
+     * @return the matching discounts of all the products
+     */
+    @Query("SELECT d FROM Discount d WHERE d.name IN :names")
+    List<Discount> findByLowerNameIn(@Param("names") Collection<String> names);
+
+    /**
+     * Retrieves the discounts of the given products in a store, optionally only those ending on or after a date,
+     * ordered by start date. Used to rebuild the materialized price history.
+     *
+     * @param store lower-cased store name
+     * @param names lower-cased product names
+     * @param from optional lower bound for dateTo (inclusive)
+     */
+    @Query("""
+    SELECT d FROM Discount d
+    WHERE d.storeName = :store
+      AND d.name IN :names
+      AND (:from IS NULL OR d.dateTo >= :from)
+    ORDER BY d.dateFrom, d.id
+""")
+    List<Discount> findSeriesDiscounts(@Param("store") String store, @Param("names") Collection<String> names,
+                                       @Param("from") LocalDate from);
+
+    /**
+     * Returns the next page of discounts in id order, see {@link ProductRepository#findPageAfter}.
+     *
+     * @param afterId id of the last discount of the previous page, 0 for the first page
+     * @param limit page size
+     */
+    @Query("SELECT d FROM Discount d WHERE d.id > :afterId ORDER BY d.id")
+    List<Discount> findPageAfter(@Param("afterId") long afterId, Limit limit);
 }
@@ -0,0 +1,14 @@
+package priceComparator.repositories;
+
+import priceComparator.models.Discount;
+import priceComparator.models.Product;
+
+/**
+ * A {@link Discount} joined with the most recent {@link Product} entry of its product in its store,
+ * as returned by the analytics queries of {@link DiscountRepository}.
+ *
+ * @param discount the discount
+ * @param product the latest entry of the product in the discount's store, null if the store has none
+ */
+public record DiscountWithLatestProduct(Discount discount, Product product) {
+}
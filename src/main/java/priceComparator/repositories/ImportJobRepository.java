@@ -0,0 +1,112 @@
+package priceComparator.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import priceComparator.models.ImportJob;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for accessing and managing {@link ImportJob} entities.
+ */
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+
+    /**
+     * Fetches the jobs in the given states, oldest first.
+     * Used to resume the jobs that were queued or running when their instance stopped.
+     */
+    List<ImportJob> findByStatusInOrderByIdAsc(Collection<ImportJob.Status> statuses);
+
+    /**
+     * Takes the job over for an instance if it is still in one of the given states and owned by that instance,
+     * by no one, or by an instance whose lease expired. Evaluated by the database, so only one instance wins.
+     *
+     * @return 1 if the instance now owns the job, 0 if another live instance does
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE ImportJob j SET j.ownerNode = :owner, j.leaseUntil = :leaseUntil
+    WHERE j.id = :id
+      AND j.status IN :statuses
+      AND (j.ownerNode = :owner OR j.leaseUntil IS NULL OR j.leaseUntil < :now)
+""")
+    int takeOver(@Param("id") Long id, @Param("statuses") Collection<ImportJob.Status> statuses,
+                 @Param("owner") String owner, @Param("now") LocalDateTime now,
+                 @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Queues a failed job again on the given instance, unless it was resumed in the meantime.
+     *
+     * @return 1 if the job was queued, 0 if it is no longer failed
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE ImportJob j SET j.status = :queued, j.error = NULL, j.updatedAt = :now,
+                           j.ownerNode = :owner, j.leaseUntil = :leaseUntil
+    WHERE j.id = :id AND j.status = :failed
+""")
+    int requeue(@Param("id") Long id, @Param("failed") ImportJob.Status failed,
+                @Param("queued") ImportJob.Status queued, @Param("owner") String owner,
+                @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Heartbeat: extends the lease of the instance's jobs in the given states.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.leaseUntil = :leaseUntil WHERE j.ownerNode = :owner AND j.status IN :statuses")
+    int renewLeases(@Param("owner") String owner, @Param("statuses") Collection<ImportJob.Status> statuses,
+                    @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Gives up the leases of the instance's jobs in the given states (on shutdown), so that another instance, or this
+     * one restarted under a new node id, can take them over right away instead of waiting for them to expire.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.leaseUntil = NULL WHERE j.ownerNode = :owner AND j.status IN :statuses")
+    int releaseLeases(@Param("owner") String owner, @Param("statuses") Collection<ImportJob.Status> statuses);
+
+    /**
+     * Saves the checkpoint and counters of a job, if the instance still owns it (fencing: an instance whose lease
+     * expired no longer commits chunks of a job another instance took over). The update keeps the job's row locked
+     * until the chunk's transaction commits, so the job cannot be taken over in between.
+     *
+     * @return 1 if the checkpoint was saved, 0 if another instance owns the job
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE ImportJob j SET j.rowOffset = :rowOffset, j.rowsImported = :rowsImported, j.rowErrors = :rowErrors,
+                           j.lastRowError = :lastRowError, j.processingMillis = :processingMillis,
+                           j.updatedAt = :updatedAt
+    WHERE j.id = :id AND j.ownerNode = :owner
+""")
+    int updateCheckpoint(@Param("id") Long id, @Param("owner") String owner, @Param("rowOffset") long rowOffset,
+                         @Param("rowsImported") long rowsImported, @Param("rowErrors") long rowErrors,
+                         @Param("lastRowError") String lastRowError, @Param("processingMillis") long processingMillis,
+                         @Param("updatedAt") LocalDateTime updatedAt);
+
+    /**
+     * Sets the status of a job, if the instance still owns it. {@code finishedAt} is only set for completed jobs
+     * and {@code error} for failed ones.
+     *
+     * @return 1 if the status was set, 0 if another instance owns the job
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE ImportJob j SET j.status = :status, j.error = :error, j.finishedAt = :finishedAt, j.updatedAt = :now
+    WHERE j.id = :id AND j.ownerNode = :owner
+""")
+    int updateStatus(@Param("id") Long id, @Param("owner") String owner, @Param("status") ImportJob.Status status,
+                     @Param("error") String error, @Param("finishedAt") LocalDateTime finishedAt,
+                     @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,48 @@
+package priceComparator.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import priceComparator.models.NotificationMessage;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for accessing and managing {@link NotificationMessage} entities.
+ */
+public interface NotificationMessageRepository extends JpaRepository<NotificationMessage, Long> {
+
+    /**
+     * Fetches the ids of the messages in the given states that are due, oldest first.
+     * Used by the dispatcher to pick the next batch to claim.
+     */
+    @Query("SELECT m.id FROM NotificationMessage m WHERE m.status IN :statuses AND m.nextAttemptAt <= :now ORDER BY m.id")
+    List<Long> findDueIds(@Param("statuses") Collection<NotificationMessage.Status> statuses,
+                          @Param("now") LocalDateTime now, Pageable pageable);
+
+    /**
+     * Claims the given messages for a dispatcher until {@code leaseUntil}, skipping those claimed or sent
+     * by another dispatcher in the meantime. The condition is evaluated per row by the database.
+     *
+     * @return the number of messages claimed, see {@link #findByLeaseOwnerAndIdInOrderByIdAsc} for which ones
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE NotificationMessage m SET m.status = :sending, m.leaseOwner = :owner, m.nextAttemptAt = :leaseUntil
+    WHERE m.id IN :ids AND m.status IN :statuses AND m.nextAttemptAt <= :now
+""")
+    int claim(@Param("ids") Collection<Long> ids, @Param("statuses") Collection<NotificationMessage.Status> statuses,
+              @Param("sending") NotificationMessage.Status sending, @Param("owner") String owner,
+              @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Fetches the given messages that are claimed by the dispatcher.
+     */
+    List<NotificationMessage> findByLeaseOwnerAndIdInOrderByIdAsc(String leaseOwner, Collection<Long> ids);
+}
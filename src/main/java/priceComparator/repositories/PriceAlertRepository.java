@@ -1,8 +1,15 @@
 package priceComparator.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import priceComparator.models.PriceAlert;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -11,7 +18,96 @@ import java.util.List;
 public interface PriceAlertRepository extends JpaRepository<PriceAlert, Long> {
 
     /**
-     * Fetches all alerts that have not yet triggered a user notification.
+     * Fetches the next page of alerts not yet notified, after the given id (keyset paging).
      */
-    List<PriceAlert> findByNotifiedFalse();
-}
\ No newline at end of file
+    List<PriceAlert> findByNotifiedFalseAndIdGreaterThanOrderByIdAsc(Long afterId, Pageable pageable);
+
+    /**
+     * Fetches the alerts not yet notified that watch one of the given products.
+     * Names are compared as stored, case-insensitively by the column collation (see {@link ProductRepository}).
+     *
+     * @param productNames lower-cased product names
+     */
+    @Query("SELECT a FROM PriceAlert a WHERE a.productName IN :productNames AND a.notified = false")
+    List<PriceAlert> findByNotifiedFalseAndProductNameIn(@Param("productNames") Collection<String> productNames);
+
+    /**
+     * Fetches the ids of the next alerts that can be claimed, after the given id (keyset paging):
+     * not notified, not leased (or the lease expired) and not checked since the scan started.
+     *
+     * @param afterId the last id of the previous page (0 for the first page)
+     * @param now the current time, leases ending before it are expired
+     * @param scanStart the start of the scan, alerts checked since then are skipped
+     */
+    @Query("""
+    SELECT a.id FROM PriceAlert a
+    WHERE a.notified = false
+      AND a.id > :afterId
+      AND (a.leaseUntil IS NULL OR a.leaseUntil < :now)
+      AND (a.checkedAt IS NULL OR a.checkedAt < :scanStart)
+    ORDER BY a.id
+""")
+    List<Long> findClaimableIds(@Param("afterId") Long afterId, @Param("now") LocalDateTime now,
+                                @Param("scanStart") LocalDateTime scanStart, Pageable pageable);
+
+    /**
+     * Claims the given alerts for a worker, skipping those notified or leased by another worker in the meantime.
+     * The condition is evaluated per row by the database, so concurrent claims never overlap.
+     *
+     * @return the number of alerts claimed, see {@link #findByLeaseOwnerAndIdIn} for which ones
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE PriceAlert a SET a.leaseOwner = :owner, a.leaseUntil = :leaseUntil
+    WHERE a.id IN :ids
+      AND a.notified = false
+      AND (a.leaseUntil IS NULL OR a.leaseUntil < :now)
+""")
+    int claim(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+              @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    /**
+     * Same as {@link #claim}, for a worker of a full check: also skips the alerts checked since the scan started.
+     * A page found by {@link #findClaimableIds} may hold alerts another worker claimed, checked and released in
+     * the meantime, which must not be checked twice in the same run.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE PriceAlert a SET a.leaseOwner = :owner, a.leaseUntil = :leaseUntil
+    WHERE a.id IN :ids
+      AND a.notified = false
+      AND (a.leaseUntil IS NULL OR a.leaseUntil < :now)
+      AND (a.checkedAt IS NULL OR a.checkedAt < :scanStart)
+""")
+    int claimUnchecked(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                       @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil,
+                       @Param("scanStart") LocalDateTime scanStart);
+
+    /**
+     * Fetches the given alerts that are leased by the worker.
+     */
+    List<PriceAlert> findByLeaseOwnerAndIdIn(String leaseOwner, Collection<Long> ids);
+
+    /**
+     * Marks an alert notified if it is still leased by the worker and not notified yet.
+     *
+     * @return 1 if the alert was marked, 0 if another worker got it first
+     */
+    @Modifying
+    @Query("UPDATE PriceAlert a SET a.notified = true WHERE a.id = :id AND a.leaseOwner = :owner AND a.notified = false")
+    int markNotified(@Param("id") Long id, @Param("owner") String owner);
+
+    /**
+     * Releases the worker's lease on the given alerts and records when they were checked.
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+    UPDATE PriceAlert a SET a.leaseOwner = NULL, a.leaseUntil = NULL, a.checkedAt = :checkedAt
+    WHERE a.id IN :ids AND a.leaseOwner = :owner
+""")
+    int release(@Param("ids") Collection<Long> ids, @Param("owner") String owner,
+                @Param("checkedAt") LocalDateTime checkedAt);
+}
@@ -0,0 +1,102 @@
+package priceComparator.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import priceComparator.models.PriceSegment;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the materialized price history, see {@link PriceSegment}.
+ */
+public interface PriceSegmentRepository extends JpaRepository<PriceSegment, Long> {
+
+    /**
+     * Reads the price history of a product, optionally filtered, in timeline order per store.
+     *
+     * @param name lower-cased product name
+     * @param store optional lower-cased store name
+     * @param category optional lower-cased category
+     * @param brand optional lower-cased brand
+     */
+    @Query("""
+    SELECT s FROM PriceSegment s
+    WHERE s.productName = :name
+      AND (:store IS NULL OR s.storeKey = :store)
+      AND (:category IS NULL OR LOWER(s.category) = :category)
+      AND (:brand IS NULL OR LOWER(s.brand) = :brand)
+    ORDER BY s.periodStart, s.id
+""")
+    List<PriceSegment> findHistory(
+            @Param("name") String name,
+            @Param("store") String store,
+            @Param("category") String category,
+            @Param("brand") String brand
+    );
+
+    /**
+     * Retrieves the price history of several products, optionally filtered, the rows of a product together and in
+     * timeline order per store.
+     *
+     * @param names lower-cased product names
+     * @param store optional lower-cased store name
+     * @param category optional lower-cased category
+     * @param brand optional lower-cased brand
+     */
+    @Query("""
+    SELECT s FROM PriceSegment s
+    WHERE s.productName IN :names
+      AND (:store IS NULL OR s.storeKey = :store)
+      AND (:category IS NULL OR LOWER(s.category) = :category)
+      AND (:brand IS NULL OR LOWER(s.brand) = :brand)
+    ORDER BY s.productName, s.periodStart, s.id
+""")
+    List<PriceSegment> findHistories(
+            @Param("names") Collection<String> names,
+            @Param("store") String store,
+            @Param("category") String category,
+            @Param("brand") String brand
+    );
+
+    /**
+     * Retrieves, for every given product of a store, the rows of its price period containing the given date
+     * (the latest period starting on or before it). Products with no period starting on or before it are absent.
+     *
+     * @param store lower-cased store name
+     * @param names lower-cased product names
+     * @param date the date the period should contain
+     */
+    @Query("""
+    SELECT s FROM PriceSegment s
+    WHERE s.storeKey = :store
+      AND s.productName IN :names
+      AND s.kind <> priceComparator.models.PriceSegment.Kind.OPEN_DISCOUNT
+      AND s.periodStart = (
+          SELECT MAX(s2.periodStart) FROM PriceSegment s2
+          WHERE s2.storeKey = s.storeKey
+            AND s2.productName = s.productName
+            AND s2.periodStart <= :date
+      )
+""")
+    List<PriceSegment> findPeriodsContaining(@Param("store") String store, @Param("names") Collection<String> names,
+                                             @Param("date") LocalDate date);
+
+    /**
+     * Deletes the rows of the given products of a store whose price period starts on or after the given date.
+     */
+    @Modifying
+    @Query("DELETE FROM PriceSegment s WHERE s.storeKey = :store AND s.productName IN :names AND s.periodStart >= :from")
+    int deleteFrom(@Param("store") String store, @Param("names") Collection<String> names,
+                   @Param("from") LocalDate from);
+
+    /**
+     * Deletes all rows of the given products of a store.
+     */
+    @Modifying
+    @Query("DELETE FROM PriceSegment s WHERE s.storeKey = :store AND s.productName IN :names")
+    int deleteSeries(@Param("store") String store, @Param("names") Collection<String> names);
+}
@@ -1,15 +1,20 @@
 package priceComparator.repositories;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import priceComparator.models.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository interface for performing CRUD operations on {@link Product} entities.
+ * Key lookups compare the raw name and store columns so that the composite indexes can be used; names are matched
+ * case-insensitively by the column collation (MySQL's default, see the README), not by LOWER().
  */
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
@@ -54,10 +59,10 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
      */
     @Query("""
     SELECT p FROM Product p
-    WHERE LOWER(p.name) = LOWER(:name)
-      AND (:store IS NULL OR LOWER(p.storeName) = LOWER(:store))
-      AND (:category IS NULL OR LOWER(p.category) = LOWER(:category))
-      AND (:brand IS NULL OR LOWER(p.brand) = LOWER(:brand))
+    WHERE p.name = :name
+      AND (:store IS NULL OR p.storeName = :store)
+      AND (:category IS NULL OR p.category = :category)
+      AND (:brand IS NULL OR p.brand = :brand)
     ORDER BY p.dateAdded ASC
 """)
     List<Product> findFilteredProducts(
@@ -66,4 +71,174 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
             @Param("category") String category,
             @Param("brand") String brand
     );
+
+    /**
+     * Retrieves the product entries of several products, filtered like {@link #findFilteredProducts}, the entries of
+     * a product together and ordered by date.
+     *
+     * @param names lower-cased product names
+     * @param store optional store filter
+     * @param category optional category filter
+     * @param brand optional brand filter
+     */
+    @Query("""
+    SELECT p FROM Product p
+    WHERE p.name IN :names
+      AND (:store IS NULL OR p.storeName = :store)
+      AND (:category IS NULL OR p.category = :category)
+      AND (:brand IS NULL OR p.brand = :brand)
+    ORDER BY p.name, p.dateAdded ASC
+""")
+    List<Product> findFilteredProductsIn(
+            @Param("names") Collection<String> names,
+            @Param("store") String store,
+            @Param("category") String category,
+            @Param("brand") String brand
+    );
+
+    /**
+     * Retrieves, for every product of a store, its most recent entry added on or before the given date.
+     * Used by the delta import to compare incoming rows against the last known price.
+     *
+     * @param store the name of the store (case-insensitive)
+     * @param date the upper bound for dateAdded (inclusive)
+     * @return the latest {@link Product} entry per productId in that store
+     */
+    @Query("""
+    SELECT p FROM Product p
+    WHERE p.storeName = :store
+      AND p.dateAdded = (
+          SELECT MAX(p2.dateAdded) FROM Product p2
+          WHERE p2.productId = p.productId
+            AND p2.storeName = :store
+            AND p2.dateAdded <= :date
+      )
+""")
+    List<Product> findLatestByStore(@Param("store") String store, @Param("date") LocalDate date);
+
+    /**
+     * Retrieves the most recent entry of every product (productId) in every store, in a single query.
+     * The latest date per key is computed once with GROUP BY and joined back, instead of a correlated MAX per row.
+     * Store names are grouped as stored (so the composite index can be used); callers merge case variants.
+     * Used to build the in-memory latest-price index.
+     *
+     * @return the latest {@link Product} entry per productId and store
+     */
+    @Query(value = """
+    SELECT p.* FROM product p
+    JOIN (
+        SELECT product_id, store_name, MAX(date_added) AS latest
+        FROM product
+        GROUP BY product_id, store_name
+    ) m ON p.product_id = m.product_id AND p.store_name = m.store_name AND p.date_added = m.latest
+""", nativeQuery = true)
+    List<Product> findLatestPerProductAndStore();
+
+    /**
+     * Retrieves the most recent entry of every product (productId) in every store, for the given names only.
+     * Used for set-based lowest-price lookups when the latest-price index is disabled.
+     *
+     * @param names lower-cased product names
+     * @return the latest {@link Product} entry per productId and store whose name is in the list
+     */
+    @Query(value = """
+    SELECT p.* FROM product p
+    JOIN (
+        SELECT product_id, store_name, MAX(date_added) AS latest
+        FROM product
+        WHERE name IN (:names)
+        GROUP BY product_id, store_name
+    ) m ON p.product_id = m.product_id AND p.store_name = m.store_name AND p.date_added = m.latest
+""", nativeQuery = true)
+    List<Product> findLatestPerProductAndStoreByNameIn(@Param("names") Collection<String> names);
+
+    /**
+     * Retrieves the most recent entry in every store of the given products, in a single query.
+     * Replaces one {@link #findTopByProductIdAndStoreNameIgnoreCaseOrderByDateAddedDesc} call per key.
+     *
+     * @param productIds the business ids of the products
+     * @return the latest {@link Product} entry per productId and store
+     */
+    @Query(value = """
+    SELECT p.* FROM product p
+    JOIN (
+        SELECT product_id, store_name, MAX(date_added) AS latest
+        FROM product
+        WHERE product_id IN (:productIds)
+        GROUP BY product_id, store_name
+    ) m ON p.product_id = m.product_id AND p.store_name = m.store_name AND p.date_added = m.latest
+""", nativeQuery = true)
+    List<Product> findLatestPerStoreByProductIdIn(@Param("productIds") Collection<String> productIds);
+
+    /**
+     * Retrieves the most recent entry of every product (productId) in every store, for the given categories only.
+     * Used for unit-price substitutions when the latest-price index is disabled.
+     *
+     * @param categories lower-cased categories
+     * @return the latest {@link Product} entry per productId and store whose category is in the list
+     */
+    @Query(value = """
+    SELECT p.* FROM product p
+    JOIN (
+        SELECT product_id, store_name, MAX(date_added) AS latest
+        FROM product
+        WHERE category IN (:categories)
+        GROUP BY product_id, store_name
+    ) m ON p.product_id = m.product_id AND p.store_name = m.store_name AND p.date_added = m.latest
+""", nativeQuery = true)
+    List<Product> findLatestPerProductAndStoreByCategoryIn(@Param("categories") Collection<String> categories);
+
+    /**
+     * Keeps the product names that exist in the catalog, in a single query.
+     * Used to validate bulk alert creations.
+     *
+     * @param names lower-cased product names
+     * @return the names found, lower-cased
+     */
+    @Query(value = "SELECT DISTINCT LOWER(name) FROM product WHERE name IN (:names)", nativeQuery = true)
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    /**
+     * Retrieves the entries of the given products in a store, optionally from a date on, in date order.
+     * Used to rebuild the materialized price history.
+     *
+     * @param store lower-cased store name
+     * @param names lower-cased product names
+     * @param from optional lower bound for dateAdded (inclusive)
+     */
+    @Query("""
+    SELECT p FROM Product p
+    WHERE p.storeName = :store
+      AND p.name IN :names
+      AND (:from IS NULL OR p.dateAdded >= :from)
+    ORDER BY p.dateAdded, p.id
+""")
+    List<Product> findSeriesEntries(@Param("store") String store, @Param("names") Collection<String> names,
+                                    @Param("from") LocalDate from);
+
+    /**
+     * Returns the next page of entries in id order, after the given id (keyset paging on the primary key).
+     * Used to load the in-memory price series on startup: every page is a short query of its own, so the load
+     * neither relies on the driver streaming a result set nor holds a connection for the whole load.
+     *
+     * @param afterId id of the last entry of the previous page, 0 for the first page
+     * @param limit page size
+     */
+    @Query("SELECT p FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<Product> findPageAfter(@Param("afterId") long afterId, Limit limit);
+
+    /**
+     * Retrieves every (store, product name) pair, lower-cased.
+     * Used to build the materialized price history of an existing database.
+     */
+    @Query("SELECT DISTINCT LOWER(p.storeName), LOWER(p.name) FROM Product p")
+    List<Object[]> findAllStoreAndNamePairs();
+
+    /**
+     * Retrieves the lower-cased names of the stores that have entries for the given products.
+     *
+     * @param names lower-cased product names
+     */
+    @Query("SELECT DISTINCT LOWER(p.storeName) FROM Product p WHERE p.name IN :names")
+    List<String> findStoreNamesByNameIn(@Param("names") Collection<String> names);
 }
@@ -7,6 +7,8 @@ import priceComparator.services.PriceAlertService;
 
 /**
  * Scheduler for running price alert checks on a fixed schedule.
+ * Alerts are checked as soon as their product changes, this daily run is a fallback
+ * (e.g. for discounts that start without a new import).
  */
 @Component
 public class AlertScheduler {
@@ -0,0 +1,25 @@
+package priceComparator.scheduling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import priceComparator.services.AnalyticsService;
+
+/**
+ * Scheduler that rebuilds the analytics snapshot when the date rolls over,
+ * so that discounts starting or ending today are listed without waiting for the first request.
+ */
+@Component
+public class AnalyticsSnapshotScheduler {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    /**
+     * Runs the rebuild every day at midnight.
+     */
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rebuildOnDateRollover() {
+        analyticsService.rebuildSnapshot();
+    }
+}
@@ -0,0 +1,25 @@
+package priceComparator.scheduling;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import priceComparator.services.LatestPriceIndex;
+
+/**
+ * Scheduler that rebuilds the latest-price index when the date rolls over,
+ * so that discounts starting or ending today are applied without waiting for the first lookup.
+ */
+@Component
+public class PriceIndexScheduler {
+
+    @Autowired
+    private LatestPriceIndex latestPriceIndex;
+
+    /**
+     * Runs the rebuild every day at midnight.
+     */
+    @Scheduled(cron = "0 0 0 * * *")
+    public void rebuildOnDateRollover() {
+        latestPriceIndex.rebuild();
+    }
+}
@@ -1,27 +1,39 @@
 package priceComparator.services;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 import priceComparator.dtos.ProductDTO;
+import priceComparator.events.PriceDataChangedEvent;
 import priceComparator.mappers.ProductMapper;
 import priceComparator.models.Discount;
 import priceComparator.models.Product;
 import priceComparator.repositories.DiscountRepository;
-import priceComparator.repositories.ProductRepository;
+import priceComparator.repositories.DiscountWithLatestProduct;
 
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service layer for managing business logic related to analytics of {@link Discount} and {@link Product}.
  * Handles fetching discounts, converting to DTOs, and calculating discount metrics.
+ * The current, new and top discounts only change with the date or an import, so they are served from an
+ * immutable snapshot, rebuilt after price data changes (see {@link PriceDataChangedEvent}) and at midnight and
+ * swapped in atomically. With {@code analytics-snapshot.enabled=false} every call queries the database instead.
  */
 @Service
 public class AnalyticsService {
 
-    @Autowired
-    private ProductRepository productRepository;
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsService.class);
 
     @Autowired
     private DiscountRepository discountRepository;
@@ -29,39 +41,112 @@ public class AnalyticsService {
     @Autowired
     private ProductMapper productMapper;
 
+    @Autowired
+    private PriceSeriesStore priceSeriesStore;
+
+    /**
+     * Whether the analytics are served from an in-memory snapshot (it holds every active discount).
+     */
+    @Value("${analytics-snapshot.enabled:true}")
+    private boolean snapshotEnabled;
+
+    /**
+     * Highest percentage first, then highest id, the order of the top discounts and of their cursors.
+     */
+    private static final Comparator<DiscountEntry> RANKING = Comparator
+            .comparingInt(DiscountEntry::percentage)
+            .thenComparingLong(DiscountEntry::id)
+            .reversed();
+
+    /**
+     * Start of this run, part of the snapshot tags so that a tag issued before a restart never matches.
+     */
+    private final String instanceTag = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong snapshotVersions = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Returns a tag identifying the data served by the snapshot, to be used as an ETag. It changes with every
+     * rebuild. Read it before the data it describes: if the snapshot is swapped in between, the tag is older
+     * than the data, so a client never keeps older data under a newer tag.
+     *
+     * @return the tag of the current snapshot, empty when the snapshot is disabled.
+     */
+    public Optional<String> getSnapshotTag() {
+        if (!snapshotEnabled) return Optional.empty();
+        return Optional.of(instanceTag + "-" + currentSnapshot().version());
+    }
+
     /**
      * Retrieves the discounts added today/ yesterday.
      *
      * @return a list of {@link ProductDTO} with info of the newly added discounts.
      */
     public List<ProductDTO> getNewDiscounts(){
-        LocalDate today = LocalDate.now();
-        LocalDate yesterday = today.minusDays(1);
+        if (snapshotEnabled) {
+            return currentSnapshot().newDiscounts();
+        }
+        return toDTOs(loadNewDiscounts(LocalDate.now()));
+    }
 
-        List<Discount> newDiscounts = discountRepository.findByDateAddedIn(List.of(today, yesterday));
+    /**
+     * Retrieves a page of the highest active discounts, optionally filtered by store, category and brand.
+     * Served from the snapshot's ranking (per category when filtered by category); when the snapshot is disabled,
+     * the database orders and limits the discounts, so a page costs about the same however many are active.
+     *
+     * @param limit the number of discounts to return.
+     * @param store optional store filter.
+     * @param category optional category filter.
+     * @param brand optional brand filter.
+     * @param after optional cursor from the previous page ({@link DiscountPage#nextCursor()}).
+     * @return a {@link DiscountPage} with the discounts sorted by discount percentage in descending order.
+     * @throws IllegalArgumentException if the limit is not positive or the cursor is malformed.
+     */
+    public DiscountPage getTopDiscounts(int limit, Optional<String> store, Optional<String> category,
+                                        Optional<String> brand, Optional<String> after) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        Optional<long[]> cursor = after.map(this::parseCursor);
 
-        return newDiscounts.stream()
-                .map(discount -> productMapper.mapToDTOWithDiscount(
-                        discount,
-                        productRepository.findTopByProductIdAndStoreNameIgnoreCaseOrderByDateAddedDesc(
-                                discount.getProductId(),
-                                discount.getStoreName()
-                        )
-                ))
-                .collect(Collectors.toList());
+        List<DiscountEntry> entries;
+        boolean more;
+        if (snapshotEnabled) {
+            entries = currentSnapshot().top(limit + 1, store, category, brand, cursor);
+            more = entries.size() > limit;
+        } else {
+            // One more row than needed, to tell whether there is a next page
+            List<DiscountWithLatestProduct> joined = loadTopDiscounts(Limit.of(limit + 1), store, category, brand, cursor);
+            entries = mapJoined(joined);
+            more = joined.size() > limit;
+        }
+
+        List<DiscountEntry> page = entries.subList(0, Math.min(limit, entries.size()));
+        DiscountEntry last = page.isEmpty() ? null : page.get(page.size() - 1);
+        String nextCursor = more && last != null ? last.percentage() + ":" + last.id() : null;
+        return new DiscountPage(toDTOs(page), nextCursor);
     }
 
     /**
-     * Retrieves the top N discounts sorted by discount percentage in descending order.
+     * A page of top discounts.
      *
-     * @param topN the number of top discounts to return.
-     * @return a sorted list of {@link ProductDTO} by discount percentage.
+     * @param discounts the discounts of the page.
+     * @param nextCursor cursor of the next page ("percentage:id" of the last discount), null on the last page.
      */
-    public List<ProductDTO> getTopDiscountsByDiscount(int topN){
-        return getAllCurrentDiscounts().stream()
-                .sorted((d1,d2) -> d2.getDiscountPercentage().compareTo(d1.getDiscountPercentage()))
-                .limit(topN)
-                .collect(Collectors.toList());
+    public record DiscountPage(List<ProductDTO> discounts, String nextCursor) {
+    }
+
+    private long[] parseCursor(String cursor) {
+        String[] parts = cursor.split(":");
+        try {
+            if (parts.length == 2) {
+                return new long[]{Integer.parseInt(parts[0]), Long.parseLong(parts[1])};
+            }
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException("Malformed cursor '" + cursor + "', expected percentage:id");
     }
 
     /**
@@ -71,19 +156,245 @@ public class AnalyticsService {
      * @return a list of {@link ProductDTO} representing current discounts.
      */
     public List<ProductDTO> getAllCurrentDiscounts(){
+        if (snapshotEnabled) {
+            return currentSnapshot().currentDiscounts();
+        }
+        return toDTOs(loadCurrentDiscounts(LocalDate.now()));
+    }
+
+    /**
+     * Rebuilds the snapshot once the changed rows are committed, so the analytics are up to date when the
+     * import returns. Runs after the other listeners, the in-memory series included. A failed rebuild is logged
+     * and the previous snapshot kept, so it never fails the import that published the event.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public void onPriceDataChanged(PriceDataChangedEvent event) {
+        tryRebuildSnapshot();
+    }
+
+    /**
+     * Builds the initial snapshot so that the first requests do not pay for it. If it fails, the application
+     * still starts and the first request builds it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        tryRebuildSnapshot();
+    }
+
+    /**
+     * Rebuilds the snapshot from the database (or the in-memory series) and swaps it in atomically.
+     * Concurrent rebuilds are serialized; requests keep reading the previous snapshot meanwhile, and keep it
+     * if the rebuild fails. Discounts without any entry of their product in their store are left out.
+     */
+    public synchronized void rebuildSnapshot() {
+        if (!snapshotEnabled) return;
+
+        LocalDate today = LocalDate.now();
+        List<DiscountEntry> current = loadCurrentDiscounts(today);
+        List<ProductDTO> newDiscounts = toDTOs(loadNewDiscounts(today));
+
+        List<DiscountEntry> ranked = new ArrayList<>(current);
+        ranked.sort(RANKING);
+        Map<String, List<DiscountEntry>> rankedByCategory = new HashMap<>();
+        for (DiscountEntry entry : ranked) {
+            rankedByCategory.computeIfAbsent(normalize(entry.category()), key -> new ArrayList<>()).add(entry);
+        }
+        rankedByCategory.replaceAll((key, entries) -> List.copyOf(entries));
+
+        snapshot = new Snapshot(today, snapshotVersions.incrementAndGet(), toDTOs(current), newDiscounts,
+                List.copyOf(ranked), Map.copyOf(rankedByCategory));
+    }
+
+    private void tryRebuildSnapshot() {
+        try {
+            rebuildSnapshot();
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild the analytics snapshot, keeping the previous one", e);
+        }
+    }
+
+    /**
+     * Returns the current snapshot, rebuilding it first if there is none yet or the date rolled over
+     * (before the midnight rebuild ran). If the rebuild fails, the previous snapshot is served until the
+     * next attempt; only a missing snapshot fails the request.
+     */
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null || !current.date().equals(LocalDate.now())) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null || !current.date().equals(LocalDate.now())) {
+                    if (current == null) {
+                        rebuildSnapshot();
+                    } else {
+                        tryRebuildSnapshot();
+                    }
+                    current = snapshot;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<DiscountEntry> loadNewDiscounts(LocalDate today) {
+        LocalDate yesterday = today.minusDays(1);
+
+        if (priceSeriesStore.isReady()) {
+            return mapWithLatestEntries(discountRepository.findByDateAddedIn(List.of(today, yesterday)));
+        }
+        return mapJoined(discountRepository.findByDateAddedInWithLatestProduct(List.of(today, yesterday)));
+    }
+
+    private List<DiscountEntry> loadCurrentDiscounts(LocalDate now) {
+        if (priceSeriesStore.isReady()) {
+            return mapWithLatestEntries(discountRepository.findActiveDiscounts(now));
+        }
+        return mapJoined(discountRepository.findActiveDiscountsWithLatestProduct(now));
+    }
+
+    private List<DiscountWithLatestProduct> loadTopDiscounts(Limit rows, Optional<String> store,
+                                                             Optional<String> category, Optional<String> brand,
+                                                             Optional<long[]> cursor) {
         LocalDate now = LocalDate.now();
-        List<Discount> activeDiscounts = discountRepository.findActiveDiscounts(now);
-        return activeDiscounts.stream()
-                .map(discount -> productMapper.mapToDTOWithDiscount(
-                        discount,
-                        productRepository.findTopByProductIdAndStoreNameIgnoreCaseOrderByDateAddedDesc(
-                                discount.getProductId(),
-                                discount.getStoreName()
-                        )
-                ))
-                .collect(Collectors.toList());
+        if (cursor.isPresent()) {
+            return discountRepository.findTopActiveDiscountsAfter(now, store.orElse(null), category.orElse(null),
+                    brand.orElse(null), (int) cursor.get()[0], cursor.get()[1], rows);
+        }
+        return discountRepository.findTopActiveDiscounts(now, store.orElse(null), category.orElse(null),
+                brand.orElse(null), rows);
+    }
+
+    /**
+     * Maps discounts to DTOs, priced with the most recent entry of their product in their store,
+     * read from the in-memory series ({@link PriceSeriesStore}). Discounts whose product has no entry
+     * in their store are skipped.
+     *
+     * @param discounts the discounts to map.
+     * @return a list of {@link DiscountEntry}, in the order of the discounts.
+     */
+    private List<DiscountEntry> mapWithLatestEntries(List<Discount> discounts) {
+        List<DiscountEntry> entries = new ArrayList<>(discounts.size());
+        for (Discount discount : discounts) {
+            Optional<Product> product = priceSeriesStore.getLatestEntry(discount.getProductId(), discount.getStoreName());
+            if (product.isEmpty()) {
+                logMissingProduct(discount);
+                continue;
+            }
+            entries.add(toEntry(discount, productMapper.mapToDTOWithDiscount(discount, product)));
+        }
+        return entries;
+    }
+
+    /**
+     * Maps discounts already joined with the most recent entry of their product in their store to DTOs,
+     * so the whole list takes a single statement instead of one query per discount.
+     *
+     * Discounts whose product has no entry in their store are skipped.
+     *
+     * @param joined the discounts with their latest product, a discount repeated when several entries tie.
+     * @return a list of {@link DiscountEntry}, at most one per discount, in the order of the discounts.
+     */
+    private List<DiscountEntry> mapJoined(List<DiscountWithLatestProduct> joined) {
+        List<DiscountEntry> entries = new ArrayList<>(joined.size());
+        Long previousId = null;
+        for (DiscountWithLatestProduct row : joined) {
+            // Entries of the same product, store and date: keep the first, the highest id like the top discounts
+            if (row.discount().getId().equals(previousId)) continue;
+            previousId = row.discount().getId();
+            if (row.product() == null) {
+                logMissingProduct(row.discount());
+                continue;
+            }
+            entries.add(toEntry(row.discount(),
+                    productMapper.mapToDTOWithDiscount(row.discount(), Optional.of(row.product()))));
+        }
+        return entries;
+    }
+
+    private static void logMissingProduct(Discount discount) {
+        log.warn("Skipping discount {}: no entry of product {} ({}) in store {}", discount.getId(),
+                discount.getProductId(), discount.getName(), discount.getStoreName());
+    }
+
+    private static DiscountEntry toEntry(Discount discount, ProductDTO product) {
+        return new DiscountEntry(discount.getId(), discount.getPercentage(), discount.getStoreName(),
+                discount.getCategory(), discount.getBrand(), product);
+    }
+
+    private static List<ProductDTO> toDTOs(List<DiscountEntry> entries) {
+        return entries.stream().map(DiscountEntry::product).toList();
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase();
     }
 
+    /**
+     * A discount priced with its product, with the fields the top discounts are ranked and filtered by.
+     */
+    private record DiscountEntry(long id, int percentage, String storeName, String category, String brand,
+                                 ProductDTO product) {
 
+        /**
+         * Whether the entry comes after the cursor's discount in the {@link #RANKING} order.
+         */
+        boolean isAfter(long[] cursor) {
+            return percentage < cursor[0] || (percentage == cursor[0] && id < cursor[1]);
+        }
+    }
 
+    /**
+     * Immutable analytics of one date and data version. The DTOs are shared by every request and never modified.
+     *
+     * @param date the date the discounts were active / added on
+     * @param version incremented on every rebuild
+     * @param currentDiscounts the active discounts
+     * @param newDiscounts the discounts added on the date or the day before
+     * @param ranked the active discounts in {@link #RANKING} order
+     * @param rankedByCategory the same, per normalized category
+     */
+    private record Snapshot(LocalDate date,
+                            long version,
+                            List<ProductDTO> currentDiscounts,
+                            List<ProductDTO> newDiscounts,
+                            List<DiscountEntry> ranked,
+                            Map<String, List<DiscountEntry>> rankedByCategory) {
+
+        /**
+         * Collects up to {@code count} discounts matching the filters, starting after the cursor.
+         * The start is found with a binary search, the filters then scan the ranking in order.
+         */
+        List<DiscountEntry> top(int count, Optional<String> store, Optional<String> category,
+                                Optional<String> brand, Optional<long[]> cursor) {
+            List<DiscountEntry> candidates = category
+                    .map(name -> rankedByCategory.getOrDefault(normalize(name), List.of()))
+                    .orElse(ranked);
+
+            int from = 0;
+            if (cursor.isPresent()) {
+                // First entry after the cursor: the ranking is sorted, so isAfter is false then true
+                int low = 0, high = candidates.size();
+                while (low < high) {
+                    int mid = (low + high) >>> 1;
+                    if (candidates.get(mid).isAfter(cursor.get())) high = mid;
+                    else low = mid + 1;
+                }
+                from = low;
+            }
+
+            List<DiscountEntry> top = new ArrayList<>(Math.min(count, candidates.size() - from));
+            for (int i = from; i < candidates.size() && top.size() < count; i++) {
+                DiscountEntry entry = candidates.get(i);
+                if (matches(store, entry.storeName()) && matches(brand, entry.brand())) {
+                    top.add(entry);
+                }
+            }
+            return top;
+        }
+
+        private static boolean matches(Optional<String> filter, String value) {
+            return filter.isEmpty() || normalize(filter.get()).equals(normalize(value));
+        }
+    }
 }
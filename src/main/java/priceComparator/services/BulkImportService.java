@@ -0,0 +1,279 @@
+package priceComparator.services;
+
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.ArchiveStreamFactory;
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+import priceComparator.dtos.BulkImportSummaryDTO;
+import priceComparator.dtos.ImportOptions;
+import priceComparator.dtos.ImportSummaryDTO;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static priceComparator.utils.PriceUtils.round;
+
+/**
+ * Service that imports many product and discount CSV files at once, from an uploaded archive
+ * (zip, tar, tar.gz) or from a directory on the server.
+ * Files are classified by name (store, date, products/discounts) and imported in one lane per store:
+ * lanes run concurrently on virtual threads, files of the same store are imported in chronological order.
+ */
+@Service
+public class BulkImportService {
+
+    @Autowired
+    private CSVImportService csvImportService;
+
+    /**
+     * Base directory under which server-side directory imports are allowed.
+     * Directory imports are disabled when it is not set.
+     */
+    @Value("${import.bulk.allowed-dir:}")
+    private String allowedDir;
+
+    /**
+     * Maximum number of entries an uploaded archive may contain.
+     */
+    @Value("${import.bulk.max-entries:10000}")
+    private int maxEntries;
+
+    /**
+     * Maximum total size of the extracted files of an uploaded archive, in bytes (1 GiB by default).
+     */
+    @Value("${import.bulk.max-uncompressed-bytes:1073741824}")
+    private long maxUncompressedBytes;
+
+    /**
+     * Extracts an uploaded archive to a temporary directory and imports every CSV file it contains.
+     *
+     * @param archive the zip, tar or tar.gz archive
+     * @param options chunk size, writer parallelism and delta mode applied to every file
+     * @return the per-file summary
+     */
+    public BulkImportSummaryDTO importArchive(MultipartFile archive, ImportOptions options) throws Exception {
+        Path workDir = Files.createTempDirectory("priceComparator-bulk-");
+        try {
+            extractArchive(archive, workDir);
+            return importFiles(listCsvFiles(workDir), options);
+        } finally {
+            FileSystemUtils.deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * Imports every CSV file found in a server-side directory (recursively).
+     *
+     * @param directory the directory path, must be inside {@code import.bulk.allowed-dir}
+     * @param options chunk size, writer parallelism and delta mode applied to every file
+     * @return the per-file summary
+     */
+    public BulkImportSummaryDTO importDirectory(String directory, ImportOptions options) throws Exception {
+        return importFiles(listCsvFiles(resolveAllowedDirectory(directory)), options);
+    }
+
+    /**
+     * Classifies the files, splits them into one lane per store and imports the lanes concurrently.
+     */
+    private BulkImportSummaryDTO importFiles(List<Path> files, ImportOptions options) throws Exception {
+        long start = System.nanoTime();
+        List<ImportSummaryDTO> results = new ArrayList<>();
+        Map<String, List<Path>> lanes = new TreeMap<>();
+
+        for (Path file : files) {
+            String filename = file.getFileName().toString();
+            try {
+                csvImportService.extractDate(filename); // Validates the name format
+                String store = csvImportService.extractStoreName(filename).toLowerCase(Locale.ROOT);
+                lanes.computeIfAbsent(store, s -> new ArrayList<>()).add(file);
+            } catch (IllegalArgumentException e) {
+                results.add(failedSummary(filename, e));
+            }
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<List<ImportSummaryDTO>>> futures = new ArrayList<>();
+            for (List<Path> lane : lanes.values()) {
+                futures.add(executor.submit(() -> importLane(lane, options)));
+            }
+            for (Future<List<ImportSummaryDTO>> future : futures) {
+                results.addAll(future.get());
+            }
+        }
+
+        return buildSummary(results, start);
+    }
+
+    /**
+     * Imports the files of one store sequentially: oldest first, products before the discounts of the same day.
+     * A failing file is reported and does not stop the lane.
+     */
+    private List<ImportSummaryDTO> importLane(List<Path> lane, ImportOptions options) {
+        List<ImportSummaryDTO> results = new ArrayList<>();
+
+        List<Path> ordered = lane.stream()
+                .sorted(Comparator.comparing((Path p) -> csvImportService.extractDate(nameOf(p)))
+                        .thenComparing(p -> csvImportService.isDiscountFile(nameOf(p)))
+                        .thenComparing(BulkImportService::nameOf))
+                .toList();
+
+        for (Path file : ordered) {
+            String filename = nameOf(file);
+            FileSystemResource resource = new FileSystemResource(file);
+            try {
+                results.add(csvImportService.isDiscountFile(filename)
+                        ? csvImportService.importDiscountsBatched(resource, options)
+                        : csvImportService.importProductsBatched(resource, options));
+            } catch (Exception e) {
+                ImportSummaryDTO failed = failedSummary(filename, e);
+                failed.setStoreName(csvImportService.extractStoreName(filename));
+                failed.setDateAdded(csvImportService.extractDate(filename));
+                results.add(failed);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Extracts the regular entries of a zip/tar archive (optionally gzip-compressed) into the target directory.
+     * Stops with an error past {@code import.bulk.max-entries} entries or {@code import.bulk.max-uncompressed-bytes}
+     * extracted bytes, counted while copying since the sizes declared by the archive cannot be trusted ("zip bomb").
+     */
+    private void extractArchive(MultipartFile archive, Path targetDir) throws Exception {
+        try (InputStream in = new BufferedInputStream(archive.getInputStream());
+             ArchiveInputStream<? extends ArchiveEntry> entries = openArchive(in)) {
+
+            ArchiveEntry entry;
+            int entryCount = 0;
+            long extractedBytes = 0;
+            while ((entry = entries.getNextEntry()) != null) {
+                if (++entryCount > maxEntries) {
+                    throw new IllegalArgumentException("Archive has more than " + maxEntries + " entries");
+                }
+                if (entry.isDirectory() || !entries.canReadEntryData(entry)) continue;
+
+                // Reject entries that would be written outside the target directory ("zip slip")
+                Path target = targetDir.resolve(entry.getName()).normalize();
+                if (!target.startsWith(targetDir)) {
+                    throw new IllegalArgumentException("Invalid archive entry: " + entry.getName());
+                }
+
+                Files.createDirectories(target.getParent());
+                extractedBytes = copyLimited(entries, target, extractedBytes);
+            }
+        }
+    }
+
+    /**
+     * Copies the current entry to the target file, failing as soon as the archive's extracted total exceeds
+     * {@code import.bulk.max-uncompressed-bytes}.
+     *
+     * @param extractedBytes bytes extracted from the archive before this entry
+     * @return bytes extracted from the archive including this entry
+     */
+    private long copyLimited(InputStream entry, Path target, long extractedBytes) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        try (OutputStream out = Files.newOutputStream(target, StandardOpenOption.CREATE_NEW)) {
+            int read;
+            while ((read = entry.read(buffer)) != -1) {
+                extractedBytes += read;
+                if (extractedBytes > maxUncompressedBytes) {
+                    throw new IllegalArgumentException(
+                            "Archive expands to more than " + maxUncompressedBytes + " bytes");
+                }
+                out.write(buffer, 0, read);
+            }
+        }
+        return extractedBytes;
+    }
+
+    /**
+     * Opens the archive, unwrapping a compression layer (e.g. .tar.gz) if there is one.
+     */
+    private ArchiveInputStream<? extends ArchiveEntry> openArchive(InputStream in) throws Exception {
+        InputStream input = in;
+        try {
+            input = new BufferedInputStream(new CompressorStreamFactory().createCompressorInputStream(in));
+        } catch (CompressorException notCompressed) {
+            // Plain zip or tar
+        }
+        return new ArchiveStreamFactory().createArchiveInputStream(input);
+    }
+
+    /**
+     * Lists the CSV files of a directory tree (any case of the '.csv' extension),
+     * ignoring hidden files (e.g. macOS "._" resource forks).
+     */
+    private List<Path> listCsvFiles(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(p -> !nameOf(p).startsWith("."))
+                    .filter(p -> nameOf(p).toLowerCase(Locale.ROOT).endsWith(".csv"))
+                    .toList();
+        }
+    }
+
+    /**
+     * Resolves a requested directory, making sure it lies inside the configured allowed directory.
+     */
+    private Path resolveAllowedDirectory(String directory) {
+        if (allowedDir == null || allowedDir.isBlank()) {
+            throw new IllegalArgumentException("Directory imports are disabled (import.bulk.allowed-dir is not set)");
+        }
+
+        Path base = Paths.get(allowedDir).toAbsolutePath().normalize();
+        Path dir = base.resolve(directory).toAbsolutePath().normalize();
+
+        if (!dir.startsWith(base) || !Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("Not a directory inside " + base + ": " + directory);
+        }
+        return dir;
+    }
+
+    private BulkImportSummaryDTO buildSummary(List<ImportSummaryDTO> results, long startNanos) {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+        long rows = results.stream().mapToLong(ImportSummaryDTO::getRowsImported).sum();
+
+        results.sort(Comparator.comparing(ImportSummaryDTO::getStoreName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                .thenComparing(ImportSummaryDTO::getDateAdded, Comparator.nullsFirst(Comparator.naturalOrder()))
+                .thenComparing(ImportSummaryDTO::getFileName));
+
+        BulkImportSummaryDTO summary = new BulkImportSummaryDTO();
+        summary.setFiles(results.size());
+        summary.setFailedFiles((int) results.stream().filter(r -> r.getError() != null).count());
+        summary.setRowsImported(rows);
+        summary.setDurationMillis(elapsedNanos / 1_000_000);
+        summary.setRowsPerSecond(round(rows * 1_000_000_000.0 / elapsedNanos));
+        summary.setResults(results);
+        return summary;
+    }
+
+    private ImportSummaryDTO failedSummary(String filename, Exception e) {
+        ImportSummaryDTO summary = new ImportSummaryDTO();
+        summary.setFileName(filename);
+        summary.setError(e.getMessage());
+        return summary;
+    }
+
+    private static String nameOf(Path path) {
+        return path.getFileName().toString();
+    }
+}
@@ -5,19 +5,43 @@ import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
 import com.opencsv.CSVReaderBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
+import priceComparator.dtos.ImportOptions;
+import priceComparator.dtos.ImportSummaryDTO;
+import priceComparator.events.PriceDataChangedEvent;
 import priceComparator.models.Currency;
 import priceComparator.models.Discount;
+import priceComparator.models.ImportJob;
 import priceComparator.models.PackageUnit;
 import priceComparator.models.Product;
 import priceComparator.repositories.DiscountRepository;
 import priceComparator.repositories.ProductRepository;
+import priceComparator.utils.CsvRowReader;
+import priceComparator.utils.MappedCsvReader;
+import priceComparator.utils.OpenCsvRowReader;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static priceComparator.utils.PriceUtils.round;
 
 /**
  * Service responsible for importing product and discount data from CSV files.
@@ -32,6 +56,30 @@ public class CSVImportService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ChunkWriter chunkWriter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Default number of rows committed per transaction by the batched import.
+     */
+    @Value("${import.chunk-size:1000}")
+    private int defaultChunkSize;
+
+    /**
+     * Default number of writer workers used by the batched import.
+     */
+    @Value("${import.writers:1}")
+    private int defaultWriters;
+
+    /**
+     * Upper bound for the writer workers, each of them holds a database connection while writing.
+     */
+    @Value("${import.max-writers:8}")
+    private int maxWriters;
+
     /**
      * Imports product data from a CSV file.
      * Expects columns in the order:
@@ -42,34 +90,22 @@ public class CSVImportService {
         String filename = file.getOriginalFilename();
         String store = extractStoreName(filename);
         LocalDate dateAdded = extractDate(filename);
+        ChangedRows changes = new ChangedRows();
 
-        try (CSVReader reader = new CSVReaderBuilder(
-                new BufferedReader(new InputStreamReader(file.getInputStream())))
-                .withCSVParser(new CSVParserBuilder().withSeparator(';').build())
-                .build()) {
-            String[] line;
+        try (CsvRowReader reader = new OpenCsvRowReader(openReader(file.getResource()))) {
             boolean skipHeader = true;
 
-            while ((line = reader.readNext()) != null) {
+            while (reader.next()) {
                 if (skipHeader) {
                     skipHeader = false;
                     continue;
                 }
 
-                Product product = new Product();
-                product.setProductId(line[0]);
-                product.setName(line[1]);
-                product.setCategory(line[2]);
-                product.setBrand(line[3]);
-                product.setPackageQuantity(Double.parseDouble(line[4]));
-                product.setPackageUnit(PackageUnit.valueOf(line[5]));
-                product.setPrice(Double.parseDouble(line[6]));
-                product.setCurrency(Currency.valueOf(line[7].toUpperCase(Locale.ROOT)));
-                product.setStoreName(store);
-                product.setDateAdded(dateAdded);
-
-                productRepository.save(product);
+                Product product = productRepository.save(toProduct(reader, store, dateAdded));
+                changes.add(product);
             }
+        } finally {
+            publishChange(store, changes);
         }
     }
 
@@ -83,38 +119,371 @@ public class CSVImportService {
         String filename = file.getOriginalFilename();
         String store = extractStoreName(filename);
         LocalDate dateAdded = extractDate(filename);
+        ChangedRows changes = new ChangedRows();
 
-        try (CSVReader reader = new CSVReaderBuilder(
-                new BufferedReader(new InputStreamReader(file.getInputStream())))
-                .withCSVParser(new CSVParserBuilder().withSeparator(';').build())
-                .build()) {
-            String[] line;
+        try (CsvRowReader reader = new OpenCsvRowReader(openReader(file.getResource()))) {
             boolean skipHeader = true;
 
-            while ((line = reader.readNext()) != null) {
+            while (reader.next()) {
                 if (skipHeader) {
                     skipHeader = false;
                     continue;
                 }
 
-                if (line.length < 9) continue; // Basic validation
-
-                Discount discount = new Discount();
-                discount.setProductId(line[0]);
-                discount.setName(line[1]);
-                discount.setBrand(line[2]);
-                discount.setPackageQuantity(Double.parseDouble(line[3]));
-                discount.setPackageUnit(PackageUnit.valueOf(line[4]));
-                discount.setCategory(line[5]);
-                discount.setDateFrom(LocalDate.parse(line[6]));
-                discount.setDateTo(LocalDate.parse(line[7]));
-                discount.setPercentage(Integer.parseInt(line[8]));
-                discount.setStoreName(store);
-                discount.setDateAdded(dateAdded);
+                Discount discount = toDiscount(reader, store, dateAdded);
+                if (discount == null) continue;
 
                 discountRepository.save(discount);
+                changes.add(discount);
+            }
+        } finally {
+            publishChange(store, changes);
+        }
+    }
+
+    /**
+     * Imports product data from a CSV file using chunked, JDBC-batched inserts.
+     * Rows are buffered and committed {@code chunkSize} at a time, each chunk in its own transaction.
+     * With more than one writer, parsing and persisting run as a pipeline (see {@link ImportPipeline}).
+     * In delta mode only new or changed prices are persisted, unchanged rows are counted and skipped.
+     * Same column layout as {@link #importProducts(MultipartFile)}.
+     *
+     * @param file the CSV file (an upload or a file on disk), named like 'store_yyyy-MM-dd.csv'
+     * @param options chunk size, writer parallelism, delta mode and parser (null fields use the configured defaults)
+     * @return a summary of the import, including the throughput
+     */
+    public ImportSummaryDTO importProductsBatched(Resource file, ImportOptions options) throws Exception {
+        String filename = file.getFilename();
+        String store = extractStoreName(filename);
+        LocalDate dateAdded = extractDate(filename);
+
+        if (!options.isDelta()) {
+            return importInChunks(file, store, dateAdded, options, row -> toProduct(row, store, dateAdded));
+        }
+
+        // Delta mode: skip rows that did not change since the latest known entry
+        DeltaFilter filter = new DeltaFilter(productRepository.findLatestByStore(store, dateAdded));
+        ImportSummaryDTO summary = importInChunks(file, store, dateAdded, options,
+                row -> filter.keepIfChanged(toProduct(row, store, dateAdded)));
+
+        summary.setNewRows(filter.newRows);
+        summary.setChangedRows(filter.changedRows);
+        summary.setUnchangedRows(filter.unchangedRows);
+        return summary;
+    }
+
+    /**
+     * Imports discount data from a CSV file using chunked, JDBC-batched inserts.
+     * Rows are buffered and committed {@code chunkSize} at a time, each chunk in its own transaction.
+     * With more than one writer, parsing and persisting run as a pipeline (see {@link ImportPipeline}).
+     * Same column layout as {@link #importDiscounts(MultipartFile)}.
+     *
+     * @param file the CSV file (an upload or a file on disk), named like 'store_yyyy-MM-dd.csv'
+     * @param options chunk size, writer parallelism and parser (null fields use the configured defaults)
+     * @return a summary of the import, including the throughput
+     */
+    public ImportSummaryDTO importDiscountsBatched(Resource file, ImportOptions options) throws Exception {
+        String filename = file.getFilename();
+        String store = extractStoreName(filename);
+        LocalDate dateAdded = extractDate(filename);
+
+        return importInChunks(file, store, dateAdded, options, row -> toDiscount(row, store, dateAdded));
+    }
+
+    /**
+     * Imports the spooled file of an asynchronous import job, continuing after its checkpoint.
+     * Rows are committed {@code job.chunkSize} at a time, each chunk together with the advanced checkpoint
+     * (see {@link ChunkWriter#writeChunk(List, ImportJob)}), so rows before the checkpoint are never imported twice.
+     * Rows that cannot be parsed are skipped and recorded on the job instead of failing the whole import.
+     *
+     * @param job the job to run, its counters are updated in place as chunks are committed
+     * @return true if the whole file was processed, false if the thread was interrupted between two chunks
+     */
+    public boolean importJob(ImportJob job) throws Exception {
+        String store = extractStoreName(job.getFileName());
+        LocalDate dateAdded = extractDate(job.getFileName());
+        ChangedRows changes = new ChangedRows();
+        Function<CsvRowReader, ?> rowMapper = trackChanges(jobRowMapper(job, store, dateAdded), changes);
+
+        ImportOptions options = new ImportOptions();
+        options.setParser(job.getParser());
+
+        long runStart = System.nanoTime();
+        long previousMillis = job.getProcessingMillis();
+        long checkpoint = job.getRowOffset();
+        long row = 0;
+        long rowErrors = 0;
+        String lastRowError = null;
+        List<Object> chunk = new ArrayList<>(job.getChunkSize());
+
+        try (CsvRowReader reader = openRowReader(new FileSystemResource(job.getSpoolPath()), options)) {
+            reader.next(); // Header
+
+            // Rows up to the checkpoint were committed by a previous run
+            while (row < checkpoint && reader.next()) {
+                row++;
+            }
+
+            while (reader.next()) {
+                row++;
+                try {
+                    Object entity = rowMapper.apply(reader);
+                    if (entity != null) chunk.add(entity);
+                } catch (RuntimeException e) {
+                    rowErrors++;
+                    lastRowError = "Row " + row + ": " + e;
+                }
+
+                if (row - checkpoint == job.getChunkSize()) {
+                    commitJobChunk(job, chunk, row, rowErrors, lastRowError, previousMillis, runStart);
+                    checkpoint = row;
+                    rowErrors = 0;
+                    lastRowError = null;
+                    chunk = new ArrayList<>(job.getChunkSize());
+
+                    if (Thread.currentThread().isInterrupted()) return false;
+                }
+            }
+
+            // Commit the last, partially filled chunk
+            commitJobChunk(job, chunk, row, rowErrors, lastRowError, previousMillis, runStart);
+            return true;
+        } finally {
+            publishChange(store, changes);
+        }
+    }
+
+    /**
+     * Advances the job's checkpoint and counters past the chunk and commits both together.
+     */
+    private void commitJobChunk(ImportJob job, List<Object> chunk, long rowOffset, long rowErrors, String lastRowError,
+                                long previousMillis, long runStart) {
+        job.setRowOffset(rowOffset);
+        job.setRowsImported(job.getRowsImported() + chunk.size());
+        job.setRowErrors(job.getRowErrors() + rowErrors);
+        if (lastRowError != null) {
+            job.setLastRowError(StringUtils.truncate(lastRowError, 1000));
+        }
+        job.setProcessingMillis(previousMillis + (System.nanoTime() - runStart) / 1_000_000);
+        job.setUpdatedAt(LocalDateTime.now());
+
+        chunkWriter.writeChunk(chunk, job);
+    }
+
+    /**
+     * Builds the row mapper of a job. Delta jobs compare against the latest committed entries,
+     * which include the chunks committed before an interruption.
+     */
+    private Function<CsvRowReader, ?> jobRowMapper(ImportJob job, String store, LocalDate dateAdded) {
+        if (job.getType() == ImportJob.Type.DISCOUNTS) {
+            return row -> toDiscount(row, store, dateAdded);
+        }
+        if (!job.isDelta()) {
+            return row -> toProduct(row, store, dateAdded);
+        }
+
+        DeltaFilter filter = new DeltaFilter(productRepository.findLatestByStore(store, dateAdded));
+        return row -> filter.keepIfChanged(toProduct(row, store, dateAdded));
+    }
+
+    /**
+     * Wraps a row mapper so that the mapped products / discounts are tracked (names and earliest date).
+     * Rows mapped but not committed (the import failed) are included, listeners only re-check them.
+     */
+    private <T> Function<CsvRowReader, T> trackChanges(Function<CsvRowReader, T> rowMapper, ChangedRows changes) {
+        return row -> {
+            T entity = rowMapper.apply(row);
+            if (entity instanceof Product product) changes.add(product);
+            else if (entity instanceof Discount discount) changes.add(discount);
+            return entity;
+        };
+    }
+
+    /**
+     * Publishes a {@link PriceDataChangedEvent} for the written rows.
+     */
+    private void publishChange(String store, ChangedRows changes) {
+        eventPublisher.publishEvent(new PriceDataChangedEvent(changes.names, store, changes.from));
+    }
+
+    /**
+     * Reads the CSV file, maps every row to an entity and persists it in chunks.
+     * With a single writer the chunks are written on the calling thread, otherwise they are
+     * handed to an {@link ImportPipeline} so parsing and inserts overlap.
+     *
+     * @param file the CSV file
+     * @param store the store name extracted from the file name
+     * @param dateAdded the date extracted from the file name
+     * @param options chunk size and writer parallelism
+     * @param rowMapper converts a CSV row to an entity (returns null for rows that should be skipped)
+     * @return a summary of the import
+     */
+    private <T> ImportSummaryDTO importInChunks(Resource file, String store, LocalDate dateAdded,
+                                                ImportOptions options, Function<CsvRowReader, T> rowMapper) throws Exception {
+        long start = System.nanoTime();
+        int chunkSize = resolveChunkSize(options.getChunkSize());
+        int writers = resolveWriters(options.getWriters());
+        ChangedRows changes = new ChangedRows();
+        Function<CsvRowReader, T> mapper = trackChanges(rowMapper, changes);
+        long rows;
+
+        try {
+            if (writers == 1) {
+                rows = readInChunks(file, options, chunkSize, mapper, chunkWriter::writeChunk);
+            } else {
+                ImportPipeline pipeline = new ImportPipeline(chunkWriter, writers);
+                try {
+                    readInChunks(file, options, chunkSize, mapper, pipeline::submit);
+                    rows = pipeline.finish();
+                } catch (Throwable e) {
+                    pipeline.abort();
+                    throw e;
+                }
+            }
+        } finally {
+            // Chunks committed before a failure are visible too
+            publishChange(store, changes);
+        }
+
+        return buildSummary(file.getFilename(), store, dateAdded, rows, start);
+    }
+
+    /**
+     * Parser stage: reads the CSV rows, maps them to entities and passes full chunks to the sink.
+     *
+     * @return the number of entities produced
+     */
+    private <T> long readInChunks(Resource file, ImportOptions options, int chunkSize,
+                                  Function<CsvRowReader, T> rowMapper, ChunkSink sink) throws Exception {
+        long rows = 0;
+        List<T> chunk = new ArrayList<>(chunkSize);
+
+        try (CsvRowReader reader = openRowReader(file, options)) {
+            boolean skipHeader = true;
+
+            while (reader.next()) {
+                if (skipHeader) {
+                    skipHeader = false;
+                    continue;
+                }
+
+                T entity = rowMapper.apply(reader);
+                if (entity == null) continue;
+
+                chunk.add(entity);
+                rows++;
+                if (chunk.size() == chunkSize) {
+                    sink.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
             }
         }
+
+        // Flush the last, partially filled chunk
+        sink.accept(chunk);
+        return rows;
+    }
+
+    /**
+     * Builds the import summary, computing the duration and throughput from the start timestamp.
+     */
+    private ImportSummaryDTO buildSummary(String filename, String store, LocalDate dateAdded, long rows, long startNanos) {
+        long elapsedNanos = Math.max(1, System.nanoTime() - startNanos);
+
+        ImportSummaryDTO summary = new ImportSummaryDTO();
+        summary.setFileName(filename);
+        summary.setStoreName(store);
+        summary.setDateAdded(dateAdded);
+        summary.setRowsImported(rows);
+        summary.setDurationMillis(elapsedNanos / 1_000_000);
+        summary.setRowsPerSecond(round(rows * 1_000_000_000.0 / elapsedNanos));
+        return summary;
+    }
+
+    /**
+     * Validates the requested chunk size, falling back to the configured default.
+     */
+    public int resolveChunkSize(Integer chunkSize) {
+        int size = (chunkSize != null) ? chunkSize : defaultChunkSize;
+        if (size <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        return size;
+    }
+
+    /**
+     * Validates the requested writer parallelism, falling back to the configured default.
+     */
+    private int resolveWriters(Integer writers) {
+        int count = (writers != null) ? writers : defaultWriters;
+        if (count < 1 || count > maxWriters) {
+            throw new IllegalArgumentException("Writers must be between 1 and " + maxWriters);
+        }
+        return count;
+    }
+
+    /**
+     * Opens a row reader over the given file with the parser selected in the options.
+     * The memory-mapped parser needs a file on disk, uploads are spooled to a temporary file first.
+     */
+    private CsvRowReader openRowReader(Resource file, ImportOptions options) throws IOException {
+        if (options.getParser() == ImportOptions.CsvParser.MAPPED) {
+            return file.isFile()
+                    ? new MappedCsvReader(file.getFile().toPath(), ';')
+                    : MappedCsvReader.spool(file.getInputStream(), ';');
+        }
+        return new OpenCsvRowReader(openReader(file));
+    }
+
+    /**
+     * Opens a ';'-separated CSV reader over the given file.
+     */
+    private CSVReader openReader(Resource file) throws IOException {
+        return new CSVReaderBuilder(
+                new BufferedReader(new InputStreamReader(file.getInputStream())))
+                .withCSVParser(new CSVParserBuilder().withSeparator(';').build())
+                .build();
+    }
+
+    /**
+     * Maps a product CSV row to a {@link Product}.
+     * Columns: product_id, name, category, brand, package_quantity, package_unit, price, currency
+     */
+    private Product toProduct(CsvRowReader row, String store, LocalDate dateAdded) {
+        Product product = new Product();
+        product.setProductId(row.getString(0));
+        product.setName(row.getString(1));
+        product.setCategory(row.getSharedString(2));
+        product.setBrand(row.getSharedString(3));
+        product.setPackageQuantity(row.getDouble(4));
+        product.setPackageUnit(row.getEnum(5, PackageUnit.class, false));
+        product.setPrice(row.getDouble(6));
+        product.setCurrency(row.getEnum(7, Currency.class, true));
+        product.setStoreName(store);
+        product.setDateAdded(dateAdded);
+        return product;
+    }
+
+    /**
+     * Maps a discount CSV row to a {@link Discount}, or returns null if the row is incomplete.
+     * Columns: product_id, name, brand, package_quantity, package_unit, category, from_date, to_date, discount_percentage
+     */
+    private Discount toDiscount(CsvRowReader row, String store, LocalDate dateAdded) {
+        if (row.fieldCount() < 9) return null; // Basic validation
+
+        Discount discount = new Discount();
+        discount.setProductId(row.getString(0));
+        discount.setName(row.getString(1));
+        discount.setBrand(row.getSharedString(2));
+        discount.setPackageQuantity(row.getDouble(3));
+        discount.setPackageUnit(row.getEnum(4, PackageUnit.class, false));
+        discount.setCategory(row.getSharedString(5));
+        discount.setDateFrom(row.getDate(6));
+        discount.setDateTo(row.getDate(7));
+        discount.setPercentage(row.getInt(8));
+        discount.setStoreName(store);
+        discount.setDateAdded(dateAdded);
+        return discount;
     }
 
     /**
@@ -123,7 +492,7 @@ public class CSVImportService {
      * @param filename the name of the file
      * @return the extracted store name
      */
-    private String extractStoreName(String filename) {
+    public String extractStoreName(String filename) {
         return filename.split("_")[0];
     }
 
@@ -133,25 +502,115 @@ public class CSVImportService {
      * @param filename the name of the file
      * @return the extracted date as LocalDate
      */
-    private LocalDate extractDate(String filename) {
+    public LocalDate extractDate(String filename) {
+        // Format: store_yyyy-MM-dd or store_discounts_yyyy-MM-dd
+        String[] parts = nameParts(filename);
         try {
+            return LocalDate.parse(parts[parts.length - 1]);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid filename format. Must be like 'store_yyyy-MM-dd.csv'");
+        }
+    }
+
+    /**
+     * Checks whether the CSV filename denotes a discount file.
+     * Example: `kaufland_discounts_2025-05-08.csv` → true, `kaufland_2025-05-08.csv` → false
+     * @param filename the name of the file
+     * @return true if the file contains discounts
+     * @throws IllegalArgumentException if the name is neither a product nor a discount file name
+     */
+    public boolean isDiscountFile(String filename) {
+        return nameParts(filename).length == 3;
+    }
 
-            String[] parts = filename.replace(".csv", "").split("_");
-            String datePart;
+    /**
+     * Splits a filename into store, optional "discounts" and date, without its '.csv' extension (in any case).
+     * @param filename the name of the file
+     * @return the two or three parts of the name
+     * @throws IllegalArgumentException if the name has another shape, e.g. 'store_other_yyyy-MM-dd.csv'
+     */
+    private String[] nameParts(String filename) {
+        if (filename == null) throw new IllegalArgumentException("Missing filename");
+        String name = filename.toLowerCase(Locale.ROOT).endsWith(".csv")
+                ? filename.substring(0, filename.length() - ".csv".length())
+                : filename;
+        String[] parts = name.split("_");
+        if (parts.length == 2 || (parts.length == 3 && parts[1].equalsIgnoreCase("discounts"))) {
+            return parts;
+        }
+        throw new IllegalArgumentException("Filename format not supported: " + filename
+                + ". Must be like 'store_yyyy-MM-dd.csv' or 'store_discounts_yyyy-MM-dd.csv'");
+    }
 
-            if (parts.length == 2) {
-                // Format: store_yyyy-MM-dd
-                datePart = parts[1];
-            } else if (parts.length == 3) {
-                // Format: store_discounts_yyyy-MM-dd
-                datePart = parts[2];
-            } else {
-                throw new IllegalArgumentException("Filename format not supported");
+    /**
+     * Receives the chunks produced by the parser stage.
+     */
+    @FunctionalInterface
+    private interface ChunkSink {
+        void accept(List<?> chunk) throws Exception;
+    }
+
+    /**
+     * Compares incoming product rows against the latest known entry per productId of the store, in every
+     * persisted column (see {@link PriceTimelineBuilder#repeats}): a row is only skipped if it repeats that entry.
+     * Only used from the parser thread, so the counters need no synchronization.
+     */
+    private static class DeltaFilter {
+
+        private final Map<String, Product> latestByProductId = new HashMap<>();
+
+        private long newRows;
+        private long changedRows;
+        private long unchangedRows;
+
+        DeltaFilter(List<Product> latestProducts) {
+            for (Product product : latestProducts) {
+                latestByProductId.put(product.getProductId(), product);
             }
-            return LocalDate.parse(datePart);
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Invalid filename format. Must be like 'store_yyyy-MM-dd.csv'");
+        }
+
+        /**
+         * @return the product if it is new or any of its columns changed, null if it should be skipped
+         */
+        Product keepIfChanged(Product product) {
+            Product latest = latestByProductId.put(product.getProductId(), product);
+
+            if (latest == null) {
+                newRows++;
+                return product;
+            }
+            if (!PriceTimelineBuilder.repeats(latest, product)) {
+                changedRows++;
+                return product;
+            }
+
+            // Same as the latest observation, keep the older entry
+            latestByProductId.put(product.getProductId(), latest);
+            unchangedRows++;
+            return null;
         }
     }
 
+    /**
+     * Names of the products written by an import and the earliest date whose price may have changed:
+     * the entry date of products, the start of discounts.
+     */
+    private static class ChangedRows {
+
+        private final Set<String> names = new HashSet<>();
+        private LocalDate from;
+
+        void add(Product product) {
+            add(product.getName(), product.getDateAdded());
+        }
+
+        void add(Discount discount) {
+            add(discount.getName(), discount.getDateFrom());
+        }
+
+        private void add(String name, LocalDate date) {
+            names.add(name);
+            if (from == null || date.isBefore(from)) from = date;
+        }
+    }
 }
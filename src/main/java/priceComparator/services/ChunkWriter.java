@@ -0,0 +1,82 @@
+package priceComparator.services;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import priceComparator.models.ImportJob;
+import priceComparator.repositories.ImportJobRepository;
+
+import java.util.List;
+
+/**
+ * Service that persists entities in chunks, each chunk in its own transaction.
+ * Inserts of a chunk are sent to the database as a single JDBC batch and the persistence
+ * context is cleared afterward, so memory usage stays flat regardless of the import size.
+ */
+@Service
+public class ChunkWriter {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    /**
+     * Persists and commits a chunk of new entities.
+     *
+     * @param entities the entities to insert (all of them are expected to be new).
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void writeChunk(List<?> entities) {
+        if (entities.isEmpty()) return;
+
+        persistBatched(entities);
+
+        // Push the batch and detach everything so the next chunk starts with an empty context
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Persists a chunk of new entities and saves the job's checkpoint in the same transaction,
+     * so the checkpoint never points past (or before) what has actually been committed.
+     * The checkpoint is only saved while the job is still owned by {@code checkpoint.ownerNode}; otherwise
+     * the chunk is rolled back, so an instance that lost its lease never imports rows twice with the new owner.
+     *
+     * @param entities the entities to insert (may be empty when every row of the chunk was skipped).
+     * @param checkpoint the job, with its row offset and counters already advanced past this chunk.
+     * @throws IllegalStateException if another instance took the job over
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void writeChunk(List<?> entities, ImportJob checkpoint) {
+        int saved = importJobRepository.updateCheckpoint(checkpoint.getId(), checkpoint.getOwnerNode(),
+                checkpoint.getRowOffset(), checkpoint.getRowsImported(), checkpoint.getRowErrors(),
+                checkpoint.getLastRowError(), checkpoint.getProcessingMillis(), checkpoint.getUpdatedAt());
+        if (saved == 0) {
+            throw new IllegalStateException("Import job " + checkpoint.getId() + " was taken over by another instance");
+        }
+
+        if (!entities.isEmpty()) {
+            persistBatched(entities);
+        }
+
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    /**
+     * Persists the entities, batching the whole chunk into a single round trip.
+     */
+    private void persistBatched(List<?> entities) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(entities.size());
+
+        for (Object entity : entities) {
+            entityManager.persist(entity);
+        }
+    }
+}
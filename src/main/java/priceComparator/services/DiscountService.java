@@ -2,9 +2,12 @@ package priceComparator.services;
 
 import priceComparator.models.Discount;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import priceComparator.events.PriceDataChangedEvent;
 import priceComparator.repositories.DiscountRepository;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service layer for managing business logic related to {@link Discount}.
@@ -16,6 +19,9 @@ public class DiscountService {
     @Autowired
     private DiscountRepository discountRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
 
     /**
      * Retrieves all discounts from the database (active or not).
@@ -33,7 +39,9 @@ public class DiscountService {
      * @return the persisted {@link Discount} entity.
      */
     public Discount saveDiscount(Discount discount){
-        return discountRepository.save(discount);
+        Discount saved = discountRepository.save(discount);
+        eventPublisher.publishEvent(new PriceDataChangedEvent(Set.of(saved.getName()), saved.getStoreName(), saved.getDateFrom()));
+        return saved;
     }
 
     /**
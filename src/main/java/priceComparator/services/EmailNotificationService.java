@@ -4,8 +4,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
+import priceComparator.models.NotificationMessage;
 
-import java.time.LocalDate;
+import java.util.List;
 
 @Service
 public class EmailNotificationService {
@@ -13,15 +14,28 @@ public class EmailNotificationService {
     @Autowired
     private JavaMailSender mailSender;
 
-    public void sendPriceReachedEmail(String to, String productName, LocalDate createdAt, double price) {
-        String subject = "Price Alert Triggered!";
-        String body = String.format("Good news!\n\nThe product " +  productName + ", for which you have created an alert at "  + createdAt + " has dropped to " +  price +" RON.\n\nHappy shopping!");
+    /**
+     * Sends a single email listing every triggered alert of a recipient.
+     *
+     * @param to the recipient
+     * @param messages the recipient's pending notifications, at least one
+     */
+    public void sendPriceReachedEmail(String to, List<NotificationMessage> messages) {
+        String subject = messages.size() == 1 ? "Price Alert Triggered!" : messages.size() + " Price Alerts Triggered!";
+
+        StringBuilder body = new StringBuilder("Good news!\n\n");
+        for (NotificationMessage message : messages) {
+            body.append("The product ").append(message.getProductName())
+                    .append(", for which you have created an alert at ").append(message.getAlertCreatedAt())
+                    .append(" has dropped to ").append(message.getPrice()).append(" RON.\n");
+        }
+        body.append("\nHappy shopping!");
 
         SimpleMailMessage message = new SimpleMailMessage();
         message.setFrom("iuliancosman709@gmail.com");
         message.setTo(to);
         message.setSubject(subject);
-        message.setText(body);
+        message.setText(body.toString());
 
         mailSender.send(message);
     }
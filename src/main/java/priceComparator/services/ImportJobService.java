@@ -0,0 +1,351 @@
+package priceComparator.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+import priceComparator.dtos.ImportJobDTO;
+import priceComparator.dtos.ImportOptions;
+import priceComparator.models.ImportJob;
+import priceComparator.repositories.ImportJobRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static priceComparator.utils.PriceUtils.round;
+
+/**
+ * Service that runs CSV imports as asynchronous jobs.
+ * Uploads are spooled to local disk and a job is returned immediately; a small pool of workers imports
+ * the spooled files in chunks (see {@link CSVImportService#importJob(ImportJob)}). Jobs that were queued
+ * or running when the application stopped are resumed from their checkpoint on the next startup.
+ * With several instances, a job is owned by the instance that spooled its file: the owner renews the leases of
+ * its jobs on a heartbeat and releases them when it stops, and another instance only takes a job over once its
+ * lease expired or was released and if it can read the spooled file (e.g. a shared spool directory, or the same
+ * host after a restart under a new node id). Expired jobs are looked for on every heartbeat, not only on startup.
+ */
+@Service
+public class ImportJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportJobService.class);
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private CSVImportService csvImportService;
+
+    /**
+     * Directory where uploaded files are kept until their job completes.
+     */
+    @Value("${import.jobs.spool-dir:${java.io.tmpdir}/priceComparator-import-jobs}")
+    private String spoolDir;
+
+    /**
+     * Number of jobs imported concurrently.
+     */
+    @Value("${import.jobs.workers:2}")
+    private int workers;
+
+    /**
+     * How long the jobs of an instance stay its own without a heartbeat, must exceed the heartbeat interval.
+     */
+    @Value("${import.jobs.lease-ms:300000}")
+    private long leaseMillis;
+
+    /**
+     * Interval between two heartbeats, which renew this instance's leases and take over expired jobs.
+     */
+    @Value("${import.jobs.heartbeat-ms:60000}")
+    private long heartbeatMillis;
+
+    /**
+     * Identifies this application instance as the owner of its jobs.
+     */
+    @Value("${node-id:#{T(java.lang.management.ManagementFactory).getRuntimeMXBean().getName()}}")
+    private String nodeId;
+
+    /**
+     * States of the jobs that still have to be imported, and are leased by their owner.
+     */
+    private static final Set<ImportJob.Status> PENDING = EnumSet.of(ImportJob.Status.QUEUED, ImportJob.Status.RUNNING);
+
+    private ExecutorService executor;
+
+    /**
+     * Jobs queued on or running in this instance's workers, so that a job is never submitted twice.
+     */
+    private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Runs the heartbeat on its own thread: on the shared scheduler, a long email dispatch or alert check
+     * could delay it past the lease.
+     */
+    private ScheduledExecutorService heartbeat;
+
+    private volatile boolean shuttingDown;
+
+    @PostConstruct
+    public void startWorkers() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "import-job-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "import-job-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(() -> {
+            try {
+                renewLeases();
+            } catch (RuntimeException e) {
+                // Keep the heartbeat running, the next one retries
+                log.error("Import job heartbeat failed", e);
+            }
+        }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Interrupts the running jobs. They stop after their current chunk and stay RUNNING, and their leases are
+     * released so that they are resumed from their checkpoint right away, by another instance or on the next startup.
+     * If a job does not stop in time its lease is kept, and expires.
+     */
+    @PreDestroy
+    public void stopWorkers() throws InterruptedException {
+        shuttingDown = true;
+        heartbeat.shutdownNow();
+        executor.shutdownNow();
+        if (executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            importJobRepository.releaseLeases(nodeId, PENDING);
+        }
+    }
+
+    /**
+     * Resumes the jobs that were queued or running when the application stopped: this instance's own jobs,
+     * and those of instances whose lease expired or was released if their spooled file can be read from here.
+     * Jobs of live instances are left to them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        resumeJobs(true);
+    }
+
+    /**
+     * Heartbeat: keeps the queued and running jobs of this instance its own, then takes over the jobs of
+     * instances that stopped since (e.g. this instance's jobs from before a restart under another node id).
+     */
+    public void renewLeases() {
+        importJobRepository.renewLeases(nodeId, PENDING, leaseUntil(LocalDateTime.now()));
+        resumeJobs(false);
+    }
+
+    /**
+     * Takes over and resumes the pending jobs whose lease expired or was released.
+     *
+     * @param includeOwn whether this instance's own jobs are resumed too, only on startup: afterward they are
+     *                   already queued on or running in its workers
+     */
+    private void resumeJobs(boolean includeOwn) {
+        for (ImportJob job : importJobRepository.findByStatusInOrderByIdAsc(PENDING)) {
+            if (activeJobs.contains(job.getId())) continue;
+
+            boolean spooled = job.getSpoolPath() != null && Files.exists(Paths.get(job.getSpoolPath()));
+            boolean own = job.getOwnerNode() == null || job.getOwnerNode().equals(nodeId);
+            if (own && !includeOwn) continue;
+            // The file of another instance's job may be on its disk, it resumes the job when it restarts
+            if (!spooled && !own) continue;
+
+            LocalDateTime now = LocalDateTime.now();
+            if (importJobRepository.takeOver(job.getId(), PENDING, nodeId, now, leaseUntil(now)) == 0) continue;
+
+            if (spooled) {
+                log.info("Resuming import job {} of {} from row {}", job.getId(), job.getOwnerNode(), job.getRowOffset());
+                start(job.getId());
+            } else {
+                markFailed(job.getId(), "Spooled file is missing, the job cannot be resumed");
+            }
+        }
+    }
+
+    private LocalDateTime leaseUntil(LocalDateTime now) {
+        return now.plus(Duration.ofMillis(leaseMillis));
+    }
+
+    /**
+     * Spools the uploaded file and queues an import job for it.
+     *
+     * @param file the CSV file, named like 'store_yyyy-MM-dd.csv' or 'store_discounts_yyyy-MM-dd.csv'
+     * @param type whether the file contains products or discounts
+     * @param options optional chunkSize, delta (products only) and parser
+     * @return the queued job
+     */
+    public ImportJobDTO submit(MultipartFile file, ImportJob.Type type, ImportOptions options) throws IOException {
+        String filename = file.getOriginalFilename();
+
+        // Fail fast on names the import would reject anyway
+        csvImportService.extractStoreName(filename);
+        csvImportService.extractDate(filename);
+
+        ImportJob job = new ImportJob();
+        job.setType(type);
+        job.setStatus(ImportJob.Status.QUEUED);
+        job.setFileName(filename);
+        job.setChunkSize(csvImportService.resolveChunkSize(options.getChunkSize()));
+        job.setDelta(type == ImportJob.Type.PRODUCTS && options.isDelta());
+        job.setParser(options.getParser());
+        job.setCreatedAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        job.setOwnerNode(nodeId);
+        job.setLeaseUntil(leaseUntil(job.getCreatedAt()));
+        job = importJobRepository.save(job);
+
+        try {
+            Path spoolDirectory = Files.createDirectories(Paths.get(spoolDir));
+            Path spoolFile = spoolDirectory.resolve("job-" + job.getId() + ".csv");
+            file.transferTo(spoolFile);
+            job.setSpoolPath(spoolFile.toString());
+            job = importJobRepository.save(job);
+        } catch (IOException e) {
+            markFailed(job.getId(), "Failed to spool the upload: " + e.getMessage());
+            throw e;
+        }
+
+        start(job.getId());
+        return toDTO(job);
+    }
+
+    /**
+     * Queues a failed job again on this instance, it continues from its last checkpoint.
+     *
+     * @param id the job id
+     * @return the queued job, or empty if there is no such job
+     */
+    public Optional<ImportJobDTO> resume(Long id) {
+        Optional<ImportJob> found = importJobRepository.findById(id);
+        if (found.isEmpty()) return Optional.empty();
+
+        ImportJob job = found.get();
+        if (job.getStatus() != ImportJob.Status.FAILED) {
+            throw new IllegalArgumentException("Only failed jobs can be resumed, job " + id + " is " + job.getStatus());
+        }
+        if (job.getSpoolPath() == null || !Files.exists(Paths.get(job.getSpoolPath()))) {
+            throw new IllegalArgumentException("Spooled file is missing, the job cannot be resumed");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (importJobRepository.requeue(id, ImportJob.Status.FAILED, ImportJob.Status.QUEUED, nodeId, now,
+                leaseUntil(now)) == 0) {
+            throw new IllegalArgumentException("Job " + id + " was resumed in the meantime");
+        }
+
+        start(id);
+        return importJobRepository.findById(id).map(this::toDTO);
+    }
+
+    /**
+     * @param id the job id
+     * @return the job's progress, or empty if there is no such job
+     */
+    public Optional<ImportJobDTO> getJob(Long id) {
+        return importJobRepository.findById(id).map(this::toDTO);
+    }
+
+    /**
+     * Queues the job on the workers, unless it already is.
+     */
+    private void start(Long id) {
+        if (!activeJobs.add(id)) return;
+        executor.submit(() -> {
+            try {
+                runJob(id);
+            } finally {
+                activeJobs.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Worker body: imports the job's file from its checkpoint and records the outcome.
+     * Every update of the job is conditional on this instance still owning it; once another instance took
+     * the job over, the worker stops and leaves the job and its spooled file to it.
+     */
+    private void runJob(Long id) {
+        ImportJob job = importJobRepository.findById(id).orElse(null);
+        if (job == null || job.getStatus() == ImportJob.Status.COMPLETED || !nodeId.equals(job.getOwnerNode())) return;
+
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (importJobRepository.updateStatus(id, nodeId, ImportJob.Status.RUNNING, null, null, now) == 0) return;
+            job.setStatus(ImportJob.Status.RUNNING);
+            job.setUpdatedAt(now);
+
+            if (!csvImportService.importJob(job)) {
+                return; // Interrupted by a shutdown, resumed on the next startup
+            }
+
+            now = LocalDateTime.now();
+            if (importJobRepository.updateStatus(id, nodeId, ImportJob.Status.COMPLETED, null, now, now) == 0) return;
+
+            Files.deleteIfExists(Paths.get(job.getSpoolPath()));
+        } catch (Exception e) {
+            if (shuttingDown) return; // Left RUNNING on purpose
+            markFailed(id, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    /**
+     * Marks the job as failed, unless another instance took it over. Only the status is updated,
+     * so the committed checkpoint is kept.
+     */
+    private void markFailed(Long id, String error) {
+        if (importJobRepository.updateStatus(id, nodeId, ImportJob.Status.FAILED, StringUtils.truncate(error, 1000),
+                null, LocalDateTime.now()) == 0) {
+            log.warn("Import job {} was taken over by another instance, stopped here: {}", id, error);
+        }
+    }
+
+    private ImportJobDTO toDTO(ImportJob job) {
+        ImportJobDTO dto = new ImportJobDTO();
+        dto.setId(job.getId());
+        dto.setType(job.getType());
+        dto.setStatus(job.getStatus());
+        dto.setFileName(job.getFileName());
+        dto.setRowsProcessed(job.getRowOffset());
+        dto.setRowsImported(job.getRowsImported());
+        dto.setRowErrors(job.getRowErrors());
+        dto.setLastRowError(job.getLastRowError());
+        dto.setError(job.getError());
+        dto.setDurationMillis(job.getProcessingMillis());
+        dto.setRowsPerSecond(job.getProcessingMillis() > 0
+                ? round(job.getRowOffset() * 1000.0 / job.getProcessingMillis())
+                : 0);
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setUpdatedAt(job.getUpdatedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        return dto;
+    }
+}
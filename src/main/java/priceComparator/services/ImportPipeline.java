@@ -0,0 +1,128 @@
+package priceComparator.services;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Two-stage import pipeline: the parser (calling thread) submits chunks of entities to a bounded
+ * queue, drained by N writer threads that each persist a chunk in its own transaction.
+ * When the writers fall behind, the queue fills up and {@link #submit(List)} blocks the parser,
+ * so at most {@code 3 * writers + 1} chunks are held in memory regardless of the file size.
+ * A pipeline instance is used for a single import.
+ */
+public class ImportPipeline {
+
+    /**
+     * Marker telling a writer that no more chunks will be submitted.
+     */
+    private static final List<Object> END_OF_INPUT = List.of();
+
+    private final ChunkWriter chunkWriter;
+    private final BlockingQueue<List<?>> queue;
+    private final Thread[] writers;
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    /**
+     * Creates the pipeline and starts its writer threads.
+     *
+     * @param chunkWriter the writer used to persist each chunk
+     * @param writerCount number of writer threads
+     */
+    public ImportPipeline(ChunkWriter chunkWriter, int writerCount) {
+        this.chunkWriter = chunkWriter;
+        this.queue = new ArrayBlockingQueue<>(writerCount * 2);
+        this.writers = new Thread[writerCount];
+
+        for (int i = 0; i < writerCount; i++) {
+            writers[i] = Thread.ofPlatform()
+                    .name("import-writer-" + i)
+                    .daemon(true)
+                    .start(this::drain);
+        }
+    }
+
+    /**
+     * Hands a chunk to the writers, blocking while the queue is full.
+     *
+     * @param chunk the entities to persist (must not be modified afterward)
+     * @throws Exception the first failure raised by a writer, if any (an {@link Error} is rethrown as is)
+     */
+    public void submit(List<?> chunk) throws Exception {
+        rethrowFailure();
+        if (chunk.isEmpty()) return;
+        queue.put(chunk);
+    }
+
+    /**
+     * Signals the end of input and waits for the writers to persist every submitted chunk.
+     *
+     * @return the number of rows written
+     * @throws Exception the first failure raised by a writer, if any (an {@link Error} is rethrown as is)
+     */
+    public long finish() throws Exception {
+        for (int i = 0; i < writers.length; i++) {
+            queue.put(END_OF_INPUT);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        rethrowFailure();
+        return rowsWritten.get();
+    }
+
+    /**
+     * Stops the writers without writing the pending chunks, used when the parser fails.
+     * Returns once every writer has stopped (a chunk being written is committed or rolled back first),
+     * so nothing is written after the import failed.
+     */
+    public void abort() {
+        failure.compareAndSet(null, new IllegalStateException("Import aborted"));
+        queue.clear();
+        for (Thread writer : writers) {
+            writer.interrupt();
+        }
+        for (Thread writer : writers) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writer loop: takes chunks until the end-of-input marker.
+     * Any throwable of a chunk (errors included) is recorded as the failure and the writer keeps going: the
+     * remaining chunks are drained without being written, so neither {@link #submit} nor {@link #finish} can
+     * block on a writer that died.
+     */
+    private void drain() {
+        try {
+            while (true) {
+                List<?> chunk = queue.take();
+                if (chunk == END_OF_INPUT) return;
+                if (failure.get() != null) continue;
+
+                try {
+                    chunkWriter.writeChunk(chunk);
+                    rowsWritten.addAndGet(chunk.size());
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void rethrowFailure() throws Exception {
+        Throwable e = failure.get();
+        if (e instanceof Exception exception) throw exception;
+        if (e instanceof Error error) throw error;
+    }
+}
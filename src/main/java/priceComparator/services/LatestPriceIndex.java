@@ -0,0 +1,416 @@
+package priceComparator.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import priceComparator.dtos.ProductDTO;
+import priceComparator.events.PriceDataChangedEvent;
+import priceComparator.mappers.ProductMapper;
+import priceComparator.models.Discount;
+import priceComparator.models.PackageUnit;
+import priceComparator.models.Product;
+import priceComparator.repositories.DiscountRepository;
+import priceComparator.repositories.ProductRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static priceComparator.utils.PriceUtils.normalizeQuantity;
+import static priceComparator.utils.PriceUtils.normalizeUnit;
+
+/**
+ * In-memory index of the latest {@link Product} per (normalized name, store), joined with the
+ * {@link Discount} active on the index date. The same offers are also indexed per (category, unit) by price
+ * per unit, for substitutions across brands and package sizes.
+ * Lookups read an immutable snapshot and need no database access. The snapshot is rebuilt eagerly when price data
+ * changes (see {@link PriceDataChangedEvent}) and when the date rolls over, then swapped in atomically; lookups
+ * keep reading the previous snapshot while a rebuild runs.
+ * With {@code price-index.enabled=false} nothing is kept in memory and every lookup runs set-based queries instead.
+ */
+@Service
+public class LatestPriceIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(LatestPriceIndex.class);
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private DiscountRepository discountRepository;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    /**
+     * Whether the snapshot is kept in memory (it holds the latest entry of every product of every store).
+     */
+    @Value("${price-index.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Maximum number of names bound to a single IN-list query when the index is disabled.
+     */
+    private static final int NAMES_PER_QUERY = 1000;
+
+    /**
+     * Incremented on every change to products or discounts.
+     */
+    private final AtomicLong modifications = new AtomicLong();
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Serializes rebuilds. Lookups only wait for it when there is no snapshot yet.
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * Searches for the offer with the best (lowest) price for a given name across all stores,
+     * applying the discount active today if there is one.
+     *
+     * @param productName the product name (case-insensitive)
+     * @return a new {@link ProductDTO} for the cheapest offer, or empty if no store sells the product
+     */
+    public Optional<ProductDTO> getLowestPrice(String productName) {
+        return Optional.ofNullable(getLowestPrices(List.of(productName)).get(productName));
+    }
+
+    /**
+     * Resolves the cheapest offer of every given name at once.
+     * Served from the snapshot; when the index is disabled, with one active-discount query and
+     * one IN-list query per {@value #NAMES_PER_QUERY} names.
+     *
+     * @param productNames the product names (case-insensitive, duplicates allowed)
+     * @return the cheapest offer per requested name, in request order; names no store sells are left out
+     */
+    public Map<String, ProductDTO> getLowestPrices(Collection<String> productNames) {
+        Map<String, List<Offer>> offersByName = enabled
+                ? currentSnapshot().offersByName
+                : loadOffers(productNames);
+
+        Map<String, ProductDTO> lowest = new LinkedHashMap<>();
+        for (String productName : productNames) {
+            List<Offer> offers = offersByName.get(normalize(productName));
+            if (offers != null && !lowest.containsKey(productName)) {
+                lowest.put(productName, offers.get(0).toDTO(productMapper));
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Resolves the offers of every store for every given name at once, cheapest first.
+     * Same query cost as {@link #getLowestPrices(Collection)}.
+     *
+     * @param productNames the product names (case-insensitive, duplicates allowed)
+     * @return one new {@link ProductDTO} per store selling the product, per requested name in request order;
+     *         names no store sells are left out
+     */
+    public Map<String, List<ProductDTO>> getOffers(Collection<String> productNames) {
+        Map<String, List<Offer>> offersByName = enabled
+                ? currentSnapshot().offersByName
+                : loadOffers(productNames);
+
+        Map<String, List<ProductDTO>> offers = new LinkedHashMap<>();
+        for (String productName : productNames) {
+            List<Offer> storeOffers = offersByName.get(normalize(productName));
+            if (storeOffers != null && !offers.containsKey(productName)) {
+                offers.put(productName, storeOffers.stream().map(offer -> offer.toDTO(productMapper)).toList());
+            }
+        }
+        return offers;
+    }
+
+    /**
+     * Finds, for every query, the offer with the lowest price per kg / l / piece among the products of a category,
+     * across brands, package sizes and stores. Served from the per-(category, unit) lists of the snapshot, sorted by
+     * unit price, so a query without name filter is a lookup and one with a filter stops at the first match.
+     * When the index is disabled, the latest products of the requested categories are loaded with one query.
+     *
+     * @param queries the category, unit (g / ml are looked up as kg / l) and optional name filter of each item
+     * @return one result per query, in query order; empty if the category has no product sold by that unit
+     */
+    public List<Optional<UnitOffer>> getCheapestPerUnit(List<UnitQuery> queries) {
+        Map<String, List<Offer>> offersByUnit = enabled
+                ? currentSnapshot().offersByUnit
+                : loadOffersByUnit(queries.stream().map(UnitQuery::category).toList());
+
+        List<Optional<UnitOffer>> cheapest = new ArrayList<>(queries.size());
+        for (UnitQuery query : queries) {
+            List<Offer> offers = offersByUnit.getOrDefault(unitKey(query.category(), query.unit()), List.of());
+            String filter = query.nameContains() != null ? normalize(query.nameContains()) : "";
+            cheapest.add(offers.stream()
+                    .filter(offer -> normalize(offer.product().getName()).contains(filter))
+                    .findFirst()
+                    .map(offer -> new UnitOffer(offer.toDTO(productMapper),
+                            normalizeQuantity(offer.product().getPackageUnit(), offer.product().getPackageQuantity()),
+                            normalizeUnit(offer.product().getPackageUnit()), offer.unitPrice())));
+        }
+        return cheapest;
+    }
+
+    /**
+     * Signals that products or discounts were written. The next lookup rebuilds the index, unless a rebuild is
+     * already running, in which case it reads the previous snapshot.
+     */
+    public void markStale() {
+        modifications.incrementAndGet();
+    }
+
+    /**
+     * Rebuilds the index when price data changed. Runs on the publishing thread, after the surrounding
+     * transaction (if any) committed, so the rebuild never misses the change; listeners running after it
+     * (e.g. the asynchronous alert evaluation) see the new prices. Lookups meanwhile read the previous snapshot.
+     * A failed rebuild is logged and leaves the index stale, so the next lookup tries again.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onPriceDataChanged(PriceDataChangedEvent event) {
+        markStale();
+        if (enabled) {
+            tryRebuild();
+        }
+    }
+
+    /**
+     * Builds the initial snapshot so that the first lookups do not pay for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (enabled) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the database and swaps it in atomically.
+     * Concurrent rebuilds are serialized; lookups keep reading the previous snapshot meanwhile.
+     */
+    public void rebuild() {
+        if (!enabled) return;
+
+        rebuildLock.lock();
+        try {
+            long version = modifications.get();
+            LocalDate today = LocalDate.now();
+            Map<String, List<Offer>> offersByName = buildOffers(
+                    productRepository.findLatestPerProductAndStore(), discountRepository.findActiveDiscounts(today));
+
+            snapshot = new Snapshot(today, version, offersByName, buildOffersByUnit(offersByName));
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private void tryRebuild() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Failed to rebuild the latest price index, keeping the previous snapshot", e);
+        }
+    }
+
+    /**
+     * Set-based lookup used when the index is disabled: loads only the offers of the given names.
+     */
+    private Map<String, List<Offer>> loadOffers(Collection<String> productNames) {
+        List<String> names = productNames.stream().map(LatestPriceIndex::normalize).distinct().toList();
+        if (names.isEmpty()) return Map.of();
+
+        List<Product> latestProducts = new ArrayList<>();
+        for (int from = 0; from < names.size(); from += NAMES_PER_QUERY) {
+            List<String> batch = names.subList(from, Math.min(from + NAMES_PER_QUERY, names.size()));
+            latestProducts.addAll(productRepository.findLatestPerProductAndStoreByNameIn(batch));
+        }
+        return buildOffers(latestProducts, discountRepository.findActiveDiscounts(LocalDate.now()));
+    }
+
+    /**
+     * Set-based lookup used when the index is disabled: loads only the offers of the given categories.
+     */
+    private Map<String, List<Offer>> loadOffersByUnit(Collection<String> categories) {
+        List<String> names = categories.stream().map(LatestPriceIndex::normalize).distinct().toList();
+        if (names.isEmpty()) return Map.of();
+
+        return buildOffersByUnit(buildOffers(productRepository.findLatestPerProductAndStoreByCategoryIn(names),
+                discountRepository.findActiveDiscounts(LocalDate.now())));
+    }
+
+    /**
+     * Regroups the offers by (category, normalized unit), cheapest per unit first.
+     * Offers without a usable package quantity are left out.
+     *
+     * @param offersByName the offers grouped by name, see {@link #buildOffers(List, List)}
+     */
+    private Map<String, List<Offer>> buildOffersByUnit(Map<String, List<Offer>> offersByName) {
+        Map<String, List<Offer>> offersByUnit = new HashMap<>();
+        for (List<Offer> offers : offersByName.values()) {
+            for (Offer offer : offers) {
+                if (Double.isFinite(offer.unitPrice())) {
+                    offersByUnit.computeIfAbsent(
+                            unitKey(offer.product().getCategory(), offer.product().getPackageUnit()),
+                            key -> new ArrayList<>()).add(offer);
+                }
+            }
+        }
+        offersByUnit.replaceAll((key, offers) -> {
+            offers.sort(Comparator.comparingDouble(Offer::unitPrice).thenComparingDouble(Offer::finalPrice));
+            return List.copyOf(offers);
+        });
+        return offersByUnit;
+    }
+
+    /**
+     * Joins the latest products with the active discounts and groups the offers by normalized name,
+     * cheapest first.
+     *
+     * @param latestProducts the latest entry per (productId, store)
+     * @param activeDiscounts the discounts active today
+     */
+    private Map<String, List<Offer>> buildOffers(List<Product> latestProducts, List<Discount> activeDiscounts) {
+        Map<String, Discount> discountByProduct = new HashMap<>();
+        for (Discount discount : activeDiscounts) {
+            // We assume one discount active at a time, keep the first
+            discountByProduct.putIfAbsent(discountKey(discount.getProductId(), discount.getStoreName()), discount);
+        }
+
+        // Latest entry per (name, store) among the latest entries per (productId, store)
+        Map<String, Map<String, Product>> latestByName = new HashMap<>();
+        for (Product product : latestProducts) {
+            latestByName.computeIfAbsent(normalize(product.getName()), name -> new TreeMap<>())
+                    .merge(product.getStoreName().toLowerCase(), product, LatestPriceIndex::latest);
+        }
+
+        Map<String, List<Offer>> offersByName = new HashMap<>(latestByName.size() * 2);
+        latestByName.forEach((name, byStore) -> {
+            List<Offer> offers = new ArrayList<>(byStore.size());
+            for (Product product : byStore.values()) {
+                Discount discount = discountByProduct.get(discountKey(product.getProductId(), product.getStoreName()));
+                double finalPrice = finalPrice(product, discount);
+                offers.add(new Offer(product, discount, finalPrice, unitPrice(product, finalPrice)));
+            }
+            // Cheapest first, ties keep the store order
+            offers.sort(Comparator.comparingDouble(Offer::finalPrice));
+            offersByName.put(name, List.copyOf(offers));
+        });
+        return offersByName;
+    }
+
+    /**
+     * Returns the current snapshot. If data changed or the date rolled over, the calling lookup rebuilds it first,
+     * unless another thread is already rebuilding: then the previous snapshot is returned rather than waiting.
+     * Only a missing snapshot makes lookups wait, and only its rebuild failing fails them.
+     */
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && current.isFresh(modifications.get(), LocalDate.now())) {
+            return current;
+        }
+
+        if (current == null) {
+            rebuildLock.lock();
+        } else if (!rebuildLock.tryLock()) {
+            return current;
+        }
+        try {
+            current = snapshot;
+            if (current == null) {
+                rebuild();
+            } else if (!current.isFresh(modifications.get(), LocalDate.now())) {
+                tryRebuild();
+            }
+            return snapshot;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Final price in RON, rounded the same way as the DTO used for comparisons.
+     */
+    private double finalPrice(Product product, Discount discount) {
+        return discount != null
+                ? productMapper.mapToDTOWithDiscount(discount, Optional.of(product)).getDiscountedPrice()
+                : productMapper.mapToDTOWithoutDiscount(product).getDiscountedPrice();
+    }
+
+    /**
+     * Final price per kg / l / piece, infinite if the package quantity is missing or not positive.
+     */
+    private static double unitPrice(Product product, double finalPrice) {
+        Double quantity = product.getPackageQuantity();
+        if (quantity == null || quantity <= 0) return Double.POSITIVE_INFINITY;
+        return finalPrice / normalizeQuantity(product.getPackageUnit(), quantity);
+    }
+
+    private static Product latest(Product a, Product b) {
+        return b.getDateAdded().isAfter(a.getDateAdded()) ? b : a;
+    }
+
+    private static String discountKey(String productId, String store) {
+        return productId + "|" + store.toLowerCase();
+    }
+
+    private static String normalize(String productName) {
+        return productName.trim().toLowerCase();
+    }
+
+    private static String unitKey(String category, PackageUnit unit) {
+        return normalize(category) + "|" + normalizeUnit(unit);
+    }
+
+    /**
+     * A category, the unit its price is compared by and an optional filter on the product name.
+     *
+     * @param category the product category (case-insensitive)
+     * @param unit the unit, g and ml are compared as kg and l
+     * @param nameContains only products whose name contains it (case-insensitive), any product if null
+     */
+    public record UnitQuery(String category, PackageUnit unit, String nameContains) {
+    }
+
+    /**
+     * The cheapest offer per unit found for a {@link UnitQuery}.
+     *
+     * @param product the offer, current discount applied
+     * @param packageQuantity the package quantity in the normalized unit
+     * @param unit the normalized unit (kg, l, buc, ...)
+     * @param unitPrice the final price per normalized unit, in RON
+     */
+    public record UnitOffer(ProductDTO product, double packageQuantity, PackageUnit unit, double unitPrice) {
+    }
+
+    /**
+     * Latest product of a store, the discount active on the snapshot date (or null), the resulting price
+     * and that price per normalized unit.
+     */
+    private record Offer(Product product, Discount discount, double finalPrice, double unitPrice) {
+
+        ProductDTO toDTO(ProductMapper mapper) {
+            return discount != null
+                    ? mapper.mapToDTOWithDiscount(discount, Optional.of(product))
+                    : mapper.mapToDTOWithoutDiscount(product);
+        }
+    }
+
+    /**
+     * Immutable view of the index, valid for one date and one modification count.
+     * The same offers are grouped by normalized name and by (category, unit), the latter sorted by unit price.
+     */
+    private record Snapshot(LocalDate date, long version, Map<String, List<Offer>> offersByName,
+                            Map<String, List<Offer>> offersByUnit) {
+
+        boolean isFresh(long currentVersion, LocalDate today) {
+            return version == currentVersion && date.equals(today);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package priceComparator.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import priceComparator.models.NotificationMessage;
+import priceComparator.models.PriceAlert;
+import priceComparator.repositories.NotificationMessageRepository;
+import priceComparator.repositories.PriceAlertRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent outbound queue of alert notifications.
+ * Triggered alerts are enqueued in the transaction that marks them notified, so neither can be lost without
+ * the other. A dispatcher polls the due messages and sends them on virtual threads: the messages of a recipient
+ * are coalesced into one email, sends are rate limited and failed sends are retried with exponential backoff.
+ * Messages are claimed with a conditional update before being sent, so several instances can share the queue.
+ */
+@Service
+public class NotificationQueueService {
+
+    @Autowired
+    private NotificationMessageRepository messageRepo;
+
+    @Autowired
+    private PriceAlertRepository alertRepo;
+
+    @Autowired
+    private EmailNotificationService emailNotificationService;
+
+    /**
+     * Maximum number of messages picked per dispatch run.
+     */
+    @Value("${notifications.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Maximum number of emails being sent at the same time (SMTP connections).
+     */
+    @Value("${notifications.max-concurrent-sends:4}")
+    private int maxConcurrentSends;
+
+    /**
+     * Maximum number of emails sent per second.
+     */
+    @Value("${notifications.rate-per-second:10}")
+    private double ratePerSecond;
+
+    /**
+     * Delay before the first retry, doubled after every failed attempt.
+     */
+    @Value("${notifications.retry-backoff-ms:30000}")
+    private long retryBackoffMillis;
+
+    /**
+     * Upper bound for the delay between two attempts.
+     */
+    @Value("${notifications.max-retry-backoff-ms:3600000}")
+    private long maxRetryBackoffMillis;
+
+    /**
+     * Attempts after which a message is marked FAILED.
+     */
+    @Value("${notifications.max-attempts:5}")
+    private int maxAttempts;
+
+    /**
+     * How long a dispatcher holds the messages it claimed, must exceed the time a dispatch run takes.
+     */
+    @Value("${notifications.lease-ms:300000}")
+    private long leaseMillis;
+
+    /**
+     * Identifies this application instance in the claims.
+     */
+    @Value("${node-id:#{T(java.lang.management.ManagementFactory).getRuntimeMXBean().getName()}}")
+    private String nodeId;
+
+    /**
+     * Messages a dispatcher may claim once due: pending, or sending but abandoned (the claim expired).
+     */
+    private static final List<NotificationMessage.Status> CLAIMABLE =
+            List.of(NotificationMessage.Status.PENDING, NotificationMessage.Status.SENDING);
+
+    /**
+     * Earliest start of the next send, in System.nanoTime() terms, shared by all senders.
+     */
+    private final AtomicLong nextSendSlot = new AtomicLong(System.nanoTime());
+
+    /**
+     * Marks the alerts notified and enqueues one message per alert, in a single transaction.
+     * An alert is only marked if the worker still holds its lease and nobody notified it yet
+     * (see {@link PriceAlertRepository#markNotified}), so concurrent workers never enqueue it twice.
+     *
+     * @param reached the alerts whose target price was reached, leased by the worker
+     * @param prices the price that reached the target, per alert id
+     * @param leaseOwner the worker holding the lease on the alerts
+     * @return the alerts that were marked notified (and queued)
+     */
+    @Transactional
+    public List<PriceAlert> markNotifiedAndEnqueue(List<PriceAlert> reached, Map<Long, Double> prices,
+                                                   String leaseOwner) {
+        LocalDateTime now = LocalDateTime.now();
+        List<PriceAlert> notified = new ArrayList<>(reached.size());
+        List<NotificationMessage> messages = new ArrayList<>(reached.size());
+
+        for (PriceAlert alert : reached) {
+            if (alertRepo.markNotified(alert.getId(), leaseOwner) == 0) continue;
+            alert.setNotified(true);
+            notified.add(alert);
+
+            NotificationMessage message = new NotificationMessage();
+            message.setStatus(NotificationMessage.Status.PENDING);
+            message.setRecipient(alert.getUserEmail());
+            message.setAlertId(alert.getId());
+            message.setProductName(alert.getProductName());
+            message.setPrice(prices.get(alert.getId()));
+            message.setAlertCreatedAt(alert.getCreatedAt());
+            message.setNextAttemptAt(now);
+            message.setCreatedAt(now);
+            messages.add(message);
+        }
+
+        messageRepo.saveAll(messages);
+        return notified;
+    }
+
+    /**
+     * Sends the due messages on a fixed delay.
+     */
+    @Scheduled(fixedDelayString = "${notifications.poll-interval-ms:5000}")
+    public void dispatchPending() {
+        dispatchDue();
+    }
+
+    /**
+     * Claims the due messages (at most {@code notifications.batch-size}) and sends them, one email per recipient,
+     * waiting for all sends to finish. Runs of an instance are serialized, and messages claimed by another
+     * instance are skipped, so a message is never sent twice.
+     *
+     * @return the number of emails delivered
+     */
+    public synchronized int dispatchDue() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = messageRepo.findDueIds(CLAIMABLE, now, PageRequest.of(0, batchSize));
+        if (dueIds.isEmpty()) return 0;
+
+        messageRepo.claim(dueIds, CLAIMABLE, NotificationMessage.Status.SENDING, nodeId, now,
+                now.plus(Duration.ofMillis(leaseMillis)));
+        List<NotificationMessage> due = messageRepo.findByLeaseOwnerAndIdInOrderByIdAsc(nodeId, dueIds);
+
+        Map<String, List<NotificationMessage>> byRecipient = new LinkedHashMap<>();
+        for (NotificationMessage message : due) {
+            if (message.getStatus() != NotificationMessage.Status.SENDING) continue;
+            byRecipient.computeIfAbsent(message.getRecipient(), recipient -> new ArrayList<>()).add(message);
+        }
+
+        Semaphore connections = new Semaphore(maxConcurrentSends);
+        AtomicInteger delivered = new AtomicInteger();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            byRecipient.forEach((recipient, messages) -> executor.submit(() -> {
+                connections.acquireUninterruptibly();
+                try {
+                    if (send(recipient, messages)) delivered.incrementAndGet();
+                } finally {
+                    connections.release();
+                }
+            }));
+        }
+        return delivered.get();
+    }
+
+    /**
+     * Sends one email for all messages of a recipient and records the outcome on every message.
+     *
+     * @return whether the email was delivered
+     */
+    private boolean send(String recipient, List<NotificationMessage> messages) {
+        boolean delivered = false;
+        try {
+            awaitRateLimit();
+            emailNotificationService.sendPriceReachedEmail(recipient, messages);
+            delivered = true;
+        } catch (MailException e) {
+            recordFailure(messages, e);
+        } catch (InterruptedException e) {
+            // Left SENDING, claimable again when the claim expires
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        if (delivered) {
+            LocalDateTime now = LocalDateTime.now();
+            for (NotificationMessage message : messages) {
+                message.setAttempts(message.getAttempts() + 1);
+                message.setStatus(NotificationMessage.Status.SENT);
+                message.setSentAt(now);
+            }
+        }
+        messageRepo.saveAll(messages);
+        return delivered;
+    }
+
+    /**
+     * Schedules the next attempt after an exponential backoff, or gives up after the maximum number of attempts.
+     */
+    private void recordFailure(List<NotificationMessage> messages, MailException e) {
+        LocalDateTime now = LocalDateTime.now();
+        for (NotificationMessage message : messages) {
+            int attempts = message.getAttempts() + 1;
+            message.setAttempts(attempts);
+            message.setLastError(StringUtils.truncate(e.toString(), 1000));
+
+            if (attempts >= maxAttempts) {
+                message.setStatus(NotificationMessage.Status.FAILED);
+            } else {
+                message.setStatus(NotificationMessage.Status.PENDING);
+                long backoff = Math.min(retryBackoffMillis << Math.min(attempts - 1, 30), maxRetryBackoffMillis);
+                message.setNextAttemptAt(now.plus(Duration.ofMillis(backoff)));
+            }
+        }
+    }
+
+    /**
+     * Waits for the next send slot; slots are spaced 1 / {@code notifications.rate-per-second} seconds apart.
+     */
+    private void awaitRateLimit() throws InterruptedException {
+        long interval = (long) (1_000_000_000 / ratePerSecond);
+        long now = System.nanoTime();
+        long slot = Math.max(nextSendSlot.getAndAccumulate(now, (next, time) -> Math.max(next, time) + interval), now);
+        if (slot > now) {
+            Thread.sleep(Duration.ofNanos(slot - now));
+        }
+    }
+}
@@ -1,21 +1,68 @@
 package priceComparator.services;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import priceComparator.dtos.BatchBasketResultDTO;
+import priceComparator.dtos.ConstrainedBasketDTO;
+import priceComparator.dtos.ConstrainedBasketRequest;
 import priceComparator.dtos.ProductDTO;
+import priceComparator.dtos.SubstituteDTO;
+import priceComparator.dtos.SubstitutionBasketDTO;
+import priceComparator.dtos.SubstitutionBasketRequest;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
+import static priceComparator.utils.PriceUtils.normalizeQuantity;
+import static priceComparator.utils.PriceUtils.round;
+
 @Service
 public class OptimizeBasketService {
 
     @Autowired
     PriceEvaluatorService priceEvaluatorService;
 
+    /**
+     * Default time budget of the constrained optimization.
+     */
+    @Value("${basket.optimizer.time-budget-ms:200}")
+    private long defaultTimeBudgetMillis;
+
+    /**
+     * Upper bound for the time budget a request can ask for.
+     */
+    @Value("${basket.optimizer.max-time-budget-ms:2000}")
+    private long maxTimeBudgetMillis;
+
+    /**
+     * Pool evaluating the baskets of all batches ({@code basket.batch.parallelism} threads),
+     * see {@link priceComparator.config.ExecutorConfig}.
+     */
+    @Autowired
+    @Qualifier("basketBatchExecutor")
+    private ExecutorService batchExecutor;
+
+    /**
+     * Baskets submitted to the pool and not yet written, summed over all concurrent batches.
+     */
+    @Value("${basket.batch.max-in-flight:#{4 * T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int maxInFlight;
+
+    /**
+     * One permit per basket in flight, so concurrent batches never queue more than {@code maxInFlight} baskets.
+     */
+    private Semaphore inFlightPermits;
+
+    @PostConstruct
+    public void createPermits() {
+        inFlightPermits = new Semaphore(maxInFlight, true);
+    }
+
     /**
      * Given a list of product names, finds the most cost-effective option (per product)
      * by evaluating the latest product price from each store and applying any active discount.
@@ -31,10 +78,11 @@ public class OptimizeBasketService {
     public List<ProductDTO> getOptimizedProductList(List<String> productNames) {
 
         List<ProductDTO> optimizedList = new ArrayList<>();
+        Map<String, ProductDTO> lowestPrices = priceEvaluatorService.getLowestPrices(productNames);
 
         for (String productName : productNames) {
-            Optional<ProductDTO> best = priceEvaluatorService.getProductWithLowestPrice(productName);
-            best.ifPresent(optimizedList::add);
+            ProductDTO best = lowestPrices.get(productName);
+            if (best != null) optimizedList.add(best);
         }
 
         return optimizedList;
@@ -57,4 +105,243 @@ public class OptimizeBasketService {
         return optimizedList.stream()
                 .collect(Collectors.groupingBy(ProductDTO::getStoreName));
     }
+
+    /**
+     * Optimizes a basket by price per unit instead of by product name: every item (e.g. 2 l of "lactate" named
+     * "lapte") is satisfied by the product of its category with the lowest price per kg / l / piece, in any store,
+     * whatever its brand or package size. Enough packages are bought to cover the requested quantity.
+     * Substitutes come from the per-category unit-price index, one lookup per item.
+     *
+     * @param request the items, each with a category, a unit and optionally a name filter and a quantity
+     * @return the chosen products grouped by store, the items nothing was found for and the total cost
+     */
+    public SubstitutionBasketDTO getSubstitutionBasket(SubstitutionBasketRequest request) {
+        List<SubstitutionBasketRequest.Item> items = Optional.ofNullable(request.getItems()).orElse(List.of());
+        for (SubstitutionBasketRequest.Item item : items) {
+            if (item.getCategory() == null || item.getUnit() == null) {
+                throw new IllegalArgumentException("Every item needs a category and a unit");
+            }
+            if (item.getQuantity() != null && item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Quantity must be positive");
+            }
+        }
+
+        List<Optional<LatestPriceIndex.UnitOffer>> offers = priceEvaluatorService.getCheapestPerUnit(items.stream()
+                .map(item -> new LatestPriceIndex.UnitQuery(item.getCategory(), item.getUnit(), item.getName()))
+                .toList());
+
+        Map<String, List<SubstituteDTO>> byStore = new LinkedHashMap<>();
+        List<SubstitutionBasketRequest.Item> unavailable = new ArrayList<>();
+        double totalCost = 0;
+        for (int i = 0; i < items.size(); i++) {
+            SubstitutionBasketRequest.Item item = items.get(i);
+            if (offers.get(i).isEmpty()) {
+                unavailable.add(item);
+                continue;
+            }
+            LatestPriceIndex.UnitOffer offer = offers.get(i).get();
+
+            int packages = 1;
+            if (item.getQuantity() != null) {
+                double needed = normalizeQuantity(item.getUnit(), item.getQuantity());
+                // The epsilon keeps e.g. 2 l of 0.5 l packages at 4 despite floating point error
+                packages = (int) Math.ceil(needed / offer.packageQuantity() - 1e-9);
+            }
+
+            SubstituteDTO substitute = new SubstituteDTO();
+            substitute.setRequested(item);
+            substitute.setProduct(offer.product());
+            substitute.setPackages(packages);
+            substitute.setUnitPrice(round(offer.unitPrice()));
+            substitute.setUnit(offer.unit());
+            substitute.setCost(round(packages * offer.product().getDiscountedPrice()));
+            totalCost += substitute.getCost();
+
+            byStore.computeIfAbsent(offer.product().getStoreName(), store -> new ArrayList<>()).add(substitute);
+        }
+
+        SubstitutionBasketDTO basket = new SubstitutionBasketDTO();
+        basket.setByStore(byStore);
+        basket.setUnavailable(unavailable);
+        basket.setTotalCost(round(totalCost));
+        return basket;
+    }
+
+    /**
+     * Finds the cheapest way to buy a basket when visiting a store has a cost and/or the number of stores is limited.
+     * Unlike {@link #getOptimizedBasketGroupedByStore(List)}, an item may be bought in a store that is not the
+     * cheapest for it, if that saves a visit. Builds the item x store price matrix (current discounts applied)
+     * and searches it with a {@link StoreAssignmentSolver}.
+     *
+     * @param request the items, visit cost, maximum number of stores and time budget
+     * @return the visited stores with their items and the cost breakdown
+     */
+    public ConstrainedBasketDTO getConstrainedBasket(ConstrainedBasketRequest request) {
+        long start = System.nanoTime();
+        Map<String, Integer> quantities = quantities(request);
+        return optimize(request, quantities, priceEvaluatorService.getOffersPerStore(quantities.keySet()), start);
+    }
+
+    /**
+     * Optimizes many baskets, e.g. a partner's nightly run, writing each result to the sink as soon as it is ready.
+     * The product names of all baskets are deduplicated and their offers resolved in a single lookup, then the
+     * baskets are evaluated in parallel on a pool shared by all batches ({@code basket.batch.parallelism} threads).
+     * Results arrive in completion order, so every result carries the position of its basket in the request.
+     * At most {@code basket.batch.max-in-flight} baskets are in flight, over all concurrent batches; finished
+     * results are handed to the sink and not kept.
+     * A basket that cannot be optimized (e.g. an invalid store limit) yields a result with an error, the other
+     * baskets are not affected.
+     *
+     * @param baskets the baskets, each with its own visit cost, store limit and time budget
+     * @param sink receives the results, always from the calling thread
+     * @throws IOException if the sink fails (e.g. the client went away), the remaining baskets are cancelled
+     */
+    public void optimizeBaskets(List<ConstrainedBasketRequest> baskets, BasketResultSink sink) throws IOException {
+        Set<String> names = new LinkedHashSet<>();
+        baskets.forEach(basket -> names.addAll(Optional.ofNullable(basket.getItems()).orElse(List.of())));
+        Map<String, List<ProductDTO>> offers = priceEvaluatorService.getOffersPerStore(names);
+
+        CompletionService<BatchBasketResultDTO> completion = new ExecutorCompletionService<>(batchExecutor);
+        Set<Future<BatchBasketResultDTO>> pending = new HashSet<>();
+        try {
+            int submitted = 0;
+            for (int written = 0; written < baskets.size(); written++) {
+                while (submitted < baskets.size() && submitted - written < maxInFlight) {
+                    // Wait for a permit only with nothing in flight, otherwise write a result first: a batch
+                    // waiting while holding permits could block the others
+                    if (submitted == written) {
+                        inFlightPermits.acquire();
+                    } else if (!inFlightPermits.tryAcquire()) {
+                        break;
+                    }
+                    int index = submitted++;
+                    pending.add(completion.submit(() -> evaluate(index, baskets.get(index), offers)));
+                }
+                Future<BatchBasketResultDTO> done = completion.take();
+                pending.remove(done);
+                inFlightPermits.release();
+                sink.accept(done.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while optimizing baskets", e);
+        } catch (ExecutionException e) {
+            // evaluate() reports basket errors in the result, anything else is unexpected
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            // The pool is shared: only this batch's remaining baskets are cancelled
+            pending.forEach(future -> future.cancel(true));
+            inFlightPermits.release(pending.size());
+        }
+    }
+
+    /**
+     * Receives the results of {@link #optimizeBaskets(List, BasketResultSink)}.
+     */
+    @FunctionalInterface
+    public interface BasketResultSink {
+        void accept(BatchBasketResultDTO result) throws IOException;
+    }
+
+    private BatchBasketResultDTO evaluate(int index, ConstrainedBasketRequest request,
+                                          Map<String, List<ProductDTO>> allOffers) {
+        long start = System.nanoTime();
+        BatchBasketResultDTO result = new BatchBasketResultDTO();
+        result.setIndex(index);
+        result.setId(request.getId());
+        try {
+            Map<String, Integer> quantities = quantities(request);
+            Map<String, List<ProductDTO>> offers = new LinkedHashMap<>();
+            for (String item : quantities.keySet()) {
+                List<ProductDTO> itemOffers = allOffers.get(item);
+                if (itemOffers != null) offers.put(item, itemOffers);
+            }
+            result.setBasket(optimize(request, quantities, offers, start));
+        } catch (IllegalArgumentException e) {
+            result.setError(e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Distinct items with their quantities, in basket order.
+     */
+    private Map<String, Integer> quantities(ConstrainedBasketRequest request) {
+        Map<String, Integer> quantities = new LinkedHashMap<>();
+        for (String item : Optional.ofNullable(request.getItems()).orElse(List.of())) {
+            quantities.merge(item, 1, Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Builds the item x store price matrix of the basket and searches it.
+     *
+     * @param offers the offers per store of the basket items, items without offers are reported as unavailable
+     * @param start when the optimization started, for the elapsed time
+     */
+    private ConstrainedBasketDTO optimize(ConstrainedBasketRequest request, Map<String, Integer> quantities,
+                                          Map<String, List<ProductDTO>> offers, long start) {
+        double visitCost = request.getVisitCost() != null ? request.getVisitCost() : 0;
+        if (visitCost < 0) {
+            throw new IllegalArgumentException("Visit cost must not be negative");
+        }
+        if (request.getMaxStores() != null && request.getMaxStores() < 1) {
+            throw new IllegalArgumentException("Max stores must be at least 1");
+        }
+        long budgetMillis = Math.min(
+                request.getTimeBudgetMillis() != null ? request.getTimeBudgetMillis() : defaultTimeBudgetMillis,
+                maxTimeBudgetMillis);
+
+        List<String> items = new ArrayList<>(offers.keySet());
+        List<String> unavailable = quantities.keySet().stream().filter(item -> !offers.containsKey(item)).toList();
+
+        // Price matrix: one row per available item, one column per store
+        Map<String, Integer> storeColumns = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        offers.values().forEach(storeOffers -> storeOffers.forEach(
+                offer -> storeColumns.putIfAbsent(offer.getStoreName(), storeColumns.size())));
+        List<String> stores = new ArrayList<>(storeColumns.keySet());
+        stores.sort(Comparator.comparingInt(storeColumns::get));
+
+        double[][] prices = new double[items.size()][stores.size()];
+        ProductDTO[][] matrix = new ProductDTO[items.size()][stores.size()];
+        int[] itemQuantities = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            Arrays.fill(prices[i], Double.POSITIVE_INFINITY);
+            for (ProductDTO offer : offers.get(items.get(i))) {
+                int column = storeColumns.get(offer.getStoreName());
+                prices[i][column] = offer.getDiscountedPrice();
+                matrix[i][column] = offer;
+            }
+            itemQuantities[i] = quantities.get(items.get(i));
+        }
+
+        int maxStores = request.getMaxStores() != null ? request.getMaxStores() : Math.max(stores.size(), 1);
+        StoreAssignmentSolver.Solution solution = new StoreAssignmentSolver(prices, itemQuantities, visitCost, maxStores)
+                .solve(budgetMillis * 1_000_000);
+        if (solution == null) {
+            throw new IllegalArgumentException("No combination of " + maxStores + " store(s) sells every item");
+        }
+
+        Map<String, List<ProductDTO>> byStore = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            int store = solution.assignment()[i];
+            List<ProductDTO> storeItems = byStore.computeIfAbsent(matrix[i][store].getStoreName(), name -> new ArrayList<>());
+            for (int unit = 0; unit < itemQuantities[i]; unit++) {
+                storeItems.add(matrix[i][store]);
+            }
+        }
+
+        ConstrainedBasketDTO basket = new ConstrainedBasketDTO();
+        basket.setByStore(byStore);
+        basket.setUnavailable(unavailable);
+        basket.setItemsCost(round(solution.itemsCost()));
+        basket.setVisitCost(round(visitCost * solution.stores().length));
+        basket.setTotalCost(round(solution.totalCost()));
+        basket.setStoresVisited(solution.stores().length);
+        basket.setOptimal(solution.optimal());
+        basket.setNodesExplored(solution.nodesExplored());
+        basket.setElapsedMillis((System.nanoTime() - start) / 1_000_000);
+        return basket;
+    }
 }
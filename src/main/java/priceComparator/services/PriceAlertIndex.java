@@ -0,0 +1,173 @@
+package priceComparator.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import priceComparator.models.PriceAlert;
+import priceComparator.repositories.PriceAlertRepository;
+
+import java.util.*;
+
+/**
+ * In-memory index of the {@link PriceAlert} entries not yet notified, per normalized product name,
+ * with their target prices in sorted order. Once the lowest price of a product is known, the alerts it
+ * reaches ({@code targetPrice >= price}) are a range of the sorted map: O(log n + k) instead of a scan.
+ * Loaded from the {@link PriceAlertRepository} on startup and kept in sync by {@link PriceAlertService}
+ * when an alert is created or notified. Alerts created or notified by other instances are picked up per product
+ * by {@link #refresh(Collection)}, and all at once by the daily {@link #reload()}.
+ */
+@Service
+public class PriceAlertIndex {
+
+    @Autowired
+    private PriceAlertRepository alertRepo;
+
+    /**
+     * Normalized product name -> target price -> ids of the alerts with that target.
+     */
+    private final Map<String, NavigableMap<Double, List<Long>>> alertsByName = new HashMap<>();
+
+    private boolean loaded;
+
+    /**
+     * Alerts loaded per query when (re)loading the index.
+     */
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * Loads the index so that the first check does not pay for it.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        ensureLoaded();
+    }
+
+    /**
+     * Reloads the index from the database, e.g. after alerts were changed outside the service.
+     */
+    public synchronized void reload() {
+        alertsByName.clear();
+
+        // Keyset-paged, so the entities of a single page are in memory at a time
+        long afterId = 0;
+        List<PriceAlert> page;
+        do {
+            page = alertRepo.findByNotifiedFalseAndIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, PAGE_SIZE));
+            page.forEach(this::put);
+            if (!page.isEmpty()) afterId = page.get(page.size() - 1).getId();
+        } while (page.size() == PAGE_SIZE);
+        loaded = true;
+    }
+
+    /**
+     * Replaces the alerts of the given products with those not yet notified in the database, one query per
+     * {@value #PAGE_SIZE} names. Used before checking the products changed by an import, so that alerts created
+     * (or notified) on another instance since the last reload are taken into account.
+     *
+     * @param productNames product names (case-insensitive)
+     */
+    public void refresh(Collection<String> productNames) {
+        List<String> names = productNames.stream().map(PriceAlertIndex::normalize).distinct().toList();
+        List<PriceAlert> alerts = new ArrayList<>();
+        for (int from = 0; from < names.size(); from += PAGE_SIZE) {
+            alerts.addAll(alertRepo.findByNotifiedFalseAndProductNameIn(
+                    names.subList(from, Math.min(from + PAGE_SIZE, names.size()))));
+        }
+
+        synchronized (this) {
+            ensureLoaded();
+            names.forEach(alertsByName::remove);
+            alerts.forEach(this::put);
+        }
+    }
+
+    /**
+     * Adds an alert that was just saved (it must have an id and not be notified).
+     */
+    public synchronized void add(PriceAlert alert) {
+        ensureLoaded();
+        put(alert);
+    }
+
+    /**
+     * Adds alerts that were just saved, e.g. by a bulk creation (they must have an id and not be notified).
+     */
+    public synchronized void addAll(Collection<PriceAlert> alerts) {
+        ensureLoaded();
+        alerts.forEach(this::put);
+    }
+
+    /**
+     * Removes alerts that were notified.
+     */
+    public synchronized void removeAll(Collection<PriceAlert> alerts) {
+        ensureLoaded();
+        for (PriceAlert alert : alerts) {
+            String name = normalize(alert.getProductName());
+            NavigableMap<Double, List<Long>> byTarget = alertsByName.get(name);
+            if (byTarget == null) continue;
+
+            List<Long> ids = byTarget.get(alert.getTargetPrice());
+            if (ids == null) continue;
+            ids.remove(alert.getId());
+            if (ids.isEmpty()) byTarget.remove(alert.getTargetPrice());
+            if (byTarget.isEmpty()) alertsByName.remove(name);
+        }
+    }
+
+    /**
+     * Returns the normalized names of the products watched by at least one alert.
+     */
+    public synchronized Set<String> watchedNames() {
+        ensureLoaded();
+        return new HashSet<>(alertsByName.keySet());
+    }
+
+    /**
+     * Keeps the given names that are watched by at least one alert, normalized.
+     *
+     * @param productNames product names (case-insensitive)
+     */
+    public synchronized Set<String> watchedNames(Collection<String> productNames) {
+        ensureLoaded();
+        Set<String> watched = new HashSet<>();
+        for (String productName : productNames) {
+            String name = normalize(productName);
+            if (alertsByName.containsKey(name)) watched.add(name);
+        }
+        return watched;
+    }
+
+    /**
+     * Collects the alerts of a product whose target price the given price reached.
+     *
+     * @param productName the product name (case-insensitive)
+     * @param price the current lowest price of the product
+     * @return the ids of the alerts with {@code targetPrice >= price}
+     */
+    public synchronized List<Long> alertsReachedBy(String productName, double price) {
+        ensureLoaded();
+        NavigableMap<Double, List<Long>> byTarget = alertsByName.get(normalize(productName));
+        if (byTarget == null) return List.of();
+
+        List<Long> reached = new ArrayList<>();
+        byTarget.tailMap(price, true).values().forEach(reached::addAll);
+        return reached;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) reload();
+    }
+
+    private void put(PriceAlert alert) {
+        alertsByName.computeIfAbsent(normalize(alert.getProductName()), name -> new TreeMap<>())
+                .computeIfAbsent(alert.getTargetPrice(), target -> new ArrayList<>(1))
+                .add(alert.getId());
+    }
+
+    private static String normalize(String productName) {
+        return productName.trim().toLowerCase();
+    }
+}
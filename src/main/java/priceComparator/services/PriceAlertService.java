@@ -1,19 +1,49 @@
 package priceComparator.services;
 
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReaderBuilder;
+import priceComparator.dtos.AlertCheckSummaryDTO;
+import priceComparator.dtos.AlertRequest;
+import priceComparator.dtos.BulkAlertResultDTO;
 import priceComparator.dtos.ProductDTO;
+import priceComparator.models.AlertCheckRun;
 import priceComparator.models.PriceAlert;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import priceComparator.events.PriceDataChangedEvent;
+import priceComparator.repositories.AlertCheckRunRepository;
 import priceComparator.repositories.PriceAlertRepository;
+import priceComparator.repositories.ProductRepository;
+import priceComparator.utils.CsvRowReader;
+import priceComparator.utils.OpenCsvRowReader;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Optional;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static priceComparator.utils.PriceUtils.round;
 
 /**
  * Service handling business logic related to {@link PriceAlert}.
  * Responsible for creating, managing, and triggering price alerts.
+ * Several application instances can check alerts at the same time: alerts are claimed in chunks with a
+ * lease (see {@link PriceAlertRepository#claim}) before being checked, so the work is split without overlap.
  */
 @Service
 public class PriceAlertService {
@@ -21,43 +51,268 @@ public class PriceAlertService {
     @Autowired
     private PriceAlertRepository alertRepo;
 
+    @Autowired
+    private AlertCheckRunRepository checkRunRepo;
+
     @Autowired
     private PriceEvaluatorService priceEvaluatorService;
 
-    @Autowired(required = false)
-    private EmailNotificationService emailNotificationService;
+    @Autowired
+    private PriceAlertIndex alertIndex;
+
+    @Autowired
+    private NotificationQueueService notificationQueue;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private ChunkWriter chunkWriter;
+
+    /**
+     * Alerts inserted per transaction (one JDBC batch) by the bulk creation.
+     */
+    @Value("${alerts.bulk.chunk-size:1000}")
+    private int bulkChunkSize;
+
+    /**
+     * Alerts claimed and checked per chunk by the full check.
+     */
+    @Value("${alerts.check.chunk-size:500}")
+    private int chunkSize;
+
+    /**
+     * Threads of this instance claiming chunks during the full check.
+     */
+    @Value("${alerts.check.workers:2}")
+    private int workers;
+
+    /**
+     * How long a worker holds the alerts it claimed, must exceed the time a chunk takes.
+     * Also how long a check run outlives its last renewal (see {@link AlertCheckRun}).
+     */
+    @Value("${alerts.check.lease-ms:300000}")
+    private long leaseMillis;
+
+    /**
+     * Identifies this application instance in the leases.
+     */
+    @Value("${node-id:#{T(java.lang.management.ManagementFactory).getRuntimeMXBean().getName()}}")
+    private String nodeId;
+
+    /**
+     * Product names validated per catalog query by the bulk creation.
+     */
+    private static final int NAMES_PER_QUERY = 1000;
+
+    /**
+     * Progress of the running (or last) full check.
+     */
+    private volatile CheckProgress progress;
 
     /**
      * Checks all {@link PriceAlert} entries that have not been notified.
      * If the current price (with any active discount) is less than or equal to the user's target price,
-     * the alert is marked as notified and an email is sent.
+     * the alert is marked as notified and an email is queued.
+     * Alerts are normally checked when their product changes (see {@link #onPriceDataChanged}),
+     * this full scan is the daily fallback. It reloads the {@link PriceAlertIndex} first, picking up
+     * alerts changed outside this service.
+     * <p>
+     * {@code alerts.check.workers} threads claim keyset-paged chunks of alerts until none is left. Instances
+     * share the scan through the persisted {@link AlertCheckRun}: an instance joins the run still in progress
+     * on another instance, or starts a new one, and skips the alerts checked since the run started, as well as
+     * alerts leased by another worker.
+     *
+     * @return the progress summary of this instance's share of the check
+     */
+    public AlertCheckSummaryDTO checkAndTriggerAlerts() {
+        CheckProgress run = new CheckProgress();
+        progress = run;
+        alertIndex.reload();
+
+        LocalDateTime scanStart = joinCheckRun();
+        run.runStartedAt = scanStart;
+        try (ExecutorService executor = Executors.newFixedThreadPool(workers)) {
+            List<Future<?>> results = new ArrayList<>();
+            for (int worker = 0; worker < workers; worker++) {
+                String owner = nodeId + "#" + worker;
+                results.add(executor.submit(() -> scan(owner, scanStart, run)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Alert check failed", e.getCause());
+        } finally {
+            checkRunRepo.leave(AlertCheckRun.CURRENT, scanStart);
+            run.finish();
+        }
+        return run.toSummary(nodeId);
+    }
+
+    /**
+     * Joins the check run in progress, or starts a new one if there is none (see {@link AlertCheckRun}).
+     *
+     * @return the start of the run, which identifies it
+     */
+    private LocalDateTime joinCheckRun() {
+        if (!checkRunRepo.existsById(AlertCheckRun.CURRENT)) {
+            AlertCheckRun row = new AlertCheckRun();
+            row.setId(AlertCheckRun.CURRENT);
+            try {
+                checkRunRepo.save(row);
+            } catch (DataIntegrityViolationException e) {
+                // Created by another instance in the meantime
+            }
+        }
+
+        while (true) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime leaseUntil = now.plus(Duration.ofMillis(leaseMillis));
+            if (checkRunRepo.join(AlertCheckRun.CURRENT, now, leaseUntil) == 1
+                    || checkRunRepo.start(AlertCheckRun.CURRENT, now, leaseUntil) == 1) {
+                // Read back rather than reuse now, the database may store it with less precision
+                return checkRunRepo.findById(AlertCheckRun.CURRENT).orElseThrow().getStartedAt();
+            }
+            // Another instance started a run between the two updates: join it
+        }
+    }
+
+    /**
+     * Returns the progress of the running full check of this instance, or of the last one.
+     */
+    public Optional<AlertCheckSummaryDTO> getCheckProgress() {
+        CheckProgress run = progress;
+        return Optional.ofNullable(run).map(current -> current.toSummary(nodeId));
+    }
+
+    /**
+     * Checks only the {@link PriceAlert} entries, not yet notified, that watch one of the given products.
+     *
+     * @param productNames the names of the products whose price may have changed (case-insensitive)
      * @return a list of the {@link PriceAlert} entries that were triggered.
      */
-    public List<PriceAlert> checkAndTriggerAlerts() {
-        List<PriceAlert> alertsToCheck = alertRepo.findByNotifiedFalse();
-        List<PriceAlert> triggered = new ArrayList<>();
-
-        for (PriceAlert alert : alertsToCheck) {
-            Optional<ProductDTO> bestPrice = priceEvaluatorService.getProductWithLowestPrice(alert.getProductName());
-
-            if (bestPrice.isPresent() && bestPrice.get().getDiscountedPrice() <= alert.getTargetPrice()) {
-                alert.setNotified(true);
-                triggered.add(alert);
-
-                // Send email if service is available
-                if (emailNotificationService != null) {
-                    emailNotificationService.sendPriceReachedEmail(
-                            alert.getUserEmail(),
-                            alert.getProductName(),
-                            alert.getCreatedAt(),
-                            bestPrice.get().getDiscountedPrice()
-                    );
+    public List<PriceAlert> checkAndTriggerAlerts(Collection<String> productNames) {
+        // The alerts of these products may have been created on another instance since the index was loaded
+        alertIndex.refresh(productNames);
+
+        // Resolve every watched product at once instead of one lookup per alert
+        Map<String, ProductDTO> lowestPrices = priceEvaluatorService.getLowestPrices(
+                alertIndex.watchedNames(productNames));
+
+        Map<Long, Double> reachedPrices = new HashMap<>();
+        lowestPrices.forEach((name, bestPrice) -> alertIndex.alertsReachedBy(name, bestPrice.getDiscountedPrice())
+                .forEach(id -> reachedPrices.put(id, bestPrice.getDiscountedPrice())));
+        if (reachedPrices.isEmpty()) return List.of();
+
+        // Every invocation is its own lease owner: the events are handled concurrently (@Async), and a shared
+        // owner would let one invocation read and release the alerts another one is still checking
+        String owner = nodeId + "#events-" + UUID.randomUUID();
+        List<PriceAlert> claimed = claim(owner, reachedPrices.keySet());
+        List<PriceAlert> triggered = complete(owner, claimed, reachedPrices);
+
+        // Alerts notified by another instance leave the index too
+        alertIndex.removeAll(alertRepo.findAllById(reachedPrices.keySet()).stream()
+                .filter(PriceAlert::isNotified)
+                .toList());
+        return triggered;
+    }
+
+    /**
+     * Re-evaluates the alerts of the changed products in the background, right after an import or save,
+     * so users are notified minutes after a price drop instead of at the next daily check.
+     */
+    @Async
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceDataChanged(PriceDataChangedEvent event) {
+        if (!event.productNames().isEmpty()) {
+            checkAndTriggerAlerts(event.productNames());
+        }
+    }
+
+    /**
+     * Worker loop of the full check: claims the next chunk after its keyset cursor, checks it, repeats.
+     * Alerts skipped because another worker claimed them are that worker's share.
+     */
+    private void scan(String owner, LocalDateTime scanStart, CheckProgress run) {
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = alertRepo.findClaimableIds(afterId, LocalDateTime.now(), scanStart,
+                    PageRequest.of(0, chunkSize));
+            if (ids.isEmpty()) return;
+            afterId = ids.get(ids.size() - 1);
+
+            List<PriceAlert> claimed = claim(owner, ids, scanStart);
+            if (claimed.isEmpty()) continue;
+
+            // Resolve the products of the chunk at once instead of one lookup per alert
+            Map<String, ProductDTO> lowestPrices = priceEvaluatorService.getLowestPrices(
+                    claimed.stream().map(PriceAlert::getProductName).toList());
+
+            Map<Long, Double> reachedPrices = new HashMap<>();
+            for (PriceAlert alert : claimed) {
+                ProductDTO bestPrice = lowestPrices.get(alert.getProductName());
+                if (bestPrice != null && bestPrice.getDiscountedPrice() <= alert.getTargetPrice()) {
+                    reachedPrices.put(alert.getId(), bestPrice.getDiscountedPrice());
                 }
             }
+
+            List<PriceAlert> triggered = complete(owner, claimed, reachedPrices);
+            alertIndex.removeAll(triggered);
+            checkRunRepo.renew(AlertCheckRun.CURRENT, scanStart,
+                    LocalDateTime.now().plus(Duration.ofMillis(leaseMillis)));
+
+            run.chunks.incrementAndGet();
+            run.checked.addAndGet(claimed.size());
+            run.triggered.addAndGet(triggered.size());
         }
+    }
+
+    /**
+     * Leases the given alerts to the worker.
+     *
+     * @return the alerts the worker obtained, those notified or leased by another worker are left out
+     */
+    private List<PriceAlert> claim(String owner, Collection<Long> ids) {
+        return claim(owner, ids, null);
+    }
+
+    /**
+     * Leases the given alerts to the worker of a full check, leaving out those checked since the scan started.
+     *
+     * @param scanStart the start of the scan, null outside of a full check
+     * @return the alerts the worker obtained, those notified, leased by another worker or already checked are left out
+     */
+    private List<PriceAlert> claim(String owner, Collection<Long> ids, LocalDateTime scanStart) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plus(Duration.ofMillis(leaseMillis));
+        int claimed = scanStart == null
+                ? alertRepo.claim(ids, owner, now, leaseUntil)
+                : alertRepo.claimUnchecked(ids, owner, now, leaseUntil, scanStart);
+        if (claimed == 0) return List.of();
+        return alertRepo.findByLeaseOwnerAndIdIn(owner, ids).stream()
+                .filter(alert -> !alert.isNotified())
+                .toList();
+    }
+
+    /**
+     * Marks the reached alerts notified and queues their emails, then releases the worker's lease on all of them.
+     *
+     * @return the alerts that were triggered
+     */
+    private List<PriceAlert> complete(String owner, List<PriceAlert> claimed, Map<Long, Double> reachedPrices) {
+        List<PriceAlert> reached = claimed.stream()
+                .filter(alert -> reachedPrices.containsKey(alert.getId()))
+                .toList();
+
+        // Mark notified and queue the emails together, the queue sends them (see NotificationQueueService)
+        List<PriceAlert> triggered = reached.isEmpty()
+                ? List.of()
+                : notificationQueue.markNotifiedAndEnqueue(reached, reachedPrices, owner);
 
-        // Persist state changes (marking alerts as notified)
-        alertRepo.saveAll(triggered);
+        alertRepo.release(claimed.stream().map(PriceAlert::getId).toList(), owner, LocalDateTime.now());
         return triggered;
     }
 
@@ -70,8 +325,198 @@ public class PriceAlertService {
     public PriceAlert createAlert(PriceAlert alert) {
         alert.setCreatedAt(LocalDate.now());
         alert.setNotified(false);
-        return alertRepo.save(alert);
+        PriceAlert saved = alertRepo.save(alert);
+        alertIndex.add(saved);
+        return saved;
     }
 
-}
+    /**
+     * Creates many alerts at once, e.g. to migrate existing watch lists.
+     * Every alert is validated, the product names are checked against the catalog with one set-based
+     * query per {@value #NAMES_PER_QUERY} names, and the valid alerts are inserted in JDBC batches of
+     * {@code alerts.bulk.chunk-size}, each chunk in its own transaction.
+     *
+     * @param requests the alerts to create
+     * @return the totals and the status of every alert, in request order
+     */
+    public BulkAlertResultDTO createAlerts(List<AlertRequest> requests) {
+        long start = System.nanoTime();
+        List<BulkAlertResultDTO.Row> rows = new ArrayList<>(requests.size());
+        Set<String> names = new HashSet<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            AlertRequest request = requests.get(i);
+            BulkAlertResultDTO.Row row = new BulkAlertResultDTO.Row();
+            row.setIndex(i);
+            row.setError(validate(request));
+            if (row.getError() != null) {
+                row.setStatus(BulkAlertResultDTO.Status.INVALID);
+            } else {
+                names.add(normalize(request.getProductName()));
+            }
+            rows.add(row);
+        }
+
+        Set<String> knownNames = existingNames(names);
+        List<PriceAlert> alerts = new ArrayList<>();
+        List<BulkAlertResultDTO.Row> alertRows = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+
+        for (BulkAlertResultDTO.Row row : rows) {
+            if (row.getStatus() != null) continue;
+            AlertRequest request = requests.get(row.getIndex());
+            if (!knownNames.contains(normalize(request.getProductName()))) {
+                row.setStatus(BulkAlertResultDTO.Status.UNKNOWN_PRODUCT);
+                row.setError("Product not found: " + request.getProductName());
+                continue;
+            }
+
+            PriceAlert alert = new PriceAlert();
+            alert.setUserEmail(request.getEmail().trim());
+            alert.setProductName(request.getProductName().trim());
+            alert.setTargetPrice(request.getTargetPrice());
+            alert.setCreatedAt(today);
+            alert.setNotified(false);
+            alerts.add(alert);
+            alertRows.add(row);
+        }
 
+        List<PriceAlert> saved = new ArrayList<>(alerts.size());
+        for (int from = 0; from < alerts.size(); from += bulkChunkSize) {
+            int to = Math.min(from + bulkChunkSize, alerts.size());
+            List<PriceAlert> chunk = alerts.subList(from, to);
+            try {
+                chunkWriter.writeChunk(chunk);
+                saved.addAll(chunk);
+                for (int i = from; i < to; i++) {
+                    alertRows.get(i).setStatus(BulkAlertResultDTO.Status.CREATED);
+                    alertRows.get(i).setAlertId(alerts.get(i).getId());
+                }
+            } catch (RuntimeException e) {
+                // The chunk was rolled back, the other chunks are kept
+                for (int i = from; i < to; i++) {
+                    alertRows.get(i).setStatus(BulkAlertResultDTO.Status.FAILED);
+                    alertRows.get(i).setError("Could not be saved: " + e.getMessage());
+                }
+            }
+        }
+        alertIndex.addAll(saved);
+
+        long elapsedNanos = Math.max(1, System.nanoTime() - start);
+        BulkAlertResultDTO result = new BulkAlertResultDTO();
+        result.setCreated(saved.size());
+        result.setRejected(rows.size() - saved.size());
+        result.setDurationMillis(elapsedNanos / 1_000_000);
+        result.setAlertsPerSecond(round(saved.size() * 1_000_000_000.0 / elapsedNanos));
+        result.setRows(rows);
+        return result;
+    }
+
+    /**
+     * Creates the alerts of a ';'-separated CSV file with a header line and the columns
+     * email;product_name;target_price, see {@link #createAlerts(List)}.
+     * Rows with missing or unparsable fields are reported as invalid.
+     *
+     * @param csv the CSV file
+     * @return the totals and the status of every row, in file order
+     */
+    public BulkAlertResultDTO createAlerts(Resource csv) throws IOException {
+        List<AlertRequest> requests = new ArrayList<>();
+
+        try (CsvRowReader reader = new OpenCsvRowReader(new CSVReaderBuilder(
+                new BufferedReader(new InputStreamReader(csv.getInputStream(), StandardCharsets.UTF_8)))
+                .withCSVParser(new CSVParserBuilder().withSeparator(';').build())
+                .build())) {
+            boolean skipHeader = true;
+
+            while (reader.next()) {
+                if (skipHeader) {
+                    skipHeader = false;
+                    continue;
+                }
+
+                AlertRequest request = new AlertRequest();
+                int fields = reader.fieldCount();
+                if (fields > 0) request.setEmail(reader.getString(0));
+                if (fields > 1) request.setProductName(reader.getString(1));
+                if (fields > 2) {
+                    try {
+                        request.setTargetPrice(Double.parseDouble(reader.getString(2).trim()));
+                    } catch (NumberFormatException e) {
+                        // Left null, reported by the validation
+                    }
+                }
+                requests.add(request);
+            }
+        }
+        return createAlerts(requests);
+    }
+
+    /**
+     * @return why the alert cannot be created, or null if it is valid
+     */
+    private static String validate(AlertRequest request) {
+        if (request == null) return "Missing alert";
+        if (request.getEmail() == null || !request.getEmail().contains("@")) return "Invalid email";
+        if (request.getProductName() == null || request.getProductName().isBlank()) return "Missing product name";
+        if (request.getTargetPrice() == null || !(request.getTargetPrice() > 0)) {
+            return "Target price must be a positive number";
+        }
+        return null;
+    }
+
+    /**
+     * Keeps the normalized names that exist in the catalog.
+     */
+    private Set<String> existingNames(Collection<String> names) {
+        List<String> queried = new ArrayList<>(names);
+        Set<String> existing = new HashSet<>();
+        for (int from = 0; from < queried.size(); from += NAMES_PER_QUERY) {
+            List<String> batch = queried.subList(from, Math.min(from + NAMES_PER_QUERY, queried.size()));
+            existing.addAll(productRepo.findExistingNames(batch));
+        }
+        return existing;
+    }
+
+    private static String normalize(String productName) {
+        return productName.trim().toLowerCase();
+    }
+
+    /**
+     * Counters of a full check, updated by its workers.
+     */
+    private static class CheckProgress {
+
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private volatile LocalDateTime runStartedAt;
+        private final long startNanos = System.nanoTime();
+        private final AtomicLong checked = new AtomicLong();
+        private final AtomicLong triggered = new AtomicLong();
+        private final AtomicLong chunks = new AtomicLong();
+        private volatile LocalDateTime finishedAt;
+        private volatile long finishNanos;
+
+        void finish() {
+            finishNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+        }
+
+        AlertCheckSummaryDTO toSummary(String nodeId) {
+            long endNanos = finishedAt != null ? finishNanos : System.nanoTime();
+            long elapsedNanos = Math.max(1, endNanos - startNanos);
+
+            AlertCheckSummaryDTO summary = new AlertCheckSummaryDTO();
+            summary.setNodeId(nodeId);
+            summary.setRunning(finishedAt == null);
+            summary.setStartedAt(startedAt);
+            summary.setRunStartedAt(runStartedAt);
+            summary.setFinishedAt(finishedAt);
+            summary.setAlertsChecked(checked.get());
+            summary.setAlertsTriggered(triggered.get());
+            summary.setChunks(chunks.get());
+            summary.setDurationMillis(elapsedNanos / 1_000_000);
+            summary.setAlertsPerSecond(round(checked.get() * 1_000_000_000.0 / elapsedNanos));
+            return summary;
+        }
+    }
+}
@@ -3,17 +3,12 @@ package priceComparator.services;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import priceComparator.dtos.ProductDTO;
-import priceComparator.mappers.ProductMapper;
-import priceComparator.models.Discount;
 import priceComparator.models.Product;
-import priceComparator.repositories.DiscountRepository;
-import priceComparator.repositories.ProductRepository;
 
-import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * Service used for basket optimizing and alerts.
@@ -22,69 +17,54 @@ import java.util.stream.Collectors;
 public class PriceEvaluatorService {
 
     @Autowired
-    private ProductRepository productRepository;
-
-    @Autowired
-    private DiscountRepository discountRepository;
-
-    @Autowired
-    private ProductMapper productMapper;
+    private LatestPriceIndex latestPriceIndex;
 
     /**
      * Searches for the {@link Product} with the best (lowest) price for a given name across all stores.
      * Applies current discounts if available.
+     * Served from the {@link LatestPriceIndex}, so no database access is needed.
      *
      * @param productName the name of the {@link Product} for which we are searching the lowest price.
      * @return a {@link ProductDTO} containing the info of product.
      */
     public Optional<ProductDTO> getProductWithLowestPrice(String productName) {
-        Optional<ProductDTO> best = Optional.empty();
-        Map<String, Discount> discountMap = getActiveDiscountMap();
-        List<String> stores = productRepository.findAllDistinctStoreNames();
-
-        // Iterate through the stores
-        for (String store : stores) {
-            // Find the most recent product by name + store
-            Optional<Product> optionalProduct = productRepository
-                    .findTopByNameIgnoreCaseAndStoreNameIgnoreCaseOrderByDateAddedDesc(productName, store);
-
-            // Skip if the product does not exist in the store
-            if (optionalProduct.isEmpty()) continue;
-
-            Product product = optionalProduct.get();
-            // We assume one discount can be available at a time
-            Discount discount = discountMap.get(product.getProductId() + "|" + store.toLowerCase());
-
-            ProductDTO dto = (discount != null)
-                    ? productMapper.mapToDTOWithDiscount(discount,
-                    productRepository.findTopByProductIdAndStoreNameIgnoreCaseOrderByDateAddedDesc(
-                            discount.getProductId(), discount.getStoreName())) // discount exists, so apply
-                    : productMapper.mapToDTOWithoutDiscount(product); // no discount, so raw price
+        return latestPriceIndex.getLowestPrice(productName);
+    }
 
-            // Keep the one with the lowest price
-            if (best.isEmpty() || dto.getDiscountedPrice() < best.get().getDiscountedPrice()) {
-                best = Optional.of(dto);
-            }
-        }
-        return best;
+    /**
+     * Searches for the {@link Product} with the best (lowest) price of every given name at once.
+     * Applies current discounts if available.
+     * Costs a constant number of queries whatever the number of names (none while the index is fresh),
+     * prefer it over calling {@link #getProductWithLowestPrice(String)} in a loop.
+     *
+     * @param productNames the names of the products, duplicates are allowed.
+     * @return a map from each requested name to the {@link ProductDTO} of its cheapest offer,
+     *         names that no store sells are left out.
+     */
+    public Map<String, ProductDTO> getLowestPrices(Collection<String> productNames) {
+        return latestPriceIndex.getLowestPrices(productNames);
     }
 
     /**
-     * Builds a map for quick discount lookup using productId + storeName as key.
-     * @return map of  <(productId|store)| Discount>
+     * Returns the offer of every store for every given name, with current discounts applied.
+     * Used by the constrained basket optimizer, which needs the full item x store price matrix.
+     *
+     * @param productNames the names of the products, duplicates are allowed.
+     * @return a map from each requested name to one {@link ProductDTO} per store selling it, cheapest first;
+     *         names that no store sells are left out.
      */
-    private Map<String, Discount> getActiveDiscountMap() {
-        LocalDate today = LocalDate.now();
-        // We assume one discount active at a time
-        List<Discount> activeDiscounts = discountRepository.findActiveDiscounts(today);
+    public Map<String, List<ProductDTO>> getOffersPerStore(Collection<String> productNames) {
+        return latestPriceIndex.getOffers(productNames);
+    }
 
-        // Group discounts for quick lookup by productId+store
-        return activeDiscounts.stream()
-                .collect(Collectors.toMap(
-                        d -> d.getProductId() + "|" + d.getStoreName().toLowerCase(),
-                        d -> d,
-                        (d1, d2) -> d1 // if duplicate, keep first
-                ));
+    /**
+     * Returns, for every query, the offer with the lowest price per kg / l / piece in a category,
+     * whatever its name, brand or package size. Used by the substitution basket.
+     *
+     * @param queries the category, unit and optional name filter of each item
+     * @return one result per query, in query order; empty if nothing in the category is sold by that unit
+     */
+    public List<Optional<LatestPriceIndex.UnitOffer>> getCheapestPerUnit(List<LatestPriceIndex.UnitQuery> queries) {
+        return latestPriceIndex.getCheapestPerUnit(queries);
     }
 }
-
@@ -0,0 +1,127 @@
+package priceComparator.services;
+
+import priceComparator.dtos.PriceHistoryBucketDTO;
+import priceComparator.dtos.PriceHistoryPointDTO;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static priceComparator.utils.PriceUtils.round;
+
+/**
+ * Downsamples a price timeline (see {@link PriceTimelineBuilder}) into day, week or month buckets per store,
+ * in a single pass over the segments. A segment covers the days from its start up to (excluding) its end, and the
+ * latest segment of a store also covers its end, today. Buckets without any covered day are left out, so the
+ * result has at most one bucket per store and resolution step however long the product has been tracked.
+ */
+public class PriceHistoryAggregator {
+
+    /**
+     * Aggregates the timeline into buckets.
+     *
+     * @param history the segments of every store, in timeline order per store
+     * @param resolution length of the buckets
+     * @param from first day to include, null for no lower bound
+     * @param to last day to include, null for no upper bound
+     * @return the buckets of every store (in the order the stores first appear), in date order per store
+     */
+    public List<PriceHistoryBucketDTO> aggregate(List<PriceHistoryPointDTO> history,
+                                                 PriceHistoryBucketDTO.Resolution resolution,
+                                                 LocalDate from, LocalDate to) {
+        Map<String, StoreBuckets> stores = new LinkedHashMap<>();
+        for (PriceHistoryPointDTO segment : history) {
+            stores.computeIfAbsent(segment.getStoreName().toLowerCase(),
+                    store -> new StoreBuckets(resolution, from, to)).add(segment);
+        }
+
+        List<PriceHistoryBucketDTO> buckets = new ArrayList<>();
+        for (StoreBuckets store : stores.values()) {
+            store.finish(buckets);
+        }
+        return buckets;
+    }
+
+    /**
+     * Buckets of one store. A segment is added once the next one arrives, as only the latest one covers its end day.
+     */
+    private static class StoreBuckets {
+
+        private final PriceHistoryBucketDTO.Resolution resolution;
+        private final LocalDate from;
+        private final LocalDate to;
+
+        private final List<PriceHistoryBucketDTO> buckets = new ArrayList<>();
+        private PriceHistoryPointDTO pending;
+
+        /** First day not covered yet, overlapping segments only count once */
+        private LocalDate covered;
+
+        private PriceHistoryBucketDTO bucket;
+        private double priceDays;
+
+        StoreBuckets(PriceHistoryBucketDTO.Resolution resolution, LocalDate from, LocalDate to) {
+            this.resolution = resolution;
+            this.from = from;
+            this.to = to;
+        }
+
+        void add(PriceHistoryPointDTO segment) {
+            if (pending != null) addDays(pending, pending.getDateTo());
+            pending = segment;
+        }
+
+        void finish(List<PriceHistoryBucketDTO> result) {
+            if (pending != null) addDays(pending, pending.getDateTo().plusDays(1));
+            closeBucket();
+            result.addAll(buckets);
+        }
+
+        /**
+         * Adds the segment's price to the days from its start to {@code end} (excluding), bucket by bucket.
+         */
+        private void addDays(PriceHistoryPointDTO segment, LocalDate end) {
+            LocalDate day = segment.getDateFrom();
+            if (covered != null && day.isBefore(covered)) day = covered;
+            if (from != null && day.isBefore(from)) day = from;
+            if (to != null && end.isAfter(to)) end = to.plusDays(1);
+
+            while (day.isBefore(end)) {
+                LocalDate bucketStart = resolution.bucketStart(day);
+                if (bucket == null || !bucket.getDateFrom().equals(bucketStart)) {
+                    closeBucket();
+                    openBucket(segment.getStoreName(), bucketStart);
+                }
+                LocalDate chunkEnd = bucket.getDateTo().isBefore(end) ? bucket.getDateTo() : end;
+                int days = (int) ChronoUnit.DAYS.between(day, chunkEnd);
+                double price = segment.getPrice();
+
+                bucket.setMinPrice(Math.min(bucket.getMinPrice(), price));
+                bucket.setMaxPrice(Math.max(bucket.getMaxPrice(), price));
+                bucket.setClosePrice(price);
+                bucket.setDays(bucket.getDays() + days);
+                if (segment.isDiscounted()) bucket.setDiscountedDays(bucket.getDiscountedDays() + days);
+                priceDays += price * days;
+
+                day = chunkEnd;
+                covered = chunkEnd;
+            }
+        }
+
+        private void openBucket(String storeName, LocalDate bucketStart) {
+            bucket = new PriceHistoryBucketDTO(storeName, bucketStart, resolution.nextBucketStart(bucketStart),
+                    Double.MAX_VALUE, -Double.MAX_VALUE, 0, 0, 0, 0);
+            priceDays = 0;
+        }
+
+        private void closeBucket() {
+            if (bucket == null) return;
+            bucket.setAvgPrice(round(priceDays / bucket.getDays()));
+            buckets.add(bucket);
+            bucket = null;
+        }
+    }
+}
@@ -2,19 +2,20 @@ package priceComparator.services;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import priceComparator.dtos.PriceHistoryBucketDTO;
 import priceComparator.dtos.PriceHistoryPointDTO;
 import priceComparator.models.Discount;
 import priceComparator.models.Product;
 import priceComparator.repositories.DiscountRepository;
 import priceComparator.repositories.ProductRepository;
 
+import java.io.IOException;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static priceComparator.utils.PriceUtils.convertToRon;
-import static priceComparator.utils.PriceUtils.round;
-
 /**
  * Service responsible for constructing the historical price timeline of a {@link Product}.
  * Allows filtering by store, brand, or category. Outputs a list of time-segmented
@@ -27,10 +28,28 @@ public class PriceHistoryService {
     ProductRepository productRepository;
     @Autowired
     DiscountRepository discountRepository;
+    @Autowired
+    PriceSegmentService priceSegmentService;
+    @Autowired
+    PriceSeriesStore priceSeriesStore;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    /**
+     * Products read per query (and held in memory at once) by {@link #streamPriceHistories}.
+     */
+    private static final int NAMES_PER_BATCH = 100;
+
+    private final PriceTimelineBuilder timelineBuilder = new PriceTimelineBuilder();
+
+    private final PriceHistoryAggregator aggregator = new PriceHistoryAggregator();
 
     /**
      * Main method to retrieve a product's price history.
-     * Filters products, applies discount logic, and builds a time-series representation.
+     * Builds it from the in-memory series (see {@link PriceSeriesStore}), or reads the materialized segments
+     * (see {@link PriceSegmentService}), or, with both disabled, filters products, applies discount logic,
+     * and builds a time-series representation.
      *
      * @param productName name of the product to analyze
      * @param storeName optional store filter
@@ -46,6 +65,18 @@ public class PriceHistoryService {
     ) {
         LocalDate today = LocalDate.now();
 
+        // In-memory series, no database access
+        if (priceSeriesStore.isReady()) {
+            return priceSeriesStore.getPriceHistory(productName, storeName.orElse(null), category.orElse(null),
+                    brand.orElse(null), today);
+        }
+
+        // Single indexed range read over the materialized segments, kept up to date by the imports
+        if (priceSegmentService.isEnabled()) {
+            return priceSegmentService.getPriceHistory(productName, storeName.orElse(null), category.orElse(null),
+                    brand.orElse(null), today);
+        }
+
         // Step 1: Filter product entries based on parameters
         List<Product> filteredProducts = productRepository.findFilteredProducts(
                 productName,
@@ -56,102 +87,148 @@ public class PriceHistoryService {
 
         if (filteredProducts.isEmpty()) return List.of();
 
-        // Step 2: Group products by store (each store gets its own price timeline, useless if storeName is given as parameter)
+        // Step 2: Get all matching discounts for the product name
+        List<Discount> discounts = discountRepository.findByNameIgnoreCase(productName);
+
+        return buildHistory(filteredProducts, discounts, today);
+    }
+
+    /**
+     * Builds the timeline of one product from its filtered entries and its discounts.
+     */
+    private List<PriceHistoryPointDTO> buildHistory(List<Product> filteredProducts, List<Discount> discounts,
+                                                    LocalDate today) {
+        // Step 3: Group products by store (each store gets its own price timeline, useless if storeName is given as parameter)
         Map<String, List<Product>> groupedByStore = filteredProducts.stream()
                 .collect(Collectors.groupingBy(p -> p.getStoreName().toLowerCase()));
 
-        // Step 3: Get all matching discounts for the product name
-        List<Discount> discounts = discountRepository.findByNameIgnoreCase(productName);
-
         // Step 4: Build the price timeline with discount segments
-        return buildPriceTimeline(groupedByStore, discounts, today);
-
+        return timelineBuilder.build(groupedByStore, discounts, today);
     }
 
-
     /**
-     * Builds a detailed price timeline per store, including both discounted and non-discounted segments.
+     * Retrieves the price history of many products at once, passing each product's history to the sink as soon as
+     * it is built. Served from the in-memory series when they are loaded; otherwise the entries (or segments) of all
+     * products are read with one query per {@value #NAMES_PER_BATCH} products instead of one query per product,
+     * each in a short read-only transaction of its own, so no connection is held while the sink writes (a client
+     * may read the response slowly). Products without any entry are passed last, with an empty history.
      *
-     * @param groupedByStore map of storeName → list of {@link Product} entries (ordered by date)
-     * @param discounts list of all discounts applicable to the product
-     * @param today current date (used for range upper bound)
-     * @return list of {@link PriceHistoryPointDTO} representing each time-price interval
+     * @param productNames names of the products (case-insensitive, duplicates are passed once)
+     * @param storeName optional store filter
+     * @param category optional category filter
+     * @param brand optional brand filter
+     * @param sink receives each product name (as requested) with its history
+     */
+    public void streamPriceHistories(
+            List<String> productNames,
+            Optional<String> storeName,
+            Optional<String> category,
+            Optional<String> brand,
+            PriceHistorySink sink
+    ) throws IOException {
+        LocalDate today = LocalDate.now();
+
+        // Requested spelling of every lower-cased name, the ones still to pass
+        Map<String, String> pending = new LinkedHashMap<>();
+        for (String name : productNames) {
+            pending.putIfAbsent(name.toLowerCase(), name);
+        }
+        PriceHistorySink requested = (name, history) -> {
+            String requestedName = pending.remove(name);
+            sink.accept(requestedName != null ? requestedName : name, history);
+        };
+
+        if (priceSeriesStore.isReady()) {
+            for (String name : List.copyOf(pending.keySet())) {
+                List<PriceHistoryPointDTO> history = priceSeriesStore.getPriceHistory(name, storeName.orElse(null),
+                        category.orElse(null), brand.orElse(null), today);
+                if (!history.isEmpty()) requested.accept(name, history);
+            }
+        } else if (priceSegmentService.isEnabled()) {
+            priceSegmentService.streamPriceHistories(List.copyOf(pending.keySet()), storeName.orElse(null),
+                    category.orElse(null), brand.orElse(null), today, requested);
+        } else {
+            List<String> names = List.copyOf(pending.keySet());
+            for (int i = 0; i < names.size(); i += NAMES_PER_BATCH) {
+                streamFromEntries(names.subList(i, Math.min(i + NAMES_PER_BATCH, names.size())),
+                        storeName.orElse(null), category.orElse(null), brand.orElse(null), today, requested);
+            }
+        }
+
+        for (String name : List.copyOf(pending.values())) {
+            sink.accept(name, List.of());
+        }
+    }
+
+    /**
+     * Builds the histories of a batch of products from the raw entries, read in name order together with the
+     * batch's discounts in one short transaction, before any history is passed to the sink.
      */
-    private List<PriceHistoryPointDTO> buildPriceTimeline(
-            Map<String, List<Product>> groupedByStore,
-            List<Discount> discounts,
-            LocalDate today
-    ){
-        List<PriceHistoryPointDTO> history = new ArrayList<>();
-
-        // Iterate through the stores
-        for (var entry : groupedByStore.entrySet()) {
-            String store = entry.getKey();
-            List<Product> products = entry.getValue();
-
-            // Iterate through the product entries of this store
-            for (int i = 0; i < products.size(); i++) {
-                Product current = products.get(i);
-
-                // DateFrom for this entry is set as the date it was added
-                LocalDate dateFrom = current.getDateAdded();
-
-                // DateTo for this entry is set as the date when the next entry was added
-                // If this is the latest entry the dateTo is set to today
-                LocalDate dateTo = (i < products.size() - 1) ? products.get(i + 1).getDateAdded() : today;
-
-                double originalPrice = convertToRon(current.getPrice(), current.getCurrency());
-
-                // Step 1: Get all discounts that overlap with this price period
-                List<Discount> overlapping = discounts.stream()
-                        .filter(d -> d.getStoreName().equalsIgnoreCase(store))
-                        .filter(d -> !d.getDateTo().isBefore(dateFrom) && !d.getDateFrom().isAfter(dateTo))
-                        .toList();
-
-                if (overlapping.isEmpty()) {
-                    // Step 2: If no discounts, the full segment is un-discounted
-                    history.add(new PriceHistoryPointDTO(dateFrom, dateTo, round(originalPrice), false, current.getStoreName(), current.getBrand()));
-                } else {
-                    // Step 3: Build time segments with and without discounts
-                    LocalDate segmentStart = dateFrom;
-                    for (Discount d : overlapping) {
-
-                        // First iteration:
-                        // Make sure the discountStart is after the dateFrom for the product
-                        // Ensures we don't apply a discount to an entry before it existed
-
-                        // Other iterations:
-                        // We use the correct discountStart
-                        LocalDate discountStart = Collections.max(List.of(dateFrom, d.getDateFrom()));
-
-                        // Same logic as above
-                        LocalDate discountEnd = Collections.min(List.of(dateTo, d.getDateTo()));
-
-                        // Skip if the discount interval is zero-length
-                        if (discountStart.equals(discountEnd)) continue;
-
-                        // If the discount is applied after some time we add a price history point
-                        // For the un-discounted price in that time frame before the discount
-                        if (segmentStart.isBefore(discountStart)) {
-                            history.add(new PriceHistoryPointDTO(segmentStart, discountStart, round(originalPrice), false, current.getStoreName(), current.getBrand()));
-                        }
-
-                        // We add a price history point for the discounted Price
-                        double discountedPrice = round(originalPrice * (1 - d.getPercentage() / 100.0));
-                        history.add(new PriceHistoryPointDTO(discountStart, discountEnd, discountedPrice, true, current.getStoreName(), current.getBrand()));
-
-                        // Move segmentStart forward
-                        segmentStart = discountEnd;
-                    }
-
-                    // Step 4: Add remaining segment if any
-                    if (segmentStart.isBefore(dateTo)) {
-                        history.add(new PriceHistoryPointDTO(segmentStart, dateTo, round(originalPrice), false, current.getStoreName(), current.getBrand()));
-                    }
+    private void streamFromEntries(List<String> names, String storeName, String category, String brand,
+                                   LocalDate today, PriceHistorySink sink) throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        Map<String, List<Discount>> discounts = new HashMap<>();
+        List<Product> products = transactionTemplate.execute(status -> {
+            for (Discount discount : discountRepository.findByLowerNameIn(names)) {
+                discounts.computeIfAbsent(discount.getName().toLowerCase(), key -> new ArrayList<>()).add(discount);
+            }
+            return productRepository.findFilteredProductsIn(names, storeName, category, brand);
+        });
+
+        String current = null;
+        List<Product> entries = new ArrayList<>();
+        for (Product product : products) {
+            String name = product.getName().toLowerCase();
+            if (!name.equals(current)) {
+                if (current != null) {
+                    sink.accept(current, buildHistory(entries, discounts.getOrDefault(current, List.of()), today));
                 }
+                current = name;
+                entries = new ArrayList<>();
             }
+            entries.add(product);
         }
+        if (current != null) {
+            sink.accept(current, buildHistory(entries, discounts.getOrDefault(current, List.of()), today));
+        }
+    }
+
+    /**
+     * Receives the histories of {@link #streamPriceHistories}.
+     */
+    @FunctionalInterface
+    public interface PriceHistorySink {
+        void accept(String productName, List<PriceHistoryPointDTO> history) throws IOException;
+    }
 
-        return history;
+    /**
+     * Retrieves a product's price history downsampled to one bucket per store and day, week or month,
+     * with the min/max/average/closing price of each bucket (see {@link PriceHistoryAggregator}).
+     *
+     * @param productName name of the product to analyze
+     * @param storeName optional store filter
+     * @param category optional category filter
+     * @param brand optional brand filter
+     * @param resolution length of the buckets
+     * @param from optional first day to include
+     * @param to optional last day to include
+     * @return the buckets of every store, in date order per store
+     */
+    public List<PriceHistoryBucketDTO> getAggregatedPriceHistory(
+            String productName,
+            Optional<String> storeName,
+            Optional<String> category,
+            Optional<String> brand,
+            PriceHistoryBucketDTO.Resolution resolution,
+            Optional<LocalDate> from,
+            Optional<LocalDate> to
+    ) {
+        if (from.isPresent() && to.isPresent() && from.get().isAfter(to.get())) {
+            throw new IllegalArgumentException("from (" + from.get() + ") is after to (" + to.get() + ")");
+        }
+        List<PriceHistoryPointDTO> history = getPriceHistory(productName, storeName, category, brand);
+        return aggregator.aggregate(history, resolution, from.orElse(null), to.orElse(null));
     }
 }
@@ -0,0 +1,368 @@
+package priceComparator.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import priceComparator.dtos.PriceHistoryPointDTO;
+import priceComparator.events.PriceDataChangedEvent;
+import priceComparator.models.Discount;
+import priceComparator.models.PriceSegment;
+import priceComparator.models.Product;
+import priceComparator.repositories.DiscountRepository;
+import priceComparator.repositories.PriceSegmentRepository;
+import priceComparator.repositories.ProductRepository;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Maintains the materialized price history ({@link PriceSegment}) of every (product name, store) series.
+ * When products or discounts are written, only the affected series are rebuilt, and only from the price period
+ * containing the earliest changed date: a daily import closes the latest period (or extends it when the price
+ * did not change) and a discount splits the periods it overlaps. The segments are the ones
+ * {@link PriceTimelineBuilder} builds, with the discounts applied in date order.
+ */
+@Service
+public class PriceSegmentService {
+
+    @Autowired
+    private PriceSegmentRepository segmentRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private DiscountRepository discountRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * Whether the price history is read from the materialized segments, or built from the raw entries on every read.
+     * Defaults to the opposite of {@code price-series.enabled}: the in-memory series serve the history once loaded,
+     * and keeping the segments as well would only rewrite them on every import for the short startup window.
+     */
+    @Value("${price-history.segments.enabled:#{!${price-series.enabled:true}}}")
+    private boolean enabled;
+
+    /**
+     * Series rebuilt per transaction (and per query).
+     */
+    private static final int NAMES_PER_BATCH = 500;
+
+    /**
+     * Products whose histories are read per query (and held in memory at once) by {@link #streamPriceHistories}.
+     */
+    private static final int NAMES_PER_READ = 100;
+
+    private final PriceTimelineBuilder timelineBuilder = new PriceTimelineBuilder();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reads the price history of a product from the segments: the past periods as stored, the latest period
+     * finished with today's date. Same result as {@link PriceHistoryService} building it from the raw entries.
+     *
+     * @param productName name of the product (case-insensitive)
+     * @param storeName optional store filter
+     * @param category optional category filter
+     * @param brand optional brand filter
+     * @param today end of the latest price periods
+     * @return the segments of every store, in timeline order per store
+     */
+    public List<PriceHistoryPointDTO> getPriceHistory(String productName, String storeName, String category,
+                                                      String brand, LocalDate today) {
+        List<PriceSegment> rows = segmentRepo.findHistory(normalize(productName), lowerCase(storeName),
+                lowerCase(category), lowerCase(brand));
+        return toHistory(rows, today);
+    }
+
+    /**
+     * Reads the price history of several products, {@value #NAMES_PER_READ} products per query, each query in a
+     * short read-only transaction of its own, and passes each product's history to the sink. The connection is
+     * released before the histories of a batch are passed, so a slow sink (a client reading the response) does not
+     * hold it. Products without any segment are not passed.
+     *
+     * @param productNames the products (case-insensitive)
+     * @param storeName optional store filter
+     * @param category optional category filter
+     * @param brand optional brand filter
+     * @param today end of the latest price periods
+     * @param sink receives the lower-cased product name and its history
+     */
+    public void streamPriceHistories(Collection<String> productNames, String storeName, String category,
+                                     String brand, LocalDate today, PriceHistoryService.PriceHistorySink sink)
+            throws IOException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        List<String> names = productNames.stream().map(PriceSegmentService::normalize).distinct().toList();
+        for (int i = 0; i < names.size(); i += NAMES_PER_READ) {
+            List<String> batch = names.subList(i, Math.min(i + NAMES_PER_READ, names.size()));
+            List<PriceSegment> batchRows = transactionTemplate.execute(status -> segmentRepo.findHistories(batch,
+                    lowerCase(storeName), lowerCase(category), lowerCase(brand)));
+
+            String current = null;
+            List<PriceSegment> rows = new ArrayList<>();
+            for (PriceSegment row : batchRows) {
+                if (!row.getProductName().equals(current)) {
+                    if (current != null) sink.accept(current, toHistory(rows, today));
+                    current = row.getProductName();
+                    rows = new ArrayList<>();
+                }
+                rows.add(row);
+            }
+            if (current != null) sink.accept(current, toHistory(rows, today));
+        }
+    }
+
+    /**
+     * Turns the rows of one product into its history: the past periods as stored, the latest period finished
+     * with today's date.
+     */
+    private List<PriceHistoryPointDTO> toHistory(List<PriceSegment> rows, LocalDate today) {
+        if (rows.isEmpty()) return List.of();
+
+        // Grouped like the raw entries are, so stores come out in the same order
+        Map<String, List<PriceSegment>> rowsByStore = rows.stream()
+                .collect(Collectors.groupingBy(PriceSegment::getStoreKey));
+
+        List<PriceHistoryPointDTO> history = new ArrayList<>(rows.size());
+        for (List<PriceSegment> storeRows : rowsByStore.values()) {
+            Product latest = null;
+            List<Discount> latestDiscounts = new ArrayList<>();
+
+            for (PriceSegment row : storeRows) {
+                switch (row.getKind()) {
+                    case SEGMENT -> history.add(new PriceHistoryPointDTO(row.getDateFrom(), row.getDateTo(),
+                            row.getPrice(), row.isDiscounted(), row.getStoreName(), row.getBrand()));
+                    case OPEN -> latest = toPeriodEntry(row);
+                    case OPEN_DISCOUNT -> latestDiscounts.add(toDiscount(row));
+                }
+            }
+            if (latest != null) {
+                timelineBuilder.buildStore(List.of(latest), latestDiscounts, today,
+                        (period, segment) -> history.add(segment));
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Rebuilds the affected series after an import or save. Runs on the publishing thread once the written rows
+     * are committed, so the history is up to date when the import returns.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceDataChanged(PriceDataChangedEvent event) {
+        if (enabled && !event.productNames().isEmpty()) {
+            refresh(event.storeName(), event.productNames(), event.from());
+        }
+    }
+
+    /**
+     * Builds the segments of an existing database on startup, if there are none yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        if (enabled && segmentRepo.count() == 0 && productRepo.count() > 0) {
+            rebuildAll();
+        }
+    }
+
+    /**
+     * Rebuilds every series from scratch, {@value #NAMES_PER_BATCH} series per transaction.
+     */
+    public void rebuildAll() {
+        Map<String, List<String>> namesByStore = new HashMap<>();
+        for (Object[] pair : productRepo.findAllStoreAndNamePairs()) {
+            namesByStore.computeIfAbsent((String) pair[0], store -> new ArrayList<>()).add((String) pair[1]);
+        }
+        namesByStore.forEach((store, names) -> refresh(store, names, null));
+    }
+
+    /**
+     * Rebuilds the series of the given products from the price period containing {@code from}.
+     *
+     * @param storeName the store of the series, null for every store selling the products
+     * @param productNames the products (case-insensitive)
+     * @param from the earliest date whose price may have changed, null to rebuild the whole series
+     */
+    public void refresh(String storeName, Collection<String> productNames, LocalDate from) {
+        List<String> names = productNames.stream().map(PriceSegmentService::normalize).distinct().toList();
+        if (names.isEmpty()) return;
+
+        if (storeName == null) {
+            for (String store : productRepo.findStoreNamesByNameIn(names)) {
+                refresh(store, names, from);
+            }
+            return;
+        }
+
+        // A new transaction: listeners run after the import's transaction committed, it can't be joined anymore
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        String store = storeName.toLowerCase();
+        for (int i = 0; i < names.size(); i += NAMES_PER_BATCH) {
+            List<String> batch = names.subList(i, Math.min(i + NAMES_PER_BATCH, names.size()));
+            transactionTemplate.executeWithoutResult(status -> refreshBatch(store, batch, from));
+        }
+    }
+
+    /**
+     * Deletes the rows of the series from the rebuilt period on and inserts the new ones, in the caller's transaction.
+     */
+    private void refreshBatch(String store, List<String> names, LocalDate from) {
+        // Period containing `from` per series; the last one if several periods start on that date
+        Map<String, PriceSegment> containing = new HashMap<>();
+        if (from != null) {
+            for (PriceSegment row : segmentRepo.findPeriodsContaining(store, names, from)) {
+                containing.merge(row.getProductName(), row, (a, b) -> a.getId() > b.getId() ? a : b);
+            }
+        }
+
+        // Series with no period before `from` are rebuilt entirely, the others from their containing period
+        List<String> partial = new ArrayList<>();
+        List<String> full = new ArrayList<>();
+        for (String name : names) {
+            (containing.containsKey(name) ? partial : full).add(name);
+        }
+
+        Map<String, List<Product>> entries = new HashMap<>();
+        Map<String, List<Discount>> discounts = new HashMap<>();
+        if (!full.isEmpty()) {
+            segmentRepo.deleteSeries(store, full);
+            groupByName(productRepo.findSeriesEntries(store, full, null), Product::getName, entries);
+            groupByName(discountRepo.findSeriesDiscounts(store, full, null), Discount::getName, discounts);
+        }
+        if (!partial.isEmpty()) {
+            Map<LocalDate, List<String>> byPeriodStart = new HashMap<>();
+            for (String name : partial) {
+                byPeriodStart.computeIfAbsent(containing.get(name).getPeriodStart(), start -> new ArrayList<>()).add(name);
+            }
+            byPeriodStart.forEach((periodStart, group) -> segmentRepo.deleteFrom(store, group, periodStart));
+
+            // Entries of a period all have its price, so the entries before `from` are not needed
+            groupByName(productRepo.findSeriesEntries(store, partial, from), Product::getName, entries);
+            groupByName(discountRepo.findSeriesDiscounts(store, partial, Collections.min(byPeriodStart.keySet())),
+                    Discount::getName, discounts);
+        }
+
+        List<PriceSegment> rows = new ArrayList<>();
+        for (String name : names) {
+            List<Product> series = new ArrayList<>();
+            PriceSegment period = containing.get(name);
+            if (period != null && period.getPeriodStart().isBefore(from)) {
+                series.add(toPeriodEntry(period));
+            }
+            series.addAll(entries.getOrDefault(name, List.of()));
+            List<Discount> seriesDiscounts = discounts.getOrDefault(name, List.of());
+
+            Product latest = timelineBuilder.buildStore(series, seriesDiscounts, null,
+                    (entry, segment) -> rows.add(toSegmentRow(entry, segment)));
+            if (latest == null) continue;
+
+            rows.add(toRow(PriceSegment.Kind.OPEN, latest));
+            for (Discount discount : seriesDiscounts) {
+                if (!discount.getDateTo().isBefore(latest.getDateAdded())) {
+                    rows.add(toOpenDiscountRow(latest, discount));
+                }
+            }
+        }
+        segmentRepo.saveAll(rows);
+    }
+
+    private static <T> void groupByName(List<T> rows, Function<T, String> name,
+                                        Map<String, List<T>> byName) {
+        for (T row : rows) {
+            byName.computeIfAbsent(normalize(name.apply(row)), key -> new ArrayList<>()).add(row);
+        }
+    }
+
+    /**
+     * Row carrying the period of the given entry; the segment fields are left for the caller.
+     */
+    private static PriceSegment toRow(PriceSegment.Kind kind, Product period) {
+        PriceSegment row = new PriceSegment();
+        row.setKind(kind);
+        row.setProductName(normalize(period.getName()));
+        row.setStoreKey(period.getStoreName().toLowerCase());
+        row.setStoreName(period.getStoreName());
+        row.setProductId(period.getProductId());
+        row.setCategory(period.getCategory());
+        row.setBrand(period.getBrand());
+        row.setPackageQuantity(period.getPackageQuantity());
+        row.setPackageUnit(period.getPackageUnit());
+        row.setPeriodStart(period.getDateAdded());
+        row.setPeriodPrice(period.getPrice());
+        row.setCurrency(period.getCurrency());
+        row.setDateFrom(period.getDateAdded());
+        return row;
+    }
+
+    private static PriceSegment toSegmentRow(Product period, PriceHistoryPointDTO segment) {
+        PriceSegment row = toRow(PriceSegment.Kind.SEGMENT, period);
+        row.setDateFrom(segment.getDateFrom());
+        row.setDateTo(segment.getDateTo());
+        row.setPrice(segment.getPrice());
+        row.setDiscounted(segment.isDiscounted());
+        return row;
+    }
+
+    private static PriceSegment toOpenDiscountRow(Product period, Discount discount) {
+        PriceSegment row = toRow(PriceSegment.Kind.OPEN_DISCOUNT, period);
+        row.setDateFrom(discount.getDateFrom());
+        row.setDateTo(discount.getDateTo());
+        row.setPercentage(discount.getPercentage());
+        return row;
+    }
+
+    /**
+     * The entry a stored price period starts with, as far as the timeline needs it.
+     */
+    private static Product toPeriodEntry(PriceSegment row) {
+        Product product = new Product();
+        product.setProductId(row.getProductId());
+        product.setName(row.getProductName());
+        product.setCategory(row.getCategory());
+        product.setBrand(row.getBrand());
+        product.setPackageQuantity(row.getPackageQuantity());
+        product.setPackageUnit(row.getPackageUnit());
+        product.setPrice(row.getPeriodPrice());
+        product.setCurrency(row.getCurrency());
+        product.setStoreName(row.getStoreName());
+        product.setDateAdded(row.getPeriodStart());
+        return product;
+    }
+
+    private static Discount toDiscount(PriceSegment row) {
+        Discount discount = new Discount();
+        discount.setStoreName(row.getStoreName());
+        discount.setDateFrom(row.getDateFrom());
+        discount.setDateTo(row.getDateTo());
+        discount.setPercentage(row.getPercentage());
+        return discount;
+    }
+
+    /**
+     * Lower-cases a product name the way the queries' LOWER(name) does.
+     */
+    private static String normalize(String productName) {
+        return productName.toLowerCase();
+    }
+
+    private static String lowerCase(String value) {
+        return value != null ? value.toLowerCase() : null;
+    }
+}
@@ -0,0 +1,490 @@
+package priceComparator.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import priceComparator.dtos.PriceHistoryPointDTO;
+import priceComparator.events.PriceDataChangedEvent;
+import priceComparator.models.Currency;
+import priceComparator.models.Discount;
+import priceComparator.models.PackageUnit;
+import priceComparator.models.Product;
+import priceComparator.repositories.DiscountRepository;
+import priceComparator.repositories.ProductRepository;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read-side, in-memory copy of every {@link Product} entry and {@link Discount}, kept as primitive arrays instead
+ * of entities. The entries of each (productId, store) series are three parallel arrays: the epoch day, the price in
+ * minor units (bani / cents) and a {@link Variant} code. A variant holds what rarely changes between entries
+ * (name, store, brand, category, currency, package), each string stored once, so an entry takes 12 bytes instead of
+ * an entity with its boxed values, dates and strings. The discounts of each (product name, store) are kept the same
+ * way: start and end day, percentage as a byte and the id (for their order).
+ * The store is loaded on startup and the affected series are reloaded from the first changed date when products or
+ * discounts are written (see {@link PriceDataChangedEvent}), so a daily import only appends to the series.
+ * With {@code price-series.enabled=false} nothing is kept in memory and the readers query the database instead.
+ */
+@Service
+public class PriceSeriesStore {
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private DiscountRepository discountRepo;
+
+    /**
+     * Whether the series are kept in memory (every entry of every product).
+     */
+    @Value("${price-series.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Maximum number of names bound to a single IN-list query when series are reloaded.
+     */
+    private static final int NAMES_PER_QUERY = 1000;
+
+    /**
+     * Rows read per query when the series are loaded.
+     */
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    /**
+     * Guards all the structures below: lookups share it, loading and reloading series take it exclusively.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Serializes loading and reloading: each reads the database and applies what it read before the next one reads,
+     * so that two overlapping reloads of a series can't apply an older result over a newer one. Lookups only wait
+     * for the write lock, not for the queries.
+     */
+    private final Lock reloadLock = new ReentrantLock();
+
+    private volatile boolean loaded;
+
+    private final PriceTimelineBuilder timelineBuilder = new PriceTimelineBuilder();
+
+    private final Dictionary<String> strings = new Dictionary<>();
+
+    private final Dictionary<Variant> variants = new Dictionary<>();
+
+    /** Series by productId + "|" + lower-cased store */
+    private final Map<String, Series> seriesByKey = new HashMap<>();
+
+    /** Series having entries with the (lower-cased) name */
+    private final Map<String, Set<Series>> seriesByName = new HashMap<>();
+
+    /** Discounts by lower-cased product name + "|" + lower-cased store */
+    private final Map<String, DiscountSeries> discountsByKey = new HashMap<>();
+
+    /**
+     * @return whether lookups can be served from memory (enabled and loaded)
+     */
+    public boolean isReady() {
+        return enabled && loaded;
+    }
+
+    /**
+     * Builds the price history of a product from the series, like {@link PriceHistoryService} does from the
+     * entries of the database, with the discounts applied in date order.
+     *
+     * @param productName name of the product (case-insensitive)
+     * @param storeName optional store filter
+     * @param category optional category filter
+     * @param brand optional brand filter
+     * @param today end of the latest price periods
+     * @return the segments of every store, in timeline order per store
+     */
+    public List<PriceHistoryPointDTO> getPriceHistory(String productName, String storeName, String category,
+                                                      String brand, LocalDate today) {
+        String name = productName.toLowerCase();
+        String store = lowerCase(storeName);
+        String categoryFilter = lowerCase(category);
+        String brandFilter = lowerCase(brand);
+
+        // Grouped like the raw entries are, so stores come out in the same order
+        Map<String, List<Product>> groupedByStore = new HashMap<>();
+        List<Discount> discounts = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (Series series : seriesByName.getOrDefault(name, Set.of())) {
+                if (store != null && !store.equals(series.storeKey)) continue;
+
+                for (int i = 0; i < series.size; i++) {
+                    Variant variant = variants.value(series.variants[i]);
+                    if (!variant.name().equals(name)
+                            || categoryFilter != null && !variant.category().toLowerCase().equals(categoryFilter)
+                            || brandFilter != null && !variant.brand().toLowerCase().equals(brandFilter)) {
+                        continue;
+                    }
+                    groupedByStore.computeIfAbsent(series.storeKey, key -> new ArrayList<>())
+                            .add(toProduct(series, i));
+                }
+            }
+            for (String storeKey : groupedByStore.keySet()) {
+                DiscountSeries storeDiscounts = discountsByKey.get(name + "|" + storeKey);
+                if (storeDiscounts != null) storeDiscounts.addTo(discounts, storeKey);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // Several product ids sharing a name in a store make one timeline
+        groupedByStore.values().forEach(entries -> entries.sort(Comparator.comparing(Product::getDateAdded)));
+        return timelineBuilder.build(groupedByStore, discounts, today);
+    }
+
+    /**
+     * Returns the most recent entry of a product in a store, rebuilt as a detached {@link Product}.
+     *
+     * @param productId the business id of the product
+     * @param storeName the store (case-insensitive)
+     * @return the latest entry, or empty if the store never sold the product
+     */
+    public Optional<Product> getLatestEntry(String productId, String storeName) {
+        lock.readLock().lock();
+        try {
+            Series series = seriesByKey.get(productId + "|" + storeName.toLowerCase());
+            return series == null || series.size == 0
+                    ? Optional.empty()
+                    : Optional.of(toProduct(series, series.size - 1));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the series on startup, {@value #LOAD_PAGE_SIZE} rows per query in id order (keyset paging): a page is
+     * read in a transaction of its own, so only one page of entities is held at a time on any JDBC driver (MySQL's
+     * reads a whole result set into memory unless cursor fetch is enabled). The series sort their entries by date
+     * as they are added; ids mostly follow the import order, so that is usually an append.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        if (!enabled) return;
+
+        reloadLock.lock();
+        lock.writeLock().lock();
+        try {
+            long afterId = 0;
+            for (List<Product> page; !(page = productRepo.findPageAfter(afterId, Limit.of(LOAD_PAGE_SIZE))).isEmpty(); ) {
+                page.forEach(this::append);
+                afterId = page.get(page.size() - 1).getId();
+            }
+            afterId = 0;
+            for (List<Discount> page; !(page = discountRepo.findPageAfter(afterId, Limit.of(LOAD_PAGE_SIZE))).isEmpty(); ) {
+                page.forEach(discount -> discountSeries(discount).add(discount));
+                afterId = page.get(page.size() - 1).getId();
+            }
+            seriesByKey.values().forEach(Series::trim);
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+            reloadLock.unlock();
+        }
+    }
+
+    /**
+     * Reloads the affected series after an import or save, once the written rows are committed.
+     * Runs before the listeners reading the latest entries (the analytics snapshot).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void onPriceDataChanged(PriceDataChangedEvent event) {
+        if (isReady() && !event.productNames().isEmpty()) {
+            reload(event.storeName(), event.productNames(), event.from());
+        }
+    }
+
+    /**
+     * Replaces the entries and discounts of the given products from the given date on with the database's.
+     * Reloads run one at a time (see {@link #reloadLock}).
+     *
+     * @param storeName the store of the series, null for every store selling the products
+     * @param productNames the products (case-insensitive)
+     * @param from the earliest date that may have changed, null to reload the whole series
+     */
+    public void reload(String storeName, Collection<String> productNames, LocalDate from) {
+        List<String> names = productNames.stream().map(String::toLowerCase).distinct().toList();
+        if (storeName == null) {
+            for (String store : productRepo.findStoreNamesByNameIn(names)) {
+                reload(store, names, from);
+            }
+            return;
+        }
+
+        String store = storeName.toLowerCase();
+        for (int i = 0; i < names.size(); i += NAMES_PER_QUERY) {
+            List<String> batch = names.subList(i, Math.min(i + NAMES_PER_QUERY, names.size()));
+            reloadLock.lock();
+            try {
+                reloadBatch(store, batch, from);
+            } finally {
+                reloadLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reads the batch's series from the database, then swaps them in under the write lock. Caller holds
+     * {@link #reloadLock}.
+     */
+    private void reloadBatch(String store, List<String> batch, LocalDate from) {
+        List<Product> entries = productRepo.findSeriesEntries(store, batch, from);
+        List<Discount> discounts = discountRepo.findSeriesDiscounts(store, batch, from);
+        int fromDay = from != null ? (int) from.toEpochDay() : Integer.MIN_VALUE;
+
+        lock.writeLock().lock();
+        try {
+            Set<String> reloaded = new HashSet<>(batch);
+            for (String name : batch) {
+                for (Series series : seriesByName.getOrDefault(name, Set.of())) {
+                    if (series.storeKey.equals(store)) series.removeFrom(fromDay, reloaded, variants);
+                }
+                DiscountSeries nameDiscounts = discountsByKey.get(name + "|" + store);
+                if (nameDiscounts != null) nameDiscounts.removeEndingFrom(fromDay);
+            }
+            entries.forEach(this::append);
+            discounts.forEach(discount -> discountSeries(discount).add(discount));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an entry to its series, after the entries of the same day or earlier. Caller holds the write lock.
+     */
+    private void append(Product product) {
+        String storeKey = product.getStoreName().toLowerCase();
+        Series series = seriesByKey.computeIfAbsent(product.getProductId() + "|" + storeKey,
+                key -> new Series(strings.intern(product.getProductId()), strings.intern(storeKey)));
+
+        Variant variant = new Variant(strings.intern(product.getName().toLowerCase()),
+                strings.intern(product.getStoreName()), strings.intern(product.getBrand()),
+                strings.intern(product.getCategory()), product.getCurrency(), product.getPackageUnit(),
+                product.getPackageQuantity());
+        series.add((int) product.getDateAdded().toEpochDay(), toMinorUnits(product.getPrice()),
+                variants.code(variant));
+        seriesByName.computeIfAbsent(variant.name(), name -> new HashSet<>()).add(series);
+    }
+
+    private DiscountSeries discountSeries(Discount discount) {
+        return discountsByKey.computeIfAbsent(
+                discount.getName().toLowerCase() + "|" + discount.getStoreName().toLowerCase(),
+                key -> new DiscountSeries());
+    }
+
+    /**
+     * Rebuilds the entry at the given position of a series. Caller holds the read lock.
+     */
+    private Product toProduct(Series series, int index) {
+        Variant variant = variants.value(series.variants[index]);
+        Product product = new Product();
+        product.setProductId(series.productId);
+        product.setName(variant.name());
+        product.setCategory(variant.category());
+        product.setBrand(variant.brand());
+        product.setPackageUnit(variant.packageUnit());
+        product.setPackageQuantity(variant.packageQuantity());
+        product.setPrice(series.prices[index] / 100.0);
+        product.setCurrency(variant.currency());
+        product.setStoreName(variant.storeName());
+        product.setDateAdded(LocalDate.ofEpochDay(series.days[index]));
+        return product;
+    }
+
+    /**
+     * Prices are listed with two decimals.
+     */
+    private static int toMinorUnits(double price) {
+        return Math.toIntExact(Math.round(price * 100));
+    }
+
+    private static String lowerCase(String value) {
+        return value != null ? value.toLowerCase() : null;
+    }
+
+    /**
+     * What an entry shares with the other entries of its series, usually all of them.
+     *
+     * @param name lower-cased product name
+     * @param storeName store name as written on the entry
+     */
+    private record Variant(String name, String storeName, String brand, String category, Currency currency,
+                           PackageUnit packageUnit, Double packageQuantity) {
+    }
+
+    /**
+     * Assigns consecutive codes to distinct values and keeps a single instance of each.
+     */
+    private static class Dictionary<T> {
+
+        private final Map<T, Integer> codes = new HashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int code(T value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        T value(int code) {
+            return values.get(code);
+        }
+
+        T intern(T value) {
+            return value(code(value));
+        }
+    }
+
+    /**
+     * Entries of one product in one store, in date order, as parallel arrays grown on demand.
+     */
+    private static class Series {
+
+        final String productId;
+        final String storeKey;
+
+        int size;
+        int[] days = new int[4];
+        int[] prices = new int[4];
+        int[] variants = new int[4];
+
+        Series(String productId, String storeKey) {
+            this.productId = productId;
+            this.storeKey = storeKey;
+        }
+
+        /**
+         * Inserts the entry after the entries of the same day or earlier; imports usually append.
+         */
+        void add(int day, int price, int variant) {
+            if (size == days.length) {
+                int capacity = size + (size >> 1) + 1;
+                days = Arrays.copyOf(days, capacity);
+                prices = Arrays.copyOf(prices, capacity);
+                variants = Arrays.copyOf(variants, capacity);
+            }
+            int index = size;
+            while (index > 0 && days[index - 1] > day) index--;
+            if (index < size) {
+                System.arraycopy(days, index, days, index + 1, size - index);
+                System.arraycopy(prices, index, prices, index + 1, size - index);
+                System.arraycopy(variants, index, variants, index + 1, size - index);
+            }
+            days[index] = day;
+            prices[index] = price;
+            variants[index] = variant;
+            size++;
+        }
+
+        /**
+         * Removes the entries of the given names dated on or after the given day.
+         */
+        void removeFrom(int fromDay, Set<String> names, Dictionary<Variant> variantCodes) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (days[i] >= fromDay && names.contains(variantCodes.value(variants[i]).name())) continue;
+                days[kept] = days[i];
+                prices[kept] = prices[i];
+                variants[kept] = variants[i];
+                kept++;
+            }
+            size = kept;
+        }
+
+        void trim() {
+            days = Arrays.copyOf(days, size);
+            prices = Arrays.copyOf(prices, size);
+            variants = Arrays.copyOf(variants, size);
+        }
+    }
+
+    /**
+     * Discounts of one product name in one store, ordered by start day then id.
+     */
+    private static class DiscountSeries {
+
+        int size;
+        long[] ids = new long[2];
+        int[] fromDays = new int[2];
+        int[] toDays = new int[2];
+        byte[] percentages = new byte[2];
+
+        void add(Discount discount) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                fromDays = Arrays.copyOf(fromDays, capacity);
+                toDays = Arrays.copyOf(toDays, capacity);
+                percentages = Arrays.copyOf(percentages, capacity);
+            }
+            long id = discount.getId();
+            int fromDay = (int) discount.getDateFrom().toEpochDay();
+            int index = size;
+            while (index > 0 && (fromDays[index - 1] > fromDay || fromDays[index - 1] == fromDay && ids[index - 1] > id)) {
+                index--;
+            }
+            if (index < size) {
+                System.arraycopy(ids, index, ids, index + 1, size - index);
+                System.arraycopy(fromDays, index, fromDays, index + 1, size - index);
+                System.arraycopy(toDays, index, toDays, index + 1, size - index);
+                System.arraycopy(percentages, index, percentages, index + 1, size - index);
+            }
+            ids[index] = id;
+            fromDays[index] = fromDay;
+            toDays[index] = (int) discount.getDateTo().toEpochDay();
+            percentages[index] = (byte) (int) discount.getPercentage();
+            size++;
+        }
+
+        /**
+         * Removes the discounts ending on or after the given day.
+         */
+        void removeEndingFrom(int fromDay) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (toDays[i] >= fromDay) continue;
+                ids[kept] = ids[i];
+                fromDays[kept] = fromDays[i];
+                toDays[kept] = toDays[i];
+                percentages[kept] = percentages[i];
+                kept++;
+            }
+            size = kept;
+        }
+
+        /**
+         * Adds the discounts, rebuilt as detached {@link Discount}s of the given store, to the list.
+         */
+        void addTo(List<Discount> discounts, String storeKey) {
+            for (int i = 0; i < size; i++) {
+                Discount discount = new Discount();
+                discount.setId(ids[i]);
+                discount.setStoreName(storeKey);
+                discount.setDateFrom(LocalDate.ofEpochDay(fromDays[i]));
+                discount.setDateTo(LocalDate.ofEpochDay(toDays[i]));
+                discount.setPercentage((int) percentages[i]);
+                discounts.add(discount);
+            }
+        }
+    }
+}
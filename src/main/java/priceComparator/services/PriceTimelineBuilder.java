@@ -0,0 +1,208 @@
+package priceComparator.services;
+
+import priceComparator.dtos.PriceHistoryPointDTO;
+import priceComparator.models.Discount;
+import priceComparator.models.Product;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static priceComparator.utils.PriceUtils.convertToRon;
+import static priceComparator.utils.PriceUtils.round;
+
+/**
+ * Builds the price timeline of a product from its entries and discounts, see {@link PriceHistoryService}.
+ * The discounts of each store are sorted by start date once and swept alongside the (date-ordered) price
+ * periods: a discount becomes active when the sweep reaches its start and is evicted once a period starts after
+ * its end, so every discount is added and removed once. Building the timeline takes O((P + D) log D) instead
+ * of comparing every entry with every discount.
+ */
+public class PriceTimelineBuilder {
+
+    private static final Comparator<Discount> BY_START = Comparator.comparing(Discount::getDateFrom);
+
+    private static final Comparator<Discount> BY_END = Comparator.comparing(Discount::getDateTo);
+
+    /**
+     * Builds a detailed price timeline per store, including both discounted and non-discounted segments.
+     *
+     * @param groupedByStore map of lower-cased storeName → list of {@link Product} entries (ordered by date)
+     * @param discounts list of all discounts applicable to the product
+     * @param today current date (used for range upper bound)
+     * @return list of {@link PriceHistoryPointDTO} representing each time-price interval
+     */
+    public List<PriceHistoryPointDTO> build(Map<String, List<Product>> groupedByStore, List<Discount> discounts,
+                                            LocalDate today) {
+        // Discounts of each store, keeping their order: overlapping discounts are applied in list order,
+        // as they always were
+        Map<String, List<Discount>> discountsByStore = new HashMap<>();
+        for (Discount discount : discounts) {
+            discountsByStore.computeIfAbsent(discount.getStoreName().toLowerCase(), store -> new ArrayList<>())
+                    .add(discount);
+        }
+
+        List<PriceHistoryPointDTO> history = new ArrayList<>();
+        for (var entry : groupedByStore.entrySet()) {
+            List<Discount> storeDiscounts = discountsByStore.getOrDefault(entry.getKey(), List.of());
+            buildStore(entry.getValue(), storeDiscounts, today, (period, segment) -> history.add(segment));
+        }
+        return history;
+    }
+
+    /**
+     * Builds the timeline of one store, passing every segment to the sink with the entry its price period
+     * starts with. Overlapping discounts are applied in list order.
+     *
+     * @param products the {@link Product} entries of the store, ordered by date
+     * @param discounts the discounts of the store
+     * @param end end of the latest price period (today), or null to leave the latest period out
+     * @param sink receives the segments in timeline order
+     * @return the entry the latest price period starts with, null if there are no entries
+     */
+    public Product buildStore(List<Product> products, List<Discount> discounts, LocalDate end, SegmentSink sink) {
+        List<Product> periods = collapseRepeatedPrices(products);
+
+        Map<Discount, Integer> positions = new IdentityHashMap<>(discounts.size());
+        for (int i = 0; i < discounts.size(); i++) {
+            positions.put(discounts.get(i), i);
+        }
+        List<Discount> byStart = new ArrayList<>(discounts);
+        byStart.sort(BY_START);
+        int nextToStart = 0;
+
+        // Active discounts in list order, and the same discounts by end date for the eviction
+        TreeMap<Integer, Discount> active = new TreeMap<>();
+        PriorityQueue<Discount> activeByEnd = new PriorityQueue<>(BY_END);
+        List<Discount> overlapping = new ArrayList<>();
+
+        int built = end != null ? periods.size() : periods.size() - 1;
+        for (int i = 0; i < built; i++) {
+            Product current = periods.get(i);
+
+            // The period lasts from the date the entry was added until the next entry, or the end for the latest one
+            LocalDate dateFrom = current.getDateAdded();
+            LocalDate dateTo = (i < periods.size() - 1) ? periods.get(i + 1).getDateAdded() : end;
+
+            while (nextToStart < byStart.size() && !byStart.get(nextToStart).getDateFrom().isAfter(dateTo)) {
+                Discount started = byStart.get(nextToStart++);
+                active.put(positions.get(started), started);
+                activeByEnd.add(started);
+            }
+            // Periods start in date order, so a discount ending before this one can't overlap any later period
+            while (!activeByEnd.isEmpty() && activeByEnd.peek().getDateTo().isBefore(dateFrom)) {
+                active.remove(positions.get(activeByEnd.poll()));
+            }
+
+            overlapping.clear();
+            for (Discount d : active.values()) {
+                // Only the latest period can end before an earlier period (entries added after today)
+                if (!d.getDateFrom().isAfter(dateTo)) overlapping.add(d);
+            }
+
+            addSegments(current, dateFrom, dateTo, overlapping, segment -> sink.accept(current, segment));
+        }
+        return periods.isEmpty() ? null : periods.get(periods.size() - 1);
+    }
+
+    /**
+     * Splits one price period into segments with and without discounts.
+     */
+    private void addSegments(Product current, LocalDate dateFrom, LocalDate dateTo, List<Discount> overlapping,
+                             Consumer<PriceHistoryPointDTO> segments) {
+        double originalPrice = convertToRon(current.getPrice(), current.getCurrency());
+
+        if (overlapping.isEmpty()) {
+            // If no discounts, the full segment is un-discounted
+            segments.accept(new PriceHistoryPointDTO(dateFrom, dateTo, round(originalPrice), false, current.getStoreName(), current.getBrand()));
+            return;
+        }
+
+        LocalDate segmentStart = dateFrom;
+        for (Discount d : overlapping) {
+            // Clip the discount to the period: it can't apply before the entry existed or after the next one
+            LocalDate discountStart = d.getDateFrom().isAfter(dateFrom) ? d.getDateFrom() : dateFrom;
+            LocalDate discountEnd = d.getDateTo().isBefore(dateTo) ? d.getDateTo() : dateTo;
+
+            // Skip if the discount interval is zero-length
+            if (discountStart.equals(discountEnd)) continue;
+
+            // If the discount is applied after some time we add a price history point
+            // For the un-discounted price in that time frame before the discount
+            if (segmentStart.isBefore(discountStart)) {
+                segments.accept(new PriceHistoryPointDTO(segmentStart, discountStart, round(originalPrice), false, current.getStoreName(), current.getBrand()));
+            }
+
+            // We add a price history point for the discounted Price
+            double discountedPrice = round(originalPrice * (1 - d.getPercentage() / 100.0));
+            segments.accept(new PriceHistoryPointDTO(discountStart, discountEnd, discountedPrice, true, current.getStoreName(), current.getBrand()));
+
+            // Move segmentStart forward
+            segmentStart = discountEnd;
+        }
+
+        // Add remaining segment if any
+        if (segmentStart.isBefore(dateTo)) {
+            segments.accept(new PriceHistoryPointDTO(segmentStart, dateTo, round(originalPrice), false, current.getStoreName(), current.getBrand()));
+        }
+    }
+
+    /**
+     * Drops entries that repeat the previous entry of the same store (see {@link #repeats}), so that the previous
+     * entry simply extends until the next change. Such entries carry nothing the timeline shows apart from
+     * a period boundary; dropping them makes the timeline identical whether the store files were imported as
+     * full snapshots or in delta mode (where repeated entries are not persisted).
+     *
+     * @param products the {@link Product} entries of one store, ordered by date
+     * @return the entries at which something actually changed
+     */
+    private List<Product> collapseRepeatedPrices(List<Product> products) {
+        List<Product> changes = new ArrayList<>();
+        Product previous = null;
+
+        for (Product product : products) {
+            if (previous == null || !repeats(previous, product)) {
+                changes.add(product);
+                previous = product;
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Whether an entry repeats an earlier entry of the same product: the same value in every persisted column
+     * but the date. A change of name, brand, category or package is a change like a new price; name and store
+     * are compared ignoring case, like everywhere they are looked up.
+     *
+     * @param previous the earlier entry
+     * @param next the later entry
+     */
+    public static boolean repeats(Product previous, Product next) {
+        return Double.compare(previous.getPrice(), next.getPrice()) == 0
+                && previous.getCurrency() == next.getCurrency()
+                && Objects.equals(previous.getProductId(), next.getProductId())
+                && sameIgnoringCase(previous.getName(), next.getName())
+                && Objects.equals(previous.getBrand(), next.getBrand())
+                && Objects.equals(previous.getCategory(), next.getCategory())
+                && Objects.equals(previous.getPackageQuantity(), next.getPackageQuantity())
+                && previous.getPackageUnit() == next.getPackageUnit()
+                && sameIgnoringCase(previous.getStoreName(), next.getStoreName());
+    }
+
+    private static boolean sameIgnoringCase(String a, String b) {
+        return a == null ? b == null : a.equalsIgnoreCase(b);
+    }
+
+    /**
+     * Receives the segments of a store's timeline.
+     */
+    @FunctionalInterface
+    public interface SegmentSink {
+
+        /**
+         * @param period the entry the price period of the segment starts with
+         * @param segment the segment
+         */
+        void accept(Product period, PriceHistoryPointDTO segment);
+    }
+}
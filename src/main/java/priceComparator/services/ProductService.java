@@ -1,10 +1,13 @@
 package priceComparator.services;
 import priceComparator.models.Product;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import priceComparator.events.PriceDataChangedEvent;
 import priceComparator.repositories.ProductRepository;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Service layer for managing business logic related to {@link Product}.
@@ -16,6 +19,9 @@ public class ProductService {
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     /**
      * Retrieves all products from the database (active or not).
      *
@@ -32,7 +38,9 @@ public class ProductService {
      * @return the persisted {@link Product} entity.
      */
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        eventPublisher.publishEvent(new PriceDataChangedEvent(Set.of(saved.getName()), saved.getStoreName(), saved.getDateAdded()));
+        return saved;
     }
 
     /**
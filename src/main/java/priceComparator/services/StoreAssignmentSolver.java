@@ -0,0 +1,257 @@
+package priceComparator.services;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Branch-and-bound solver choosing which stores to visit for a basket.
+ * Minimizes the price of the items (each bought in the cheapest visited store that sells it)
+ * plus a fixed cost per visited store, optionally limited to a maximum number of stores.
+ * <p>
+ * Stores are decided one at a time (visit / skip) in order of usefulness. A branch is pruned when even
+ * visiting every undecided store could not beat the best basket found so far. The search stops when the
+ * time budget runs out, returning the best basket found until then (not proven optimal).
+ */
+public class StoreAssignmentSolver {
+
+    /**
+     * Outcome of a search.
+     *
+     * @param stores the visited stores (column indexes of the price matrix)
+     * @param assignment for every item, the store it is bought from
+     * @param itemsCost sum of the item prices (times their quantity)
+     * @param totalCost itemsCost plus the visit cost of every visited store
+     * @param optimal whether the search completed, i.e. no cheaper basket exists
+     * @param nodesExplored number of search nodes visited
+     */
+    public record Solution(int[] stores, int[] assignment, double itemsCost, double totalCost,
+                           boolean optimal, long nodesExplored) {
+    }
+
+    /** How often (in nodes) the clock is checked */
+    private static final int CLOCK_CHECK_INTERVAL = 1024;
+
+    private final double[][] prices;
+    private final int[] quantities;
+    private final double visitCost;
+    private final int maxStores;
+    private final int items;
+    private final int stores;
+
+    /** Store columns in search order */
+    private int[] order;
+
+    /** suffixMin[k][i]: cheapest price of item i among the stores order[k..] */
+    private double[][] suffixMin;
+
+    /** current[depth][i]: cheapest price of item i among the stores visited on the current path */
+    private double[][] current;
+
+    private boolean[] visited;
+    private boolean[] bestVisited;
+    private double bestCost = Double.POSITIVE_INFINITY;
+    private long nodes;
+    private long deadline;
+    private boolean timedOut;
+
+    /**
+     * @param prices item x store price matrix, {@link Double#POSITIVE_INFINITY} where a store does not sell the item;
+     *               every item must be sold by at least one store
+     * @param quantities how many units of every item are bought
+     * @param visitCost cost added for every visited store (>= 0)
+     * @param maxStores maximum number of visited stores (>= 1)
+     */
+    public StoreAssignmentSolver(double[][] prices, int[] quantities, double visitCost, int maxStores) {
+        this.prices = prices;
+        this.quantities = quantities;
+        this.visitCost = visitCost;
+        this.items = prices.length;
+        this.stores = items == 0 ? 0 : prices[0].length;
+        this.maxStores = Math.min(maxStores, stores);
+    }
+
+    /**
+     * Searches for the cheapest basket.
+     *
+     * @param budgetNanos the time budget
+     * @return the best basket found, or null if no basket satisfies the store limit
+     */
+    public Solution solve(long budgetNanos) {
+        deadline = System.nanoTime() + budgetNanos;
+        if (items == 0) {
+            return new Solution(new int[0], new int[0], 0, 0, true, 0);
+        }
+
+        order = searchOrder();
+        suffixMin = new double[stores + 1][items];
+        Arrays.fill(suffixMin[stores], Double.POSITIVE_INFINITY);
+        for (int k = stores - 1; k >= 0; k--) {
+            for (int i = 0; i < items; i++) {
+                suffixMin[k][i] = Math.min(suffixMin[k + 1][i], prices[i][order[k]]);
+            }
+        }
+
+        current = new double[stores + 1][items];
+        Arrays.fill(current[0], Double.POSITIVE_INFINITY);
+        visited = new boolean[stores];
+
+        seedWithGreedy();
+        search(0, 0);
+
+        return bestVisited == null ? null : toSolution(!timedOut);
+    }
+
+    /**
+     * Depth-first search over the store at position {@code depth} of the search order.
+     *
+     * @param depth the number of stores already decided
+     * @param visitedCount the number of visited stores among them
+     */
+    private void search(int depth, int visitedCount) {
+        if (timedOut || (++nodes % CLOCK_CHECK_INTERVAL == 0 && System.nanoTime() > deadline)) {
+            timedOut = true;
+            return;
+        }
+
+        double[] cheapest = current[depth];
+
+        // The visited stores alone are a candidate basket
+        double cost = basketCost(cheapest, visitedCount);
+        if (cost < bestCost) {
+            bestCost = cost;
+            bestVisited = visited.clone();
+        }
+
+        if (depth == stores || visitedCount == maxStores) return;
+        if (lowerBound(cheapest, depth, visitedCount) >= bestCost) return;
+
+        int store = order[depth];
+        double[] next = current[depth + 1];
+
+        // Visit the store
+        boolean improves = false;
+        for (int i = 0; i < items; i++) {
+            next[i] = Math.min(cheapest[i], prices[i][store]);
+            improves |= next[i] < cheapest[i];
+        }
+        if (improves) {
+            visited[store] = true;
+            search(depth + 1, visitedCount + 1);
+            visited[store] = false;
+        }
+
+        // Skip the store (next is rewritten, the visit branch is done with it)
+        System.arraycopy(cheapest, 0, next, 0, items);
+        search(depth + 1, visitedCount);
+    }
+
+    /**
+     * Cost of buying every item at the cheapest of the visited stores, infinite if an item is not covered.
+     */
+    private double basketCost(double[] cheapest, int visitedCount) {
+        double cost = visitCost * visitedCount;
+        for (int i = 0; i < items; i++) {
+            cost += cheapest[i] * quantities[i];
+        }
+        return cost;
+    }
+
+    /**
+     * Lower bound of every basket below this node: each item at the cheapest of the visited and undecided stores,
+     * plus the visit cost of the stores already visited (and of one more store if none is visited yet).
+     */
+    private double lowerBound(double[] cheapest, int depth, int visitedCount) {
+        double bound = visitCost * Math.max(visitedCount, 1);
+        for (int i = 0; i < items; i++) {
+            bound += Math.min(cheapest[i], suffixMin[depth][i]) * quantities[i];
+            if (bound >= bestCost) return bound;
+        }
+        return bound;
+    }
+
+    /**
+     * Adds stores one at a time, each time the one lowering the cost the most (uncovered items first),
+     * to start the search with a good upper bound.
+     */
+    private void seedWithGreedy() {
+        double[] cheapest = new double[items];
+        Arrays.fill(cheapest, Double.POSITIVE_INFINITY);
+        boolean[] chosen = new boolean[stores];
+
+        for (int count = 0; count < maxStores; count++) {
+            int bestStore = -1;
+            int bestUncovered = Integer.MAX_VALUE;
+            double bestItemsCost = Double.POSITIVE_INFINITY;
+
+            for (int s = 0; s < stores; s++) {
+                if (chosen[s]) continue;
+                int uncovered = 0;
+                double itemsCost = 0;
+                for (int i = 0; i < items; i++) {
+                    double price = Math.min(cheapest[i], prices[i][s]);
+                    if (price == Double.POSITIVE_INFINITY) uncovered++;
+                    else itemsCost += price * quantities[i];
+                }
+                if (uncovered < bestUncovered || (uncovered == bestUncovered && itemsCost < bestItemsCost)) {
+                    bestStore = s;
+                    bestUncovered = uncovered;
+                    bestItemsCost = itemsCost;
+                }
+            }
+
+            chosen[bestStore] = true;
+            for (int i = 0; i < items; i++) {
+                cheapest[i] = Math.min(cheapest[i], prices[i][bestStore]);
+            }
+
+            double cost = basketCost(cheapest, count + 1);
+            if (cost < bestCost) {
+                bestCost = cost;
+                bestVisited = chosen.clone();
+            } else if (bestUncovered == 0) {
+                break; // Covered, and one more store no longer pays for its visit
+            }
+        }
+    }
+
+    /**
+     * Stores that are the cheapest for many items are tried first, so good baskets are found early.
+     */
+    private int[] searchOrder() {
+        int[] cheapestFor = new int[stores];
+        for (int i = 0; i < items; i++) {
+            int best = 0;
+            for (int s = 1; s < stores; s++) {
+                if (prices[i][s] < prices[i][best]) best = s;
+            }
+            cheapestFor[best]++;
+        }
+        return IntStream.range(0, stores).boxed()
+                .sorted(Comparator.comparingInt((Integer s) -> cheapestFor[s]).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private Solution toSolution(boolean optimal) {
+        int[] chosenStores = IntStream.range(0, stores).filter(s -> bestVisited[s]).toArray();
+        int[] assignment = new int[items];
+        double itemsCost = 0;
+
+        for (int i = 0; i < items; i++) {
+            int best = -1;
+            for (int s : chosenStores) {
+                if (best == -1 || prices[i][s] < prices[i][best]) best = s;
+            }
+            assignment[i] = best;
+            itemsCost += prices[i][best] * quantities[i];
+        }
+
+        // Keep only the stores something is bought from
+        int[] usedStores = Arrays.stream(chosenStores)
+                .filter(s -> Arrays.stream(assignment).anyMatch(a -> a == s))
+                .toArray();
+        return new Solution(usedStores, assignment, itemsCost, itemsCost + visitCost * usedStores.length,
+                optimal, nodes);
+    }
+}
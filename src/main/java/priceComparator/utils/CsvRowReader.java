@@ -0,0 +1,61 @@
+package priceComparator.utils;
+
+import java.io.IOException;
+import java.time.LocalDate;
+
+/**
+ * Cursor over the rows of a ';'-separated CSV file.
+ * Fields of the current row are read through typed accessors, so that implementations can parse
+ * numbers, dates and enums without materializing every field as a {@link String}.
+ */
+public interface CsvRowReader extends AutoCloseable {
+
+    /**
+     * Moves to the next row.
+     *
+     * @return false when the end of the file has been reached
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return the number of fields of the current row
+     */
+    int fieldCount();
+
+    /**
+     * @return the field as a new string
+     */
+    String getString(int field);
+
+    /**
+     * Returns the field as a string that may be shared with previous rows.
+     * Meant for low-cardinality columns such as category or brand.
+     */
+    String getSharedString(int field);
+
+    /**
+     * @return the field parsed like {@link Double#parseDouble(String)}
+     */
+    double getDouble(int field);
+
+    /**
+     * @return the field parsed like {@link Integer#parseInt(String)}
+     */
+    int getInt(int field);
+
+    /**
+     * @return the field parsed like {@link LocalDate#parse(CharSequence)} (yyyy-MM-dd)
+     */
+    LocalDate getDate(int field);
+
+    /**
+     * Resolves the field to an enum constant, like {@link Enum#valueOf(Class, String)}.
+     *
+     * @param type the enum type
+     * @param ignoreCase whether the field is upper-cased before the lookup
+     */
+    <E extends Enum<E>> E getEnum(int field, Class<E> type, boolean ignoreCase);
+
+    @Override
+    void close() throws IOException;
+}
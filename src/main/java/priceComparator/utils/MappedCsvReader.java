@@ -0,0 +1,442 @@
+package priceComparator.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * {@link CsvRowReader} that memory-maps the file and scans the fields in place.
+ * Field boundaries are kept as offsets into the mapped buffer, numbers and dates are parsed directly
+ * from the bytes, enums are matched against their constant names and low-cardinality strings are pooled,
+ * so a row costs no allocations besides the strings that are actually requested.
+ * Files larger than the mapping window are mapped one window at a time, a window always starts at a row boundary.
+ * Supports quoted fields (with "" escapes), CRLF line endings and a UTF-8 byte order mark.
+ */
+public class MappedCsvReader implements CsvRowReader {
+
+    private static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+    private static final int MAX_FIELDS = 64;
+    private static final int POOL_SIZE = 1024;
+    private static final int DATE_CACHE_SIZE = 64;
+    private static final int MAX_FAST_DOUBLE_DIGITS = 15;
+    private static final int MAX_FAST_INT_DIGITS = 9;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    /**
+     * Enum constants per type, resolved once instead of cloning {@code values()} for every field.
+     */
+    private static final ClassValue<Enum<?>[]> ENUM_CONSTANTS = new ClassValue<>() {
+        @Override
+        protected Enum<?>[] computeValue(Class<?> type) {
+            return (Enum<?>[]) type.getEnumConstants();
+        }
+    };
+
+    // Result of scanning a row
+    private static final int ROW = 0;
+    private static final int EMPTY_ROW = 1;
+    private static final int INCOMPLETE_ROW = 2;
+
+    private final Path file;
+    private final boolean deleteOnClose;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+    private final byte separator;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int position;
+
+    private final int[] fieldStart = new int[MAX_FIELDS];
+    private final int[] fieldEnd = new int[MAX_FIELDS];
+    private final boolean[] fieldEscaped = new boolean[MAX_FIELDS];
+    private int fieldCount;
+
+    private byte[] scratch = new byte[256];
+
+    private final String[] pooledStrings = new String[POOL_SIZE];
+    private final byte[][] pooledBytes = new byte[POOL_SIZE][];
+
+    private final int[] cachedDateKeys = new int[DATE_CACHE_SIZE];
+    private final LocalDate[] cachedDates = new LocalDate[DATE_CACHE_SIZE];
+
+    public MappedCsvReader(Path file, char separator) throws IOException {
+        this(file, separator, DEFAULT_WINDOW_SIZE, false);
+    }
+
+    public MappedCsvReader(Path file, char separator, int windowSize) throws IOException {
+        this(file, separator, windowSize, false);
+    }
+
+    private MappedCsvReader(Path file, char separator, int windowSize, boolean deleteOnClose) throws IOException {
+        this.file = file;
+        this.deleteOnClose = deleteOnClose;
+        this.separator = (byte) separator;
+        this.windowSize = windowSize;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+
+        map(0);
+        skipByteOrderMark();
+    }
+
+    /**
+     * Copies a stream (e.g. an upload) to a temporary file and maps it.
+     * The temporary file is deleted when the reader is closed.
+     */
+    public static MappedCsvReader spool(InputStream in, char separator) throws IOException {
+        Path temp = Files.createTempFile("priceComparator-csv-", ".csv");
+        try {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            return new MappedCsvReader(temp, separator, DEFAULT_WINDOW_SIZE, true);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            if (position >= window.limit()) {
+                long offset = windowStart + position;
+                if (offset >= fileSize) return false;
+                map(offset);
+            }
+
+            int rowStart = position;
+            int result = scanRow();
+
+            if (result == ROW) return true;
+            if (result == EMPTY_ROW) continue;
+
+            // The row continues past the end of the window: remap starting at the row
+            if (rowStart == 0) {
+                throw new IOException("CSV row at offset " + windowStart + " is longer than the mapping window");
+            }
+            map(windowStart + rowStart);
+        }
+    }
+
+    @Override
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    @Override
+    public String getString(int field) {
+        checkField(field);
+        int length = fieldEnd[field] - fieldStart[field];
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        window.get(fieldStart[field], scratch, 0, length);
+
+        String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        return fieldEscaped[field] ? value.replace("\"\"", "\"") : value;
+    }
+
+    @Override
+    public String getSharedString(int field) {
+        checkField(field);
+        if (fieldEscaped[field]) return getString(field);
+
+        int start = fieldStart[field];
+        int end = fieldEnd[field];
+        int hash = 1;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + window.get(i);
+        }
+
+        int slot = (hash ^ (hash >>> 16)) & (POOL_SIZE - 1);
+        byte[] pooled = pooledBytes[slot];
+        if (pooled != null && sameBytes(pooled, start, end)) {
+            return pooledStrings[slot];
+        }
+
+        String value = getString(field);
+        pooledBytes[slot] = Arrays.copyOf(scratch, end - start);
+        pooledStrings[slot] = value;
+        return value;
+    }
+
+    @Override
+    public double getDouble(int field) {
+        checkField(field);
+        int i = fieldStart[field];
+        int end = fieldEnd[field];
+
+        boolean negative = false;
+        if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+            negative = window.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = window.get(i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) fractionDigits++;
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                // Exponents, whitespace, NaN, ...
+                return Double.parseDouble(getString(field));
+            }
+        }
+        if (digits == 0 || digits > MAX_FAST_DOUBLE_DIGITS) {
+            return Double.parseDouble(getString(field));
+        }
+
+        // Both operands are exact doubles, so the division is correctly rounded like Double.parseDouble
+        double value = (fractionDigits > 0) ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    @Override
+    public int getInt(int field) {
+        checkField(field);
+        int i = fieldStart[field];
+        int end = fieldEnd[field];
+
+        boolean negative = false;
+        if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+            negative = window.get(i) == '-';
+            i++;
+        }
+
+        int value = 0;
+        int digits = end - i;
+        if (digits == 0 || digits > MAX_FAST_INT_DIGITS) {
+            return Integer.parseInt(getString(field));
+        }
+        for (; i < end; i++) {
+            byte b = window.get(i);
+            if (b < '0' || b > '9') {
+                return Integer.parseInt(getString(field));
+            }
+            value = value * 10 + (b - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    @Override
+    public LocalDate getDate(int field) {
+        checkField(field);
+        int start = fieldStart[field];
+
+        // Fast path for the ISO format yyyy-MM-dd
+        if (fieldEnd[field] - start != 10 || window.get(start + 4) != '-' || window.get(start + 7) != '-') {
+            return LocalDate.parse(getString(field));
+        }
+        int year = digits(start, 4);
+        int month = digits(start + 5, 2);
+        int day = digits(start + 8, 2);
+        if (year < 0 || month < 0 || day < 0) {
+            return LocalDate.parse(getString(field));
+        }
+
+        int key = year * 10_000 + month * 100 + day;
+        int slot = key & (DATE_CACHE_SIZE - 1);
+        if (cachedDateKeys[slot] != key || cachedDates[slot] == null) {
+            cachedDates[slot] = LocalDate.of(year, month, day);
+            cachedDateKeys[slot] = key;
+        }
+        return cachedDates[slot];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <E extends Enum<E>> E getEnum(int field, Class<E> type, boolean ignoreCase) {
+        checkField(field);
+        int start = fieldStart[field];
+        int length = fieldEnd[field] - start;
+
+        if (!fieldEscaped[field]) {
+            for (Enum<?> constant : ENUM_CONSTANTS.get(type)) {
+                if (matchesName(constant.name(), start, length, ignoreCase)) {
+                    return (E) constant;
+                }
+            }
+        }
+
+        // Unknown value: let valueOf produce the usual exception
+        String value = getString(field);
+        return Enum.valueOf(type, ignoreCase ? value.toUpperCase(Locale.ROOT) : value);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+        if (deleteOnClose) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Maps the window starting at the given file offset.
+     */
+    private void map(long offset) throws IOException {
+        long length = Math.min(windowSize, fileSize - offset);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        windowStart = offset;
+        position = 0;
+    }
+
+    private void skipByteOrderMark() {
+        if (window.limit() >= 3
+                && window.get(0) == (byte) 0xEF && window.get(1) == (byte) 0xBB && window.get(2) == (byte) 0xBF) {
+            position = 3;
+        }
+    }
+
+    /**
+     * Scans the row starting at the current position, recording the field boundaries.
+     * The position is only advanced when a complete row was found.
+     */
+    private int scanRow() throws IOException {
+        int limit = window.limit();
+        boolean lastWindow = windowStart + limit >= fileSize;
+        int i = position;
+        fieldCount = 0;
+
+        while (true) {
+            int start;
+            int end;
+            boolean escaped = false;
+
+            if (i < limit && window.get(i) == '"') {
+                // Quoted field: runs until a quote that is not followed by another quote
+                int j = i + 1;
+                while (true) {
+                    if (j >= limit) {
+                        if (lastWindow) throw new IOException("Unterminated quoted field at offset " + (windowStart + i));
+                        return INCOMPLETE_ROW;
+                    }
+                    if (window.get(j) == '"') {
+                        if (j + 1 >= limit && !lastWindow) return INCOMPLETE_ROW;
+                        if (j + 1 < limit && window.get(j + 1) == '"') {
+                            escaped = true;
+                            j += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    j++;
+                }
+                start = i + 1;
+                end = j;
+                i = j + 1;
+
+                // Skip the '\r' of a CRLF line ending
+                if (i < limit && window.get(i) == '\r') {
+                    if (i + 1 >= limit && !lastWindow) return INCOMPLETE_ROW;
+                    if (i + 1 >= limit || window.get(i + 1) == '\n') i++;
+                }
+            } else {
+                start = i;
+                while (i < limit && window.get(i) != separator && window.get(i) != '\n') {
+                    i++;
+                }
+                end = i;
+                if (i >= limit && !lastWindow) return INCOMPLETE_ROW;
+
+                // Drop the '\r' of a CRLF line ending
+                if ((i >= limit || window.get(i) == '\n') && end > start && window.get(end - 1) == '\r') {
+                    end--;
+                }
+            }
+
+            addField(start, end, escaped);
+
+            if (i >= limit) {
+                if (!lastWindow) return INCOMPLETE_ROW;
+                position = i;
+                break;
+            }
+
+            byte b = window.get(i);
+            if (b == separator) {
+                i++;
+                continue;
+            }
+            if (b == '\n') {
+                position = i + 1;
+                break;
+            }
+            throw new IOException("Unexpected character after quoted field at offset " + (windowStart + i));
+        }
+
+        if (fieldCount == 1 && fieldEnd[0] == fieldStart[0] && !fieldEscaped[0]) {
+            return EMPTY_ROW;
+        }
+        return ROW;
+    }
+
+    private void addField(int start, int end, boolean escaped) throws IOException {
+        if (fieldCount == MAX_FIELDS) {
+            throw new IOException("CSV row has more than " + MAX_FIELDS + " fields");
+        }
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = end;
+        fieldEscaped[fieldCount] = escaped;
+        fieldCount++;
+    }
+
+    private void checkField(int field) {
+        if (field < 0 || field >= fieldCount) {
+            throw new ArrayIndexOutOfBoundsException("Index " + field + " out of bounds for length " + fieldCount);
+        }
+    }
+
+    /**
+     * Parses a fixed number of ASCII digits, returns -1 if one of them is not a digit.
+     */
+    private int digits(int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            byte b = window.get(i);
+            if (b < '0' || b > '9') return -1;
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private boolean sameBytes(byte[] bytes, int start, int end) {
+        if (bytes.length != end - start) return false;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != window.get(start + i)) return false;
+        }
+        return true;
+    }
+
+    private boolean matchesName(String name, int start, int length, boolean ignoreCase) {
+        if (name.length() != length) return false;
+        for (int i = 0; i < length; i++) {
+            int b = window.get(start + i);
+            if (ignoreCase && b >= 'a' && b <= 'z') {
+                b -= 'a' - 'A';
+            }
+            if (b != name.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,72 @@
+package priceComparator.utils;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * {@link CsvRowReader} backed by an OpenCSV {@link CSVReader}.
+ * Every row is read as a {@code String[]} and the fields are parsed with the standard JDK methods.
+ */
+public class OpenCsvRowReader implements CsvRowReader {
+
+    private final CSVReader reader;
+    private String[] row;
+
+    public OpenCsvRowReader(CSVReader reader) {
+        this.reader = reader;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        try {
+            row = reader.readNext();
+        } catch (CsvValidationException e) {
+            throw new IOException(e);
+        }
+        return row != null;
+    }
+
+    @Override
+    public int fieldCount() {
+        return row.length;
+    }
+
+    @Override
+    public String getString(int field) {
+        return row[field];
+    }
+
+    @Override
+    public String getSharedString(int field) {
+        return row[field];
+    }
+
+    @Override
+    public double getDouble(int field) {
+        return Double.parseDouble(row[field]);
+    }
+
+    @Override
+    public int getInt(int field) {
+        return Integer.parseInt(row[field]);
+    }
+
+    @Override
+    public LocalDate getDate(int field) {
+        return LocalDate.parse(row[field]);
+    }
+
+    @Override
+    public <E extends Enum<E>> E getEnum(int field, Class<E> type, boolean ignoreCase) {
+        return Enum.valueOf(type, ignoreCase ? row[field].toUpperCase(Locale.ROOT) : row[field]);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
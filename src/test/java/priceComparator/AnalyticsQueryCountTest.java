@@ -0,0 +1,193 @@
+package priceComparator;
+
+import com.jayway.jsonpath.JsonPath;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hamcrest.Matcher;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import priceComparator.models.Currency;
+import priceComparator.models.Discount;
+import priceComparator.models.PackageUnit;
+import priceComparator.models.Product;
+import priceComparator.repositories.DiscountRepository;
+import priceComparator.repositories.ProductRepository;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the discount analytics price every discount with its latest product in a constant number of
+ * statements, counted with Hibernate's statistics, and that the top discounts are paged by the database,
+ * on an in-memory database.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class AnalyticsQueryCountTest {
+
+    private static final String[] STORES = {"Lidl", "Kaufland", "Profi"};
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private DiscountRepository discountRepo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        discountRepo.deleteAll();
+        productRepo.deleteAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    public void testCurrentDiscountsTakeOneStatement() throws Exception {
+        LocalDate today = LocalDate.now();
+        List<Product> products = new ArrayList<>();
+        List<Discount> discounts = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            for (String store : STORES) {
+                // The latest entry (today) is priced 10 RON, older ones 20 RON
+                for (int day = 2; day >= 0; day--) {
+                    products.add(product("P" + i, store, today.minusDays(day), day == 0 ? 10.0 : 20.0));
+                }
+                discounts.add(discount("P" + i, store.toUpperCase(), today));
+            }
+        }
+        // Two entries on the latest date: the discount is still listed once
+        products.add(product("P0", "Lidl", today, 10.0));
+        productRepo.saveAll(products);
+        discountRepo.saveAll(discounts);
+
+        statistics.clear();
+        mockMvc.perform(get("/analytics/currentDiscounts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(120)))
+                .andExpect(jsonPath("$[*].originalPrice", everyPrice(120, 10.0)))
+                .andExpect(jsonPath("$[*].discountedPrice", everyPrice(120, 5.0)));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        statistics.clear();
+        mockMvc.perform(get("/analytics/newDiscounts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(120)));
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTopDiscountsArePagedByTheDatabase() throws Exception {
+        LocalDate today = LocalDate.now();
+        List<Product> products = new ArrayList<>();
+        List<Discount> discounts = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            String store = STORES[i % STORES.length];
+            products.add(product("P" + i, store, today, 10.0));
+            // Percentages 10..39 with ties, the expired ones are never listed
+            Discount discount = discount("P" + i, store, today);
+            discount.setPercentage(10 + i / 2 * 2);
+            if (i % 10 == 9) discount.setDateTo(today.minusDays(1));
+            discounts.add(discount);
+        }
+        // A tie on the latest date still lists the discount once
+        products.add(product("P28", STORES[28 % STORES.length], today, 10.0));
+        productRepo.saveAll(products);
+        discountRepo.saveAll(discounts);
+
+        List<Integer> expected = discounts.stream()
+                .filter(d -> !d.getDateTo().isBefore(today))
+                .sorted(Comparator.comparing(Discount::getPercentage).thenComparing(Discount::getId).reversed())
+                .map(Discount::getPercentage)
+                .toList();
+
+        List<Integer> paged = new ArrayList<>();
+        String cursor = null;
+        do {
+            statistics.clear();
+            MvcResult result = mockMvc.perform(cursor == null
+                            ? get("/analytics/topDiscounts").param("limit", "4")
+                            : get("/analytics/topDiscounts").param("limit", "4").param("after", cursor))
+                    .andExpect(status().isOk())
+                    .andReturn();
+            assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+            List<Integer> page = JsonPath.read(result.getResponse().getContentAsString(), "$[*].discountPercentage");
+            assertThat(page).hasSizeLessThanOrEqualTo(4);
+            paged.addAll(page);
+            cursor = result.getResponse().getHeader("X-Next-Cursor");
+        } while (cursor != null);
+        assertThat(paged).isEqualTo(expected);
+
+        mockMvc.perform(get("/analytics/topDiscounts").param("limit", "100").param("store", "KAUFLAND"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(9)))
+                .andExpect(jsonPath("$[*].storeName", everyValue(9, "Kaufland")))
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+        mockMvc.perform(get("/analytics/topDiscounts").param("category", "paine"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        mockMvc.perform(get("/analytics/topDiscounts").param("limit", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/analytics/topDiscounts").param("after", "abc"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static Matcher<Iterable<?>> everyPrice(int count, double price) {
+        return everyValue(count, price);
+    }
+
+    private static Matcher<Iterable<?>> everyValue(int count, Object value) {
+        Object[] values = new Object[count];
+        Arrays.fill(values, value);
+        return containsInAnyOrder(values);
+    }
+
+    private Product product(String productId, String store, LocalDate date, double price) {
+        return new Product(null, productId, "Product " + productId, "lactate", "Zuzu", PackageUnit.l, 1.0, price,
+                Currency.RON, store, date);
+    }
+
+    private Discount discount(String productId, String store, LocalDate today) {
+        Discount discount = new Discount();
+        discount.setProductId(productId);
+        discount.setName("Product " + productId);
+        discount.setCategory("lactate");
+        discount.setBrand("Zuzu");
+        discount.setPackageQuantity(1.0);
+        discount.setPackageUnit(PackageUnit.l);
+        discount.setDateFrom(today.minusDays(1));
+        discount.setDateTo(today.plusDays(1));
+        discount.setPercentage(50);
+        discount.setStoreName(store);
+        discount.setDateAdded(today);
+        return discount;
+    }
+}
@@ -0,0 +1,226 @@
+package priceComparator;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import priceComparator.models.Currency;
+import priceComparator.models.Discount;
+import priceComparator.models.PackageUnit;
+import priceComparator.models.Product;
+import priceComparator.repositories.DiscountRepository;
+import priceComparator.repositories.ProductRepository;
+import priceComparator.services.AnalyticsService;
+import priceComparator.services.AnalyticsService.DiscountPage;
+import priceComparator.services.DiscountService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks that the discount analytics are served from the in-memory snapshot without any statement, tagged with
+ * an ETag, rebuilt after a change, and that its top discounts page the same way as the database queries.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "analytics-snapshot.enabled=true"
+})
+@ActiveProfiles("test")
+@AutoConfigureMockMvc
+public class AnalyticsSnapshotTest {
+
+    private static final String[] STORES = {"Lidl", "Kaufland", "Profi"};
+    private static final String[] CATEGORIES = {"lactate", "paine", "fructe"};
+    private static final String[] BRANDS = {"Zuzu", "Napolact", "Pilos", "Dorna"};
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private DiscountService discountService;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private DiscountRepository discountRepo;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        discountRepo.deleteAll();
+        productRepo.deleteAll();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReflectionTestUtils.setField(analyticsService, "snapshotEnabled", true);
+    }
+
+    @Test
+    public void testServedFromSnapshotWithETag() throws Exception {
+        LocalDate today = LocalDate.now();
+        productRepo.save(product("P1", "Lidl", "lactate", "Zuzu", today));
+        discountRepo.save(discount("P1", "Lidl", "lactate", "Zuzu", 30, today.minusDays(1), today.minusDays(5)));
+        analyticsService.rebuildSnapshot();
+
+        statistics.clear();
+        MvcResult result = mockMvc.perform(get("/analytics/currentDiscounts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].discountedPrice").value(7.0))
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+        mockMvc.perform(get("/analytics/newDiscounts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+        mockMvc.perform(get("/analytics/topDiscounts"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+
+        String etag = result.getResponse().getHeader("ETag");
+        mockMvc.perform(get("/analytics/currentDiscounts").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // Saving a discount rebuilds the snapshot: new data, new tag
+        productRepo.save(product("P2", "Profi", "paine", "Pilos", today));
+        discountService.saveDiscount(discount("P2", "Profi", "paine", "Pilos", 40, today, today));
+
+        mockMvc.perform(get("/analytics/currentDiscounts").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(header().string("ETag", not(etag)));
+        mockMvc.perform(get("/analytics/newDiscounts"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].productId").value("P2"));
+        mockMvc.perform(get("/analytics/topDiscounts").param("limit", "1"))
+                .andExpect(jsonPath("$[0].productId").value("P2"))
+                .andExpect(header().exists("X-Next-Cursor"));
+    }
+
+    @Test
+    public void testDiscountWithoutProductIsSkipped() throws Exception {
+        LocalDate today = LocalDate.now();
+        productRepo.save(product("P1", "Lidl", "lactate", "Zuzu", today));
+        // P1 is not sold at Profi, P2 nowhere
+        discountRepo.save(discount("P1", "Profi", "lactate", "Zuzu", 50, today, today));
+        discountRepo.save(discount("P2", "Lidl", "paine", "Pilos", 45, today, today));
+        analyticsService.warmUp();
+
+        // Saving publishes the change event, whose rebuild must not fail the save
+        discountService.saveDiscount(discount("P1", "Lidl", "lactate", "Zuzu", 30, today, today));
+
+        for (boolean snapshot : new boolean[]{true, false}) {
+            ReflectionTestUtils.setField(analyticsService, "snapshotEnabled", snapshot);
+            mockMvc.perform(get("/analytics/currentDiscounts"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(1)))
+                    .andExpect(jsonPath("$[0].storeName").value("Lidl"));
+            mockMvc.perform(get("/analytics/newDiscounts"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(1)));
+            mockMvc.perform(get("/analytics/topDiscounts"))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$", hasSize(1)))
+                    .andExpect(jsonPath("$[0].discountPercentage").value(30));
+        }
+    }
+
+    @Test
+    public void testTopDiscountsMatchTheDatabase() {
+        LocalDate today = LocalDate.now();
+        Random random = new Random(11);
+        List<Product> products = new ArrayList<>();
+        List<Discount> discounts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String store = STORES[random.nextInt(STORES.length)];
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            String brand = BRANDS[random.nextInt(BRANDS.length)];
+            products.add(product("P" + i, store, category, brand, today.minusDays(random.nextInt(3))));
+            // Ties on the percentage, some discounts not active today
+            LocalDate from = today.minusDays(random.nextInt(4) - 1);
+            discounts.add(discount("P" + i, store, category, brand, 5 * random.nextInt(10), from, today));
+        }
+        productRepo.saveAll(products);
+        discountRepo.saveAll(discounts);
+        analyticsService.rebuildSnapshot();
+
+        for (int round = 0; round < 30; round++) {
+            int limit = 1 + random.nextInt(15);
+            Optional<String> store = random.nextBoolean() ? Optional.of(STORES[random.nextInt(STORES.length)]) : Optional.empty();
+            Optional<String> category = random.nextBoolean() ? Optional.of(CATEGORIES[random.nextInt(CATEGORIES.length)].toUpperCase()) : Optional.empty();
+            Optional<String> brand = random.nextInt(4) == 0 ? Optional.of(BRANDS[random.nextInt(BRANDS.length)]) : Optional.empty();
+
+            assertThat(allPages(limit, store, category, brand, true))
+                    .isEqualTo(allPages(limit, store, category, brand, false));
+        }
+    }
+
+    /**
+     * Product ids and discounted prices of every page, following the cursors, from the snapshot or the database.
+     */
+    private List<String> allPages(int limit, Optional<String> store, Optional<String> category,
+                                  Optional<String> brand, boolean snapshot) {
+        ReflectionTestUtils.setField(analyticsService, "snapshotEnabled", snapshot);
+        List<String> ids = new ArrayList<>();
+        Optional<String> after = Optional.empty();
+        do {
+            DiscountPage page = analyticsService.getTopDiscounts(limit, store, category, brand, after);
+            assertThat(page.discounts()).hasSizeLessThanOrEqualTo(limit);
+            page.discounts().forEach(dto -> ids.add(dto.getProductId() + "@" + dto.getDiscountedPrice()));
+            after = Optional.ofNullable(page.nextCursor());
+        } while (after.isPresent());
+        return ids;
+    }
+
+    private Product product(String productId, String store, String category, String brand, LocalDate date) {
+        return new Product(null, productId, "Product " + productId, category, brand, PackageUnit.l, 1.0, 10.0,
+                Currency.RON, store, date);
+    }
+
+    private Discount discount(String productId, String store, String category, String brand, int percentage,
+                              LocalDate from, LocalDate dateAdded) {
+        Discount discount = new Discount();
+        discount.setProductId(productId);
+        discount.setName("Product " + productId);
+        discount.setCategory(category);
+        discount.setBrand(brand);
+        discount.setPackageQuantity(1.0);
+        discount.setPackageUnit(PackageUnit.l);
+        discount.setDateFrom(from);
+        discount.setDateTo(from.plusDays(3));
+        discount.setPercentage(percentage);
+        discount.setStoreName(store);
+        discount.setDateAdded(dateAdded);
+        return discount;
+    }
+}
@@ -0,0 +1,101 @@
+package priceComparator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import priceComparator.dtos.BulkImportSummaryDTO;
+import priceComparator.dtos.ImportOptions;
+import priceComparator.dtos.ImportSummaryDTO;
+import priceComparator.repositories.DiscountRepository;
+import priceComparator.repositories.ProductRepository;
+import priceComparator.services.BulkImportService;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Imports zip archives: file names in any case, names of unknown kind, and archives over the extraction limits.
+ */
+@SpringBootTest(properties = {
+        "import.bulk.max-entries=4",
+        "import.bulk.max-uncompressed-bytes=4096"
+})
+@ActiveProfiles("test")
+public class BulkImportServiceTest {
+
+    private static final String PRODUCTS = "product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n"
+            + "P1;lapte zuzu;lactate;Zuzu;1;l;9.5;RON\n";
+
+    private static final String DISCOUNTS = "product_id;product_name;brand;package_quantity;package_unit;product_category;from_date;to_date;percentage_of_discount\n"
+            + "P1;lapte zuzu;Zuzu;1;l;lactate;2025-05-01;2025-05-07;10\n";
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private DiscountRepository discountRepo;
+
+    @BeforeEach
+    public void setUp() {
+        discountRepo.deleteAll();
+        productRepo.deleteAll();
+    }
+
+    @Test
+    public void testClassifiesNamesInAnyCaseAndRejectsUnknownKinds() throws Exception {
+        BulkImportSummaryDTO summary = bulkImportService.importArchive(zip(Map.of(
+                "Lidl_2025-05-01.CSV", PRODUCTS,
+                "Lidl_Discounts_2025-05-01.Csv", DISCOUNTS,
+                "Lidl_prices_2025-05-01.csv", PRODUCTS)), new ImportOptions());
+
+        Map<String, ImportSummaryDTO> results = summary.getResults().stream()
+                .collect(Collectors.toMap(ImportSummaryDTO::getFileName, Function.identity()));
+        assertThat(results.get("Lidl_2025-05-01.CSV").getError()).isNull();
+        assertThat(results.get("Lidl_Discounts_2025-05-01.Csv").getError()).isNull();
+        assertThat(results.get("Lidl_prices_2025-05-01.csv").getError()).contains("not supported");
+        assertThat(productRepo.count()).isEqualTo(1);
+        assertThat(discountRepo.count()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRejectsArchivesOverTheLimits() throws Exception {
+        assertThatThrownBy(() -> bulkImportService.importArchive(
+                zip(Map.of("Lidl_2025-05-01.csv", PRODUCTS + "P2;lapte;lactate;Zuzu;1;l;9.5;RON\n".repeat(200))),
+                new ImportOptions()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("4096 bytes");
+
+        assertThatThrownBy(() -> bulkImportService.importArchive(zip(Map.of(
+                "Lidl_2025-05-01.csv", PRODUCTS, "Lidl_2025-05-02.csv", PRODUCTS, "Lidl_2025-05-03.csv", PRODUCTS,
+                "Lidl_2025-05-04.csv", PRODUCTS, "Lidl_2025-05-05.csv", PRODUCTS)), new ImportOptions()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("more than 4 entries");
+        assertThat(productRepo.count()).isZero();
+    }
+
+    private MockMultipartFile zip(Map<String, String> files) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (Map.Entry<String, String> file : files.entrySet()) {
+                zip.putNextEntry(new ZipEntry(file.getKey()));
+                zip.write(file.getValue().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return new MockMultipartFile("file", "archive.zip", "application/zip", bytes.toByteArray());
+    }
+}
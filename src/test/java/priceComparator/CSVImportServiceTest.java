@@ -0,0 +1,107 @@
+package priceComparator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.ActiveProfiles;
+import priceComparator.dtos.ImportOptions;
+import priceComparator.dtos.ImportSummaryDTO;
+import priceComparator.dtos.PriceHistoryPointDTO;
+import priceComparator.models.Product;
+import priceComparator.repositories.ProductRepository;
+import priceComparator.services.CSVImportService;
+import priceComparator.services.PriceHistoryService;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports the same days of store files in full and in delta mode and checks that the price history is the same.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class CSVImportServiceTest {
+
+    private static final String HEADER = "product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n";
+
+    @Autowired
+    private CSVImportService csvImportService;
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @BeforeEach
+    public void clean() {
+        productRepo.deleteAll();
+    }
+
+    @Test
+    public void testDeltaImportGivesTheSameHistoryAsFullImport() throws Exception {
+        LocalDate today = LocalDate.now();
+        List<String> days = List.of(
+                "P1;Lapte;lactate;Zuzu;1;l;7.50;RON\nP2;Paine;panificatie;Boromir;500;g;4.20;RON\n",
+                // Nothing changed
+                "P1;Lapte;lactate;Zuzu;1;l;7.50;RON\nP2;Paine;panificatie;Boromir;500;g;4.20;RON\n",
+                // Same price, new package quantity and new brand
+                "P1;Lapte;lactate;Zuzu;1.5;l;7.50;RON\nP2;Paine;panificatie;Vel Pitar;500;g;4.20;RON\n",
+                // New price
+                "P1;Lapte;lactate;Zuzu;1.5;l;7.90;RON\nP2;Paine;panificatie;Vel Pitar;500;g;4.20;RON\n",
+                // Back to the first price
+                "P1;Lapte;lactate;Zuzu;1.5;l;7.50;RON\nP2;Paine;panificatie;Vel Pitar;500;g;4.20;RON\n"
+        );
+
+        importDays(days, today, false);
+        List<PriceHistoryPointDTO> fullMilk = history("lapte");
+        List<PriceHistoryPointDTO> fullBread = history("paine");
+        long fullRows = productRepo.count();
+
+        productRepo.deleteAll();
+        List<ImportSummaryDTO> summaries = importDays(days, today, true);
+
+        assertThat(history("lapte")).isEqualTo(fullMilk);
+        assertThat(history("paine")).isEqualTo(fullBread);
+        assertThat(fullRows).isEqualTo(10);
+        assertThat(productRepo.count()).isEqualTo(6);
+
+        // The metadata changes are stored like price changes
+        assertThat(summaries.get(1).getUnchangedRows()).isEqualTo(2);
+        assertThat(summaries.get(2).getChangedRows()).isEqualTo(2);
+        assertThat(summaries.get(3).getChangedRows()).isEqualTo(1);
+        Product milk = productRepo.findTopByProductIdAndStoreNameIgnoreCaseOrderByDateAddedDesc("P1", "Lidl").orElseThrow();
+        assertThat(milk.getPackageQuantity()).isEqualTo(1.5);
+        assertThat(fullBread).extracting(PriceHistoryPointDTO::getBrand).containsExactly("Boromir", "Vel Pitar");
+        assertThat(fullMilk).extracting(PriceHistoryPointDTO::getPrice).containsExactly(7.5, 7.5, 7.9, 7.5);
+    }
+
+    private List<ImportSummaryDTO> importDays(List<String> days, LocalDate today, boolean delta) throws Exception {
+        List<ImportSummaryDTO> summaries = new ArrayList<>();
+        for (int day = 0; day < days.size(); day++) {
+            ImportOptions options = new ImportOptions();
+            options.setDelta(delta);
+            LocalDate date = today.minusDays(days.size() - day);
+            summaries.add(csvImportService.importProductsBatched(csv("Lidl_" + date + ".csv", HEADER + days.get(day)), options));
+        }
+        return summaries;
+    }
+
+    private List<PriceHistoryPointDTO> history(String name) {
+        return priceHistoryService.getPriceHistory(name, Optional.empty(), Optional.empty(), Optional.empty());
+    }
+
+    private Resource csv(String filename, String content) {
+        return new ByteArrayResource(content.getBytes()) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+}
@@ -0,0 +1,170 @@
+package priceComparator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import priceComparator.models.Currency;
+import priceComparator.models.ImportJob;
+import priceComparator.models.PackageUnit;
+import priceComparator.models.Product;
+import priceComparator.repositories.ImportJobRepository;
+import priceComparator.repositories.ProductRepository;
+import priceComparator.services.ChunkWriter;
+import priceComparator.services.ImportJobService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that an instance resumes its own import jobs on startup and those of expired instances on startup and on
+ * its heartbeat, leaves the jobs of live instances alone, releases its jobs when it stops, and no longer commits
+ * chunks of a job another instance took over.
+ */
+@SpringBootTest(properties = {
+        "node-id=this-node"
+})
+@ActiveProfiles("test")
+public class ImportJobServiceTest {
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private ImportJobRepository importJobRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private ChunkWriter chunkWriter;
+
+    @BeforeEach
+    public void setUp() {
+        importJobRepo.deleteAll();
+        productRepo.deleteAll();
+    }
+
+    @Test
+    public void testResumesOnlyJobsOfThisOrExpiredInstances() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        ImportJob live = importJobRepo.save(job("other-node", now.plusMinutes(5), spool()));
+        ImportJob liveElsewhere = importJobRepo.save(job("other-node", now.plusMinutes(5), "/missing/job.csv"));
+        ImportJob expired = importJobRepo.save(job("crashed-node", now.minusMinutes(1), spool()));
+        ImportJob expiredElsewhere = importJobRepo.save(job("crashed-node", now.minusMinutes(1), "/missing/job.csv"));
+        ImportJob own = importJobRepo.save(job("this-node", now.plusMinutes(5), spool()));
+        ImportJob ownMissing = importJobRepo.save(job("this-node", now.plusMinutes(5), "/missing/job.csv"));
+
+        importJobService.resumeInterruptedJobs();
+        awaitStatus(expired.getId(), ImportJob.Status.COMPLETED);
+        awaitStatus(own.getId(), ImportJob.Status.COMPLETED);
+
+        assertThat(reload(live).getStatus()).isEqualTo(ImportJob.Status.RUNNING);
+        assertThat(reload(live).getOwnerNode()).isEqualTo("other-node");
+        assertThat(reload(liveElsewhere).getStatus()).isEqualTo(ImportJob.Status.RUNNING);
+        // The owner may still come back with the file
+        assertThat(reload(expiredElsewhere).getStatus()).isEqualTo(ImportJob.Status.RUNNING);
+        assertThat(reload(expiredElsewhere).getOwnerNode()).isEqualTo("crashed-node");
+        assertThat(reload(ownMissing).getStatus()).isEqualTo(ImportJob.Status.FAILED);
+
+        ImportJob takenOver = reload(expired);
+        assertThat(takenOver.getOwnerNode()).isEqualTo("this-node");
+        // Saving the job while it ran kept the lease renewed by the takeover
+        assertThat(takenOver.getLeaseUntil()).isAfter(now);
+        assertThat(takenOver.getRowsImported()).isEqualTo(2);
+    }
+
+    @Test
+    public void testHeartbeatTakesOverJobsExpiredSinceStartup() throws Exception {
+        // Left behind by this instance before a restart under another node id
+        ImportJob expired = importJobRepo.save(job("restarted-node", LocalDateTime.now().minusMinutes(1), spool()));
+        ImportJob live = importJobRepo.save(job("other-node", LocalDateTime.now().plusMinutes(5), spool()));
+
+        importJobService.renewLeases();
+        awaitStatus(expired.getId(), ImportJob.Status.COMPLETED);
+
+        assertThat(reload(expired).getOwnerNode()).isEqualTo("this-node");
+        assertThat(reload(expired).getRowsImported()).isEqualTo(2);
+        assertThat(reload(live).getStatus()).isEqualTo(ImportJob.Status.RUNNING);
+    }
+
+    @Test
+    @DirtiesContext
+    public void testStoppingReleasesTheLeases() throws Exception {
+        ImportJob own = importJobRepo.save(job("this-node", LocalDateTime.now().plusMinutes(5), spool()));
+        ImportJob other = importJobRepo.save(job("other-node", LocalDateTime.now().plusMinutes(5), spool()));
+
+        importJobService.stopWorkers();
+
+        assertThat(reload(own).getLeaseUntil()).isNull();
+        assertThat(reload(other).getLeaseUntil()).isNotNull();
+        // The restarted instance takes the job over without waiting for the lease to expire
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(importJobRepo.takeOver(own.getId(), Set.of(ImportJob.Status.RUNNING), "restarted-node", now,
+                now.plusMinutes(5))).isEqualTo(1);
+    }
+
+    @Test
+    public void testChunksOfAJobTakenOverAreRolledBack() throws Exception {
+        ImportJob job = importJobRepo.save(job("this-node", LocalDateTime.now().minusMinutes(1), spool()));
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(importJobRepo.takeOver(job.getId(), Set.of(ImportJob.Status.RUNNING), "other-node", now,
+                now.plusMinutes(5))).isEqualTo(1);
+
+        // This instance's copy of the job, still naming it as the owner
+        job.setRowOffset(1);
+        job.setRowsImported(1);
+        Product product = new Product(null, "P1", "lapte zuzu", "lactate", "Zuzu", PackageUnit.l, 1.0, 9.5,
+                Currency.RON, "Lidl", LocalDate.now());
+        assertThatThrownBy(() -> chunkWriter.writeChunk(List.of(product), job))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("taken over");
+
+        assertThat(productRepo.count()).isZero();
+        assertThat(reload(job).getRowOffset()).isZero();
+        assertThat(reload(job).getOwnerNode()).isEqualTo("other-node");
+    }
+
+    private ImportJob job(String owner, LocalDateTime leaseUntil, String spoolPath) {
+        ImportJob job = new ImportJob();
+        job.setType(ImportJob.Type.PRODUCTS);
+        job.setStatus(ImportJob.Status.RUNNING);
+        job.setFileName("Lidl_2025-05-01.csv");
+        job.setSpoolPath(spoolPath);
+        job.setChunkSize(1000);
+        job.setOwnerNode(owner);
+        job.setLeaseUntil(leaseUntil);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setUpdatedAt(job.getCreatedAt());
+        return job;
+    }
+
+    private String spool() throws Exception {
+        Path file = Files.createTempFile("job-", ".csv");
+        Files.writeString(file, "product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n"
+                + "P1;lapte zuzu;lactate;Zuzu;1;l;9.5;RON\n"
+                + "P2;iaurt grecesc;lactate;Olympus;0.4;kg;11.2;RON\n");
+        return file.toString();
+    }
+
+    private ImportJob reload(ImportJob job) {
+        return importJobRepo.findById(job.getId()).orElseThrow();
+    }
+
+    private void awaitStatus(Long id, ImportJob.Status status) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            if (importJobRepo.findById(id).orElseThrow().getStatus() == status) return;
+            Thread.sleep(100);
+        }
+        assertThat(importJobRepo.findById(id).orElseThrow().getStatus()).isEqualTo(status);
+    }
+}
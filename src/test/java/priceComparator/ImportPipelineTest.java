@@ -0,0 +1,68 @@
+package priceComparator;
+
+import org.junit.jupiter.api.Test;
+import priceComparator.services.ChunkWriter;
+import priceComparator.services.ImportPipeline;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class ImportPipelineTest {
+
+    @Test
+    public void testWriterErrorFailsSubmitAndFinish() {
+        AtomicInteger written = new AtomicInteger();
+        ChunkWriter failing = new ChunkWriter() {
+            @Override
+            public void writeChunk(List<?> entities) {
+                if (written.incrementAndGet() == 2) throw new OutOfMemoryError("test");
+            }
+        };
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            ImportPipeline pipeline = new ImportPipeline(failing, 2);
+            // More chunks than the queue holds: the writers keep draining after the error
+            assertThatThrownBy(() -> {
+                for (int i = 0; i < 100; i++) {
+                    pipeline.submit(List.of(i));
+                    Thread.sleep(1);
+                }
+            }).isInstanceOf(OutOfMemoryError.class);
+            assertThatThrownBy(pipeline::finish).isInstanceOf(OutOfMemoryError.class);
+        });
+    }
+
+    @Test
+    public void testAbortWaitsForTheWriters() {
+        CountDownLatch writing = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        ChunkWriter slow = new ChunkWriter() {
+            @Override
+            public void writeChunk(List<?> entities) {
+                writing.countDown();
+                // Like a JDBC call, not interruptible
+                long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200);
+                while (System.nanoTime() < end) Thread.onSpinWait();
+                finished.set(true);
+            }
+        };
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            ImportPipeline pipeline = new ImportPipeline(slow, 1);
+            pipeline.submit(List.of(1));
+            pipeline.submit(List.of(2));
+            writing.await();
+            pipeline.abort();
+            assertThat(finished).isTrue();
+            assertThatThrownBy(() -> pipeline.submit(List.of(3))).isInstanceOf(IllegalStateException.class);
+        });
+    }
+}
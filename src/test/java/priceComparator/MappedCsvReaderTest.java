@@ -0,0 +1,114 @@
+package priceComparator;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReaderBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import priceComparator.models.Currency;
+import priceComparator.models.PackageUnit;
+import priceComparator.utils.CsvRowReader;
+import priceComparator.utils.MappedCsvReader;
+import priceComparator.utils.OpenCsvRowReader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MappedCsvReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReadsSameFieldsAsOpenCsv() throws IOException {
+        String csv = "product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n"
+                + "P001;lapte zuzu;lactate;Zuzu;1;l;9.5;RON\n"
+                + "P002;ciocolată neagră 70%;dulciuri;Heidi;100;g;11.99;ron\r\n"
+                + "P003;\"spaghete; nr.5\";paste;Barilla;0.5;kg;-5.25;EUR\n"
+                + "\n"
+                + "P004;\"vin \"\"rosu\"\"\";bauturi;Cotnari;0.75;l;1e1;USD";
+        Path file = write(csv);
+
+        List<List<Object>> expected = readAll(new OpenCsvRowReader(new CSVReaderBuilder(Files.newBufferedReader(file))
+                .withCSVParser(new CSVParserBuilder().withSeparator(';').build())
+                .build()));
+        List<List<Object>> actual = readAll(new MappedCsvReader(file, ';'));
+
+        // OpenCSV returns the empty line as a row, the mapped reader skips it
+        expected.removeIf(row -> row.size() == 1);
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void testRowsSpanningMappingWindows() throws IOException {
+        StringBuilder csv = new StringBuilder("\uFEFFid;date;percentage\n");
+        for (int i = 0; i < 500; i++) {
+            csv.append("P").append(i).append(";2025-05-").append(String.format("%02d", i % 28 + 1)).append(';').append(i % 100).append('\n');
+        }
+        Path file = write(csv.toString());
+
+        try (MappedCsvReader reader = new MappedCsvReader(file, ';', 64)) {
+            assertThat(reader.next()).isTrue();
+            assertThat(reader.getString(0)).isEqualTo("id");
+
+            for (int i = 0; i < 500; i++) {
+                assertThat(reader.next()).isTrue();
+                assertThat(reader.getString(0)).isEqualTo("P" + i);
+                assertThat(reader.getDate(1).getDayOfMonth()).isEqualTo(i % 28 + 1);
+                assertThat(reader.getInt(2)).isEqualTo(i % 100);
+            }
+            assertThat(reader.next()).isFalse();
+        }
+    }
+
+    @Test
+    public void testUnknownEnumFailsLikeValueOf() throws IOException {
+        Path file = write("P001;litri\n");
+
+        try (MappedCsvReader reader = new MappedCsvReader(file, ';')) {
+            assertThat(reader.next()).isTrue();
+            assertThatThrownBy(() -> reader.getEnum(1, PackageUnit.class, false))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = tempDir.resolve("Lidl_2025-05-01.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    /**
+     * Reads every row through the typed accessors used by the importer.
+     */
+    private List<List<Object>> readAll(CsvRowReader reader) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        try (reader) {
+            boolean header = true;
+            while (reader.next()) {
+                List<Object> row = new ArrayList<>();
+                if (header || reader.fieldCount() < 8) {
+                    for (int i = 0; i < reader.fieldCount(); i++) row.add(reader.getString(i));
+                } else {
+                    row.add(reader.getString(0));
+                    row.add(reader.getString(1));
+                    row.add(reader.getSharedString(2));
+                    row.add(reader.getSharedString(3));
+                    row.add(reader.getDouble(4));
+                    row.add(reader.getEnum(5, PackageUnit.class, false));
+                    row.add(reader.getDouble(6));
+                    row.add(reader.getEnum(7, Currency.class, true));
+                }
+                header = false;
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
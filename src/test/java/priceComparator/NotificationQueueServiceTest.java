@@ -0,0 +1,202 @@
+package priceComparator;
+
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import priceComparator.dtos.AlertCheckSummaryDTO;
+import priceComparator.models.AlertCheckRun;
+import priceComparator.models.Currency;
+import priceComparator.models.NotificationMessage;
+import priceComparator.models.PackageUnit;
+import priceComparator.models.PriceAlert;
+import priceComparator.models.Product;
+import priceComparator.repositories.AlertCheckRunRepository;
+import priceComparator.repositories.NotificationMessageRepository;
+import priceComparator.repositories.PriceAlertRepository;
+import priceComparator.repositories.ProductRepository;
+import priceComparator.services.NotificationQueueService;
+import priceComparator.services.PriceAlertService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Sends the queued notifications to an in-process SMTP server (GreenMail) on an in-memory database.
+ */
+@SpringBootTest(properties = {
+        "spring.mail.port=3025",
+        "notifications.poll-interval-ms=3600000",
+        "notifications.rate-per-second=1000",
+        "notifications.retry-backoff-ms=0",
+        "notifications.max-attempts=2"
+})
+@ActiveProfiles("test")
+public class NotificationQueueServiceTest {
+
+    @RegisterExtension
+    static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+    @Autowired
+    private NotificationQueueService notificationQueue;
+
+    @Autowired
+    private NotificationMessageRepository messageRepo;
+
+    @Autowired
+    private PriceAlertRepository alertRepo;
+
+    @Autowired
+    private PriceAlertService alertService;
+
+    @Autowired
+    private AlertCheckRunRepository checkRunRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @BeforeEach
+    public void clearQueue() {
+        messageRepo.deleteAll();
+        alertRepo.deleteAll();
+        checkRunRepo.deleteAll();
+        productRepo.deleteAll();
+    }
+
+    @Test
+    public void testCoalescesMessagesPerRecipient() throws Exception {
+        List<PriceAlert> alerts = List.of(
+                alert("ana@test.ro", "lapte zuzu"),
+                alert("ana@test.ro", "spaghetti nr.5"),
+                alert("ion@test.ro", "lapte zuzu"));
+        enqueue(alerts);
+
+        assertThat(alertRepo.findAll()).allMatch(PriceAlert::isNotified);
+        assertThat(notificationQueue.dispatchDue()).isEqualTo(2);
+
+        MimeMessage[] received = greenMail.getReceivedMessages();
+        assertThat(received).hasSize(2);
+        Map<String, String> bodyByRecipient = new HashMap<>();
+        for (MimeMessage message : received) {
+            bodyByRecipient.put(GreenMailUtil.getAddressList(message.getAllRecipients()), GreenMailUtil.getBody(message));
+        }
+        assertThat(bodyByRecipient.get("ana@test.ro")).contains("lapte zuzu", "spaghetti nr.5");
+        assertThat(bodyByRecipient.get("ion@test.ro")).contains("lapte zuzu").doesNotContain("spaghetti");
+
+        assertThat(messageRepo.findAll()).allMatch(message -> message.getStatus() == NotificationMessage.Status.SENT);
+        assertThat(notificationQueue.dispatchDue()).isZero();
+    }
+
+    @Test
+    public void testRetriesUntilMaxAttempts() {
+        List<PriceAlert> alerts = List.of(alert("ana@test.ro", "lapte zuzu"));
+        enqueue(alerts);
+
+        // SMTP server down: the message stays queued for a retry
+        greenMail.stop();
+        assertThat(notificationQueue.dispatchDue()).isZero();
+        NotificationMessage message = messageRepo.findAll().get(0);
+        assertThat(message.getStatus()).isEqualTo(NotificationMessage.Status.PENDING);
+        assertThat(message.getAttempts()).isEqualTo(1);
+        assertThat(message.getLastError()).isNotNull();
+
+        // Second failure reaches notifications.max-attempts
+        assertThat(notificationQueue.dispatchDue()).isZero();
+        assertThat(messageRepo.findAll().get(0).getStatus()).isEqualTo(NotificationMessage.Status.FAILED);
+        greenMail.start();
+    }
+
+    @Test
+    public void testDeliversAfterServerRecovers() {
+        List<PriceAlert> alerts = List.of(alert("ana@test.ro", "lapte zuzu"));
+        enqueue(alerts);
+
+        greenMail.stop();
+        assertThat(notificationQueue.dispatchDue()).isZero();
+        greenMail.start();
+
+        assertThat(notificationQueue.dispatchDue()).isEqualTo(1);
+        assertThat(greenMail.getReceivedMessages()).hasSize(1);
+        NotificationMessage message = messageRepo.findAll().get(0);
+        assertThat(message.getStatus()).isEqualTo(NotificationMessage.Status.SENT);
+        assertThat(message.getAttempts()).isEqualTo(2);
+    }
+
+    @Test
+    public void testCheckRunsAreSharedNotAlignedToTheMinute() {
+        // Products missing from the catalog: checked, never triggered
+        alert("ana@test.ro", "lapte zuzu");
+        alert("ion@test.ro", "spaghetti nr.5");
+
+        // Back to back checks of one instance are separate runs, each checks every alert
+        AlertCheckSummaryDTO first = alertService.checkAndTriggerAlerts();
+        AlertCheckSummaryDTO second = alertService.checkAndTriggerAlerts();
+        assertThat(first.getAlertsChecked()).isEqualTo(2);
+        assertThat(second.getAlertsChecked()).isEqualTo(2);
+        assertThat(second.getRunStartedAt()).isAfterOrEqualTo(first.getRunStartedAt());
+        assertThat(checkRunRepo.findById(AlertCheckRun.CURRENT).orElseThrow().getActiveInstances()).isZero();
+
+        // Another instance is still checking: this one joins its run and skips what it already checked
+        LocalDateTime now = LocalDateTime.now();
+        assertThat(checkRunRepo.start(AlertCheckRun.CURRENT, now, now.plusMinutes(5))).isEqualTo(1);
+        LocalDateTime runStart = checkRunRepo.findById(AlertCheckRun.CURRENT).orElseThrow().getStartedAt();
+        alertRepo.findAll().forEach(alert -> {
+            alert.setCheckedAt(runStart.plusSeconds(1));
+            alertRepo.save(alert);
+        });
+        alert("dan@test.ro", "ciocolata neagra 70%");
+
+        AlertCheckSummaryDTO joined = alertService.checkAndTriggerAlerts();
+        assertThat(joined.getRunStartedAt()).isEqualTo(runStart);
+        assertThat(joined.getAlertsChecked()).isEqualTo(1);
+        assertThat(checkRunRepo.findById(AlertCheckRun.CURRENT).orElseThrow().getActiveInstances()).isEqualTo(1);
+    }
+
+    @Test
+    public void testImportsTriggerAlertsCreatedOnOtherInstances() {
+        // Loads this instance's alert index
+        assertThat(alertService.checkAndTriggerAlerts(List.of("lapte zuzu"))).isEmpty();
+
+        // Created on another instance, so only in the database
+        PriceAlert alert = alert("ana@test.ro", "lapte zuzu");
+        productRepo.save(new Product(null, "P1", "Lapte Zuzu", "lactate", "Zuzu", PackageUnit.l, 1.0, 7.5,
+                Currency.RON, "Lidl", LocalDate.now()));
+
+        List<PriceAlert> triggered = alertService.checkAndTriggerAlerts(List.of("Lapte Zuzu"));
+        assertThat(triggered).extracting(PriceAlert::getId).containsExactly(alert.getId());
+        assertThat(alertRepo.findById(alert.getId()).orElseThrow().isNotified()).isTrue();
+    }
+
+    private PriceAlert alert(String email, String productName) {
+        PriceAlert alert = new PriceAlert();
+        alert.setUserEmail(email);
+        alert.setProductName(productName);
+        alert.setTargetPrice(8);
+        alert.setCreatedAt(LocalDate.now());
+        return alertRepo.save(alert);
+    }
+
+    /**
+     * Leases the alerts to the test, as a checking worker would, and triggers them at 7.5 RON.
+     */
+    private void enqueue(List<PriceAlert> alerts) {
+        List<Long> ids = alerts.stream().map(PriceAlert::getId).toList();
+        LocalDateTime now = LocalDateTime.now();
+        alertRepo.claim(ids, "test", now, now.plusMinutes(5));
+
+        Map<Long, Double> prices = alerts.stream().collect(Collectors.toMap(PriceAlert::getId, alert -> 7.5));
+        assertThat(notificationQueue.markNotifiedAndEnqueue(alerts, prices, "test")).hasSameSizeAs(alerts);
+    }
+}
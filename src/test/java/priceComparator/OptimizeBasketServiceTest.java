@@ -0,0 +1,66 @@
+package priceComparator;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import priceComparator.dtos.ConstrainedBasketRequest;
+import priceComparator.services.OptimizeBasketService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs concurrent basket batches on the shared pool with fewer permits than baskets, one of them failing at its first result.
+ */
+@SpringBootTest(properties = {
+        "basket.batch.parallelism=2",
+        "basket.batch.max-in-flight=3"
+})
+@ActiveProfiles("test")
+public class OptimizeBasketServiceTest {
+
+    @Autowired
+    private OptimizeBasketService optimizeBasketService;
+
+    @Test
+    public void testConcurrentBatchesShareThePool() throws Exception {
+        List<ConstrainedBasketRequest> baskets = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            ConstrainedBasketRequest basket = new ConstrainedBasketRequest();
+            basket.setId("b" + i);
+            basket.setItems(List.of("lapte zuzu", "paine " + i));
+            baskets.add(basket);
+        }
+
+        // A client going away at the first result releases its permits
+        assertThatThrownBy(() -> optimizeBasketService.optimizeBaskets(baskets, result -> {
+            throw new IOException("Client went away");
+        })).isInstanceOf(IOException.class);
+
+        try (ExecutorService clients = Executors.newFixedThreadPool(4)) {
+            List<Future<Set<Integer>>> batches = new ArrayList<>();
+            for (int client = 0; client < 4; client++) {
+                batches.add(clients.submit(() -> {
+                    Set<Integer> indexes = ConcurrentHashMap.newKeySet();
+                    optimizeBasketService.optimizeBaskets(baskets, result -> indexes.add(result.getIndex()));
+                    return indexes;
+                }));
+            }
+            for (Future<Set<Integer>> batch : batches) {
+                // A leaked permit would leave the batches waiting
+                assertThat(batch.get(30, TimeUnit.SECONDS)).hasSize(baskets.size());
+            }
+        }
+    }
+}
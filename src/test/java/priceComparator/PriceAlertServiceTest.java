@@ -0,0 +1,130 @@
+package priceComparator;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.context.ActiveProfiles;
+import priceComparator.dtos.AlertRequest;
+import priceComparator.dtos.BulkAlertResultDTO;
+import priceComparator.dtos.BulkAlertResultDTO.Status;
+import priceComparator.models.Currency;
+import priceComparator.models.PackageUnit;
+import priceComparator.models.PriceAlert;
+import priceComparator.models.Product;
+import priceComparator.repositories.PriceAlertRepository;
+import priceComparator.repositories.ProductRepository;
+import priceComparator.services.PriceAlertIndex;
+import priceComparator.services.PriceAlertService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Creates alerts in bulk: rows rejected by the validation or the catalog, chunks rolled back by the database,
+ * and the saved alerts added to the in-memory index.
+ */
+@SpringBootTest(properties = {
+        "alerts.bulk.chunk-size=2"
+})
+@ActiveProfiles("test")
+public class PriceAlertServiceTest {
+
+    @Autowired
+    private PriceAlertService alertService;
+
+    @Autowired
+    private PriceAlertIndex alertIndex;
+
+    @Autowired
+    private PriceAlertRepository alertRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @BeforeEach
+    public void setUp() {
+        alertRepo.deleteAll();
+        productRepo.deleteAll();
+        productRepo.save(new Product(null, "P1", "Lapte Zuzu", "lactate", "Zuzu", PackageUnit.l, 1.0, 9.5,
+                Currency.RON, "Lidl", LocalDate.now()));
+        alertIndex.reload();
+    }
+
+    @Test
+    public void testReportsTheStatusOfEveryRow() throws Exception {
+        // Too long for the email column: the insert of its chunk fails
+        String tooLong = "a".repeat(300) + "@test.ro";
+        String csv = "email;product_name;target_price\n"
+                + "ana@test.ro;lapte zuzu;8\n"
+                + "not-an-email;lapte zuzu;8\n"
+                + "ana@test.ro;lapte zuzu;abc\n"
+                + "ana@test.ro\n"
+                + "ion@test.ro;paine;5\n"
+                + "ion@test.ro;LAPTE ZUZU;7\n"
+                + tooLong + ";lapte zuzu;6\n"
+                + "maria@test.ro;lapte zuzu;9\n"
+                + "maria@test.ro; Lapte Zuzu ;10\n";
+
+        BulkAlertResultDTO result = alertService.createAlerts(new ByteArrayResource(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getRows()).extracting(BulkAlertResultDTO.Row::getIndex).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8);
+        assertThat(result.getRows()).extracting(BulkAlertResultDTO.Row::getStatus).containsExactly(
+                Status.CREATED, Status.INVALID, Status.INVALID, Status.INVALID, Status.UNKNOWN_PRODUCT,
+                Status.CREATED, Status.FAILED, Status.FAILED, Status.CREATED);
+        assertThat(result.getRows().get(1).getError()).isEqualTo("Invalid email");
+        assertThat(result.getRows().get(2).getError()).isEqualTo("Target price must be a positive number");
+        assertThat(result.getRows().get(3).getError()).isEqualTo("Missing product name");
+        assertThat(result.getRows().get(4).getError()).contains("paine");
+        assertThat(result.getRows().get(7).getError()).startsWith("Could not be saved");
+        assertThat(result.getCreated()).isEqualTo(3);
+        assertThat(result.getRejected()).isEqualTo(6);
+
+        // Only the rows reported created were saved, with the reported ids
+        List<Long> createdIds = result.getRows().stream()
+                .filter(row -> row.getStatus() == Status.CREATED)
+                .map(BulkAlertResultDTO.Row::getAlertId)
+                .toList();
+        assertThat(createdIds).doesNotContainNull();
+        assertThat(alertRepo.findAll()).extracting(PriceAlert::getId).containsExactlyInAnyOrderElementsOf(createdIds);
+        assertThat(result.getRows()).filteredOn(row -> row.getStatus() != Status.CREATED)
+                .extracting(BulkAlertResultDTO.Row::getAlertId).containsOnlyNulls();
+        assertThat(alertRepo.findAll()).extracting(PriceAlert::getProductName)
+                .containsOnly("lapte zuzu", "LAPTE ZUZU", "Lapte Zuzu");
+
+        // The saved alerts are checked without reloading the index
+        assertThat(alertIndex.alertsReachedBy("lapte zuzu", 0.01)).containsExactlyInAnyOrderElementsOf(createdIds);
+        assertThat(alertIndex.alertsReachedBy("lapte zuzu", 7.5)).containsExactlyInAnyOrder(
+                result.getRows().get(0).getAlertId(), result.getRows().get(8).getAlertId());
+    }
+
+    @Test
+    public void testRejectsMissingAlertsAndPrices() {
+        AlertRequest valid = request("ana@test.ro", "lapte zuzu", 8.0);
+        BulkAlertResultDTO result = alertService.createAlerts(Arrays.asList(
+                valid, null, request("ana@test.ro", "lapte zuzu", null), request("ana@test.ro", "lapte zuzu", -1.0),
+                request("ana@test.ro", " ", 8.0)));
+
+        assertThat(result.getRows()).extracting(BulkAlertResultDTO.Row::getStatus).containsExactly(
+                Status.CREATED, Status.INVALID, Status.INVALID, Status.INVALID, Status.INVALID);
+        assertThat(result.getRows().get(1).getError()).isEqualTo("Missing alert");
+        assertThat(alertRepo.count()).isEqualTo(1);
+        assertThat(alertIndex.watchedNames()).containsExactly("lapte zuzu");
+        assertThat(result.getRows()).extracting(BulkAlertResultDTO.Row::getAlertId).filteredOn(Objects::nonNull)
+                .containsExactly(alertRepo.findAll().get(0).getId());
+    }
+
+    private AlertRequest request(String email, String productName, Double targetPrice) {
+        AlertRequest request = new AlertRequest();
+        request.setEmail(email);
+        request.setProductName(productName);
+        request.setTargetPrice(targetPrice);
+        return request;
+    }
+}
@@ -0,0 +1,103 @@
+package priceComparator;
+
+import org.junit.jupiter.api.Test;
+import priceComparator.dtos.PriceHistoryBucketDTO;
+import priceComparator.dtos.PriceHistoryBucketDTO.Resolution;
+import priceComparator.dtos.PriceHistoryPointDTO;
+import priceComparator.services.PriceHistoryAggregator;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PriceHistoryAggregatorTest {
+
+    // A Monday
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    private final PriceHistoryAggregator aggregator = new PriceHistoryAggregator();
+
+    @Test
+    public void testWeeklyBuckets() {
+        List<PriceHistoryPointDTO> history = List.of(
+                segment("Lidl", 0, 3, 10.0, false),
+                segment("Lidl", 3, 5, 5.0, true),
+                segment("Lidl", 5, 10, 10.0, false),
+                segment("Lidl", 10, 12, 12.0, false));
+
+        // The latest segment covers today (day 12) too
+        assertThat(aggregator.aggregate(history, Resolution.WEEK, null, null)).containsExactly(
+                new PriceHistoryBucketDTO("Lidl", START, START.plusDays(7), 5.0, 10.0, 8.57, 10.0, 7, 2),
+                new PriceHistoryBucketDTO("Lidl", START.plusDays(7), START.plusDays(14), 10.0, 12.0, 11.0, 12.0, 6, 0));
+
+        // Bounded to days 4..8
+        assertThat(aggregator.aggregate(history, Resolution.MONTH, START.plusDays(4), START.plusDays(8))).containsExactly(
+                new PriceHistoryBucketDTO("Lidl", START, START.plusMonths(1), 5.0, 10.0, 9.0, 10.0, 5, 1));
+    }
+
+    @Test
+    public void testMatchesDailyPrices() {
+        Random random = new Random(7);
+
+        for (int round = 0; round < 200; round++) {
+            List<PriceHistoryPointDTO> history = new ArrayList<>();
+            for (String store : new String[]{"Lidl", "Profi"}) {
+                int day = random.nextInt(40);
+                int segments = 1 + random.nextInt(30);
+                for (int i = 0; i < segments; i++) {
+                    int length = random.nextInt(20);
+                    history.add(segment(store, day, day + length, 5 + random.nextInt(5), random.nextBoolean()));
+                    day += length;
+                }
+            }
+            LocalDate from = random.nextBoolean() ? START.plusDays(random.nextInt(100)) : null;
+            LocalDate to = random.nextBoolean() ? START.plusDays(100 + random.nextInt(400)) : null;
+
+            for (Resolution resolution : Resolution.values()) {
+                assertThat(aggregator.aggregate(history, resolution, from, to))
+                        .isEqualTo(fromDailyPrices(history, resolution, from, to));
+            }
+        }
+    }
+
+    /**
+     * Reference: the price of every day, with the latest segment of a store covering its end day, then grouped.
+     */
+    private List<PriceHistoryBucketDTO> fromDailyPrices(List<PriceHistoryPointDTO> history, Resolution resolution,
+                                                        LocalDate from, LocalDate to) {
+        Map<String, TreeMap<LocalDate, PriceHistoryPointDTO>> days = new LinkedHashMap<>();
+        Map<String, PriceHistoryPointDTO> latest = new HashMap<>();
+        for (PriceHistoryPointDTO segment : history) {
+            TreeMap<LocalDate, PriceHistoryPointDTO> storeDays = days.computeIfAbsent(segment.getStoreName(), store -> new TreeMap<>());
+            for (LocalDate day = segment.getDateFrom(); day.isBefore(segment.getDateTo()); day = day.plusDays(1)) {
+                storeDays.putIfAbsent(day, segment);
+            }
+            latest.put(segment.getStoreName(), segment);
+        }
+        latest.forEach((store, segment) -> days.get(store).putIfAbsent(segment.getDateTo(), segment));
+
+        List<PriceHistoryBucketDTO> buckets = new ArrayList<>();
+        for (TreeMap<LocalDate, PriceHistoryPointDTO> storeDays : days.values()) {
+            Map<LocalDate, List<PriceHistoryPointDTO>> byBucket = new TreeMap<>();
+            storeDays.forEach((day, segment) -> {
+                if ((from == null || !day.isBefore(from)) && (to == null || !day.isAfter(to))) {
+                    byBucket.computeIfAbsent(resolution.bucketStart(day), start -> new ArrayList<>()).add(segment);
+                }
+            });
+            byBucket.forEach((start, segments) -> buckets.add(new PriceHistoryBucketDTO(
+                    segments.get(0).getStoreName(), start, resolution.nextBucketStart(start),
+                    segments.stream().mapToDouble(PriceHistoryPointDTO::getPrice).min().orElseThrow(),
+                    segments.stream().mapToDouble(PriceHistoryPointDTO::getPrice).max().orElseThrow(),
+                    Math.round(segments.stream().mapToDouble(PriceHistoryPointDTO::getPrice).average().orElseThrow() * 100) / 100.0,
+                    segments.get(segments.size() - 1).getPrice(),
+                    segments.size(),
+                    (int) segments.stream().filter(PriceHistoryPointDTO::isDiscounted).count())));
+        }
+        return buckets;
+    }
+
+    private PriceHistoryPointDTO segment(String store, int fromDay, int toDay, double price, boolean discounted) {
+        return new PriceHistoryPointDTO(START.plusDays(fromDay), START.plusDays(toDay), price, discounted, store, "Zuzu");
+    }
+}
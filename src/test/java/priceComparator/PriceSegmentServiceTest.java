@@ -0,0 +1,140 @@
+package priceComparator;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.ActiveProfiles;
+import priceComparator.dtos.ImportOptions;
+import priceComparator.dtos.PriceHistoryPointDTO;
+import priceComparator.models.Discount;
+import priceComparator.models.Product;
+import priceComparator.repositories.DiscountRepository;
+import priceComparator.repositories.PriceSegmentRepository;
+import priceComparator.repositories.ProductRepository;
+import priceComparator.services.CSVImportService;
+import priceComparator.services.PriceHistoryService;
+import priceComparator.services.PriceSegmentService;
+import priceComparator.services.PriceTimelineBuilder;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports product and discount files out of date order and checks that the incrementally maintained segments
+ * give the same history as building it from the raw entries.
+ */
+@SpringBootTest(properties = {
+        "price-history.segments.enabled=true"
+})
+@ActiveProfiles("test")
+public class PriceSegmentServiceTest {
+
+    private static final String[] STORES = {"Lidl", "Kaufland"};
+
+    @Autowired
+    private CSVImportService csvImportService;
+
+    @Autowired
+    private PriceHistoryService priceHistoryService;
+
+    @Autowired
+    private PriceSegmentService priceSegmentService;
+
+    @Autowired
+    private PriceSegmentRepository segmentRepo;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private DiscountRepository discountRepo;
+
+    @Test
+    public void testIncrementalSegmentsMatchRawHistory() throws Exception {
+        Random random = new Random(5);
+        LocalDate today = LocalDate.now();
+        List<Integer> days = new ArrayList<>();
+        for (int day = 0; day < 25; day++) days.add(day);
+        Collections.shuffle(days, random);
+
+        // Discounts of a product in a store don't overlap (one active discount per product and store)
+        Map<String, Integer> nextFreeDay = new HashMap<>();
+        for (int day : days) {
+            LocalDate date = today.minusDays(30 - day);
+            for (String store : STORES) {
+                StringBuilder products = new StringBuilder("product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n");
+                for (int i = 0; i < 6; i++) {
+                    if (random.nextInt(4) == 0) continue;
+                    products.append("P").append(i).append(";Lapte ").append(i).append(";lactate;Zuzu;1;l;")
+                            .append(5 + random.nextInt(3)).append(";RON\n");
+                }
+                csvImportService.importProductsBatched(csv(store + "_" + date + ".csv", products), new ImportOptions());
+
+                if (random.nextBoolean()) {
+                    StringBuilder discounts = new StringBuilder("product_id;product_name;brand;package_quantity;package_unit;product_category;from_date;to_date;percentage_of_discount\n");
+                    for (int i = 0; i < 6; i++) {
+                        int from = Math.max(nextFreeDay.getOrDefault(store + i, 0), random.nextInt(40));
+                        int to = from + random.nextInt(6);
+                        nextFreeDay.put(store + i, to + 1);
+                        discounts.append("P").append(i).append(";lapte ").append(i).append(";Zuzu;1;l;lactate;")
+                                .append(today.minusDays(30 - from)).append(";").append(today.minusDays(30 - to)).append(";")
+                                .append(10 + random.nextInt(30)).append("\n");
+                    }
+                    csvImportService.importDiscountsBatched(csv(store + "_discounts_" + date + ".csv", discounts), new ImportOptions());
+                }
+            }
+
+            for (int i = 0; i < 6; i++) {
+                assertThat(history("lapte " + i, null)).isEqualTo(rawHistory("lapte " + i, null));
+                assertThat(history("LAPTE " + i, "kaufland")).isEqualTo(rawHistory("LAPTE " + i, "kaufland"));
+            }
+        }
+
+        // Many products at once, in one streamed query
+        Map<String, List<PriceHistoryPointDTO>> histories = new LinkedHashMap<>();
+        priceHistoryService.streamPriceHistories(List.of("Lapte 0", "lapte 3", "nothing", "LAPTE 5", "lapte 0"),
+                Optional.empty(), Optional.empty(), Optional.empty(), histories::put);
+        assertThat(histories.keySet()).containsExactlyInAnyOrder("Lapte 0", "lapte 3", "LAPTE 5", "nothing");
+        assertThat(histories.get("nothing")).isEmpty();
+        for (String name : List.of("Lapte 0", "lapte 3", "LAPTE 5")) {
+            assertThat(histories.get(name)).isEqualTo(history(name, null));
+        }
+
+        // A full rebuild gives the same rows as the incremental updates
+        long incrementalRows = segmentRepo.count();
+        segmentRepo.deleteAll();
+        priceSegmentService.rebuildAll();
+        assertThat(segmentRepo.count()).isEqualTo(incrementalRows);
+        assertThat(history("lapte 1", null)).isEqualTo(rawHistory("lapte 1", null));
+    }
+
+    private List<PriceHistoryPointDTO> history(String name, String store) {
+        return priceHistoryService.getPriceHistory(name, Optional.ofNullable(store), Optional.empty(), Optional.empty());
+    }
+
+    /**
+     * The history built from the raw entries, with the discounts in date order.
+     */
+    private List<PriceHistoryPointDTO> rawHistory(String name, String store) {
+        Map<String, List<Product>> groupedByStore = productRepo.findFilteredProducts(name, store, null, null).stream()
+                .sorted(Comparator.comparing(Product::getDateAdded).thenComparing(Product::getId))
+                .collect(Collectors.groupingBy(p -> p.getStoreName().toLowerCase()));
+        List<Discount> discounts = new ArrayList<>(discountRepo.findByNameIgnoreCase(name));
+        discounts.sort(Comparator.comparing(Discount::getDateFrom).thenComparing(Discount::getId));
+        return new PriceTimelineBuilder().build(groupedByStore, discounts, LocalDate.now());
+    }
+
+    private Resource csv(String filename, StringBuilder content) {
+        return new ByteArrayResource(content.toString().getBytes()) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+}
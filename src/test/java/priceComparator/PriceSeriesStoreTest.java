@@ -0,0 +1,117 @@
+package priceComparator;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.ActiveProfiles;
+import priceComparator.dtos.ImportOptions;
+import priceComparator.dtos.PriceHistoryPointDTO;
+import priceComparator.models.Discount;
+import priceComparator.models.Product;
+import priceComparator.repositories.DiscountRepository;
+import priceComparator.repositories.ProductRepository;
+import priceComparator.services.CSVImportService;
+import priceComparator.services.PriceSeriesStore;
+import priceComparator.services.PriceTimelineBuilder;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Imports product and discount files out of date order and checks the in-memory series against the database.
+ */
+@SpringBootTest(properties = {
+        "price-series.enabled=true"
+})
+@ActiveProfiles("test")
+public class PriceSeriesStoreTest {
+
+    private static final String[] STORES = {"Lidl", "Kaufland"};
+
+    @Autowired
+    private CSVImportService csvImportService;
+
+    @Autowired
+    private PriceSeriesStore priceSeriesStore;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private DiscountRepository discountRepo;
+
+    @Test
+    public void testSeriesFollowImports() throws Exception {
+        assertThat(priceSeriesStore.isReady()).isTrue();
+
+        Random random = new Random(11);
+        LocalDate today = LocalDate.now();
+        List<Integer> days = new ArrayList<>();
+        for (int day = 0; day < 20; day++) days.add(day);
+        Collections.shuffle(days, random);
+
+        for (int day : days) {
+            LocalDate date = today.minusDays(25 - day);
+            for (String store : STORES) {
+                StringBuilder products = new StringBuilder("product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n");
+                for (int i = 0; i < 5; i++) {
+                    if (random.nextInt(4) == 0) continue;
+                    products.append("P").append(i).append(";Lapte ").append(i).append(";lactate;")
+                            .append(random.nextInt(5) == 0 ? "Napolact" : "Zuzu").append(";1;l;")
+                            .append(5 + random.nextInt(3)).append(".").append(random.nextInt(100)).append(";RON\n");
+                }
+                csvImportService.importProductsBatched(csv(store + "_" + date + ".csv", products), new ImportOptions());
+
+                if (random.nextInt(3) == 0) {
+                    StringBuilder discounts = new StringBuilder("product_id;product_name;brand;package_quantity;package_unit;product_category;from_date;to_date;percentage_of_discount\n");
+                    int from = random.nextInt(30);
+                    discounts.append("P1;lapte 1;Zuzu;1;l;lactate;").append(today.minusDays(25 - from)).append(";")
+                            .append(today.minusDays(25 - from - random.nextInt(5))).append(";")
+                            .append(10 + random.nextInt(30)).append("\n");
+                    csvImportService.importDiscountsBatched(csv(store + "_discounts_" + date + ".csv", discounts), new ImportOptions());
+                }
+            }
+
+            for (int i = 0; i < 5; i++) {
+                String name = "lapte " + i;
+                assertThat(priceSeriesStore.getPriceHistory(name, null, null, null, today))
+                        .isEqualTo(rawHistory(name, null, null));
+                assertThat(priceSeriesStore.getPriceHistory(name.toUpperCase(), "KAUFLAND", null, "zuzu", today))
+                        .isEqualTo(rawHistory(name, "kaufland", "zuzu"));
+
+                for (String store : STORES) {
+                    Optional<Product> expected = productRepo.findTopByProductIdAndStoreNameIgnoreCaseOrderByDateAddedDesc("P" + i, store);
+                    Optional<Product> latest = priceSeriesStore.getLatestEntry("P" + i, store);
+                    assertThat(latest.map(Product::getDateAdded)).isEqualTo(expected.map(Product::getDateAdded));
+                    assertThat(latest.map(Product::getPrice)).isEqualTo(expected.map(Product::getPrice));
+                }
+            }
+        }
+    }
+
+    /**
+     * The history built from the database entries, with the discounts in date order.
+     */
+    private List<PriceHistoryPointDTO> rawHistory(String name, String store, String brand) {
+        Map<String, List<Product>> groupedByStore = productRepo.findFilteredProducts(name, store, null, brand).stream()
+                .sorted(Comparator.comparing(Product::getDateAdded))
+                .collect(Collectors.groupingBy(p -> p.getStoreName().toLowerCase()));
+        List<Discount> discounts = new ArrayList<>(discountRepo.findByNameIgnoreCase(name));
+        discounts.sort(Comparator.comparing(Discount::getDateFrom).thenComparing(Discount::getId));
+        return new PriceTimelineBuilder().build(groupedByStore, discounts, LocalDate.now());
+    }
+
+    private Resource csv(String filename, StringBuilder content) {
+        return new ByteArrayResource(content.toString().getBytes()) {
+            @Override
+            public String getFilename() {
+                return filename;
+            }
+        };
+    }
+}
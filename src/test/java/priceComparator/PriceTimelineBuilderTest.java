@@ -0,0 +1,89 @@
+package priceComparator;
+
+import org.junit.jupiter.api.Test;
+import priceComparator.dtos.PriceHistoryPointDTO;
+import priceComparator.models.Currency;
+import priceComparator.models.Discount;
+import priceComparator.models.PackageUnit;
+import priceComparator.models.Product;
+import priceComparator.services.PriceTimelineBuilder;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PriceTimelineBuilderTest {
+
+    private static final LocalDate START = LocalDate.of(2023, 1, 1);
+
+    private static final String[] STORES = {"Lidl", "Kaufland", "Profi"};
+
+    private final PriceTimelineBuilder builder = new PriceTimelineBuilder();
+
+    @Test
+    public void testDiscountSplitsPeriod() {
+        LocalDate today = START.plusDays(30);
+        Map<String, List<Product>> groupedByStore = Map.of("lidl", List.of(
+                product("Lidl", 0, 10.0),
+                product("Lidl", 20, 12.0)));
+        List<Discount> discounts = List.of(discount("LIDL", 5, 10, 50));
+
+        assertThat(builder.build(groupedByStore, discounts, today)).containsExactly(
+                new PriceHistoryPointDTO(START, START.plusDays(5), 10.0, false, "Lidl", "Zuzu"),
+                new PriceHistoryPointDTO(START.plusDays(5), START.plusDays(10), 5.0, true, "Lidl", "Zuzu"),
+                new PriceHistoryPointDTO(START.plusDays(10), START.plusDays(20), 10.0, false, "Lidl", "Zuzu"),
+                new PriceHistoryPointDTO(START.plusDays(20), today, 12.0, false, "Lidl", "Zuzu"));
+    }
+
+    @Test
+    public void testMatchesQuadraticTimeline() {
+        Random random = new Random(3);
+
+        for (int round = 0; round < 500; round++) {
+            int days = 10 + random.nextInt(700);
+            LocalDate today = START.plusDays(days - 5 + random.nextInt(10));
+
+            List<Product> products = new ArrayList<>();
+            for (String store : STORES) {
+                int entries = random.nextInt(40);
+                for (int i = 0; i < entries; i++) {
+                    products.add(product(store, random.nextInt(days), 5 + random.nextInt(4)));
+                }
+            }
+            products.sort(Comparator.comparing(Product::getDateAdded));
+            Map<String, List<Product>> groupedByStore = products.stream()
+                    .collect(Collectors.groupingBy(p -> p.getStoreName().toLowerCase()));
+
+            // Overlapping, nested, zero-length and out-of-range discounts, in no particular order
+            List<Discount> discounts = new ArrayList<>();
+            int count = random.nextInt(60);
+            for (int i = 0; i < count; i++) {
+                String store = STORES[random.nextInt(STORES.length)];
+                int from = random.nextInt(days + 20) - 10;
+                int to = from + random.nextInt(random.nextBoolean() ? 5 : 90);
+                discounts.add(discount(random.nextBoolean() ? store : store.toUpperCase(), from, to, 5 + random.nextInt(50)));
+            }
+
+            assertThat(builder.build(groupedByStore, discounts, today))
+                    .isEqualTo(QuadraticPriceTimeline.build(groupedByStore, discounts, today));
+        }
+    }
+
+    private Product product(String store, int day, double price) {
+        return new Product(null, "P1", "lapte zuzu", "lactate", "Zuzu", PackageUnit.l, 1.0, price, Currency.RON,
+                store, START.plusDays(day));
+    }
+
+    private Discount discount(String store, int fromDay, int toDay, int percentage) {
+        Discount discount = new Discount();
+        discount.setProductId("P1");
+        discount.setName("lapte zuzu");
+        discount.setStoreName(store);
+        discount.setDateFrom(START.plusDays(fromDay));
+        discount.setDateTo(START.plusDays(toDay));
+        discount.setPercentage(percentage);
+        return discount;
+    }
+}
@@ -0,0 +1,81 @@
+package priceComparator;
+
+import priceComparator.dtos.PriceHistoryPointDTO;
+import priceComparator.models.Discount;
+import priceComparator.models.Product;
+import priceComparator.services.PriceTimelineBuilder;
+
+import java.time.LocalDate;
+import java.util.*;
+
+import static priceComparator.utils.PriceUtils.convertToRon;
+import static priceComparator.utils.PriceUtils.round;
+
+/**
+ * The price timeline as built before {@link PriceTimelineBuilder}: every price period is compared with every
+ * discount (O(products x discounts)). Kept as the reference for the regression test and the benchmark.
+ */
+public final class QuadraticPriceTimeline {
+
+    private QuadraticPriceTimeline() {
+    }
+
+    public static List<PriceHistoryPointDTO> build(Map<String, List<Product>> groupedByStore, List<Discount> discounts,
+                                                   LocalDate today) {
+        List<PriceHistoryPointDTO> history = new ArrayList<>();
+
+        for (var entry : groupedByStore.entrySet()) {
+            String store = entry.getKey();
+            List<Product> products = collapseRepeatedPrices(entry.getValue());
+
+            for (int i = 0; i < products.size(); i++) {
+                Product current = products.get(i);
+                LocalDate dateFrom = current.getDateAdded();
+                LocalDate dateTo = (i < products.size() - 1) ? products.get(i + 1).getDateAdded() : today;
+                double originalPrice = convertToRon(current.getPrice(), current.getCurrency());
+
+                List<Discount> overlapping = discounts.stream()
+                        .filter(d -> d.getStoreName().equalsIgnoreCase(store))
+                        .filter(d -> !d.getDateTo().isBefore(dateFrom) && !d.getDateFrom().isAfter(dateTo))
+                        .toList();
+
+                if (overlapping.isEmpty()) {
+                    history.add(new PriceHistoryPointDTO(dateFrom, dateTo, round(originalPrice), false, current.getStoreName(), current.getBrand()));
+                } else {
+                    LocalDate segmentStart = dateFrom;
+                    for (Discount d : overlapping) {
+                        LocalDate discountStart = Collections.max(List.of(dateFrom, d.getDateFrom()));
+                        LocalDate discountEnd = Collections.min(List.of(dateTo, d.getDateTo()));
+                        if (discountStart.equals(discountEnd)) continue;
+
+                        if (segmentStart.isBefore(discountStart)) {
+                            history.add(new PriceHistoryPointDTO(segmentStart, discountStart, round(originalPrice), false, current.getStoreName(), current.getBrand()));
+                        }
+                        double discountedPrice = round(originalPrice * (1 - d.getPercentage() / 100.0));
+                        history.add(new PriceHistoryPointDTO(discountStart, discountEnd, discountedPrice, true, current.getStoreName(), current.getBrand()));
+                        segmentStart = discountEnd;
+                    }
+
+                    if (segmentStart.isBefore(dateTo)) {
+                        history.add(new PriceHistoryPointDTO(segmentStart, dateTo, round(originalPrice), false, current.getStoreName(), current.getBrand()));
+                    }
+                }
+            }
+        }
+        return history;
+    }
+
+    private static List<Product> collapseRepeatedPrices(List<Product> products) {
+        List<Product> changes = new ArrayList<>();
+        Product previous = null;
+        for (Product product : products) {
+            if (previous == null
+                    || Double.compare(previous.getPrice(), product.getPrice()) != 0
+                    || previous.getCurrency() != product.getCurrency()) {
+                changes.add(product);
+                previous = product;
+            }
+        }
+        return changes;
+    }
+}
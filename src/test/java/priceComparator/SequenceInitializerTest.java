@@ -0,0 +1,68 @@
+package priceComparator;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import priceComparator.config.SequenceInitializer;
+import priceComparator.models.Currency;
+import priceComparator.models.PackageUnit;
+import priceComparator.models.PriceAlert;
+import priceComparator.models.Product;
+import priceComparator.repositories.PriceAlertRepository;
+import priceComparator.repositories.ProductRepository;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Simulates rows inserted while the ids were IDENTITY columns and checks that new rows do not collide with them.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+public class SequenceInitializerTest {
+
+    @Autowired
+    private SequenceInitializer sequenceInitializer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductRepository productRepo;
+
+    @Autowired
+    private PriceAlertRepository alertRepo;
+
+    @Test
+    public void testSequencesMovePastExistingIds() {
+        productRepo.save(product("P1"));
+        alertRepo.save(alert());
+        // Ids handed out by the former IDENTITY columns, ahead of the sequences
+        jdbcTemplate.update("UPDATE product SET id = 100000");
+        jdbcTemplate.update("UPDATE price_alert SET id = 7000");
+
+        sequenceInitializer.seedSequences();
+        // Only ever moves forward
+        sequenceInitializer.seedSequences();
+
+        assertThat(productRepo.save(product("P2")).getId()).isGreaterThan(100000);
+        assertThat(alertRepo.save(alert()).getId()).isGreaterThan(7000);
+    }
+
+    private Product product(String productId) {
+        return new Product(null, productId, "Product " + productId, "lactate", "Zuzu", PackageUnit.l, 1.0, 10.0,
+                Currency.RON, "Lidl", LocalDate.now());
+    }
+
+    private PriceAlert alert() {
+        PriceAlert alert = new PriceAlert();
+        alert.setUserEmail("ana@test.ro");
+        alert.setProductName("lapte zuzu");
+        alert.setTargetPrice(8);
+        alert.setCreatedAt(LocalDate.now());
+        return alert;
+    }
+}
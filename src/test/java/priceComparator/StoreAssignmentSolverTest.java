@@ -0,0 +1,114 @@
+package priceComparator;
+
+import org.junit.jupiter.api.Test;
+import priceComparator.services.StoreAssignmentSolver;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class StoreAssignmentSolverTest {
+
+    private static final double NOT_SOLD = Double.POSITIVE_INFINITY;
+
+    @Test
+    public void testVisitCostConsolidatesStores() {
+        // Store 0 is slightly cheaper for item 0, store 1 for item 1, but store 2 sells both almost as cheap
+        double[][] prices = {
+                {10.0, 12.0, 10.5},
+                {12.0, 10.0, 10.5},
+        };
+
+        StoreAssignmentSolver.Solution free = new StoreAssignmentSolver(prices, new int[]{1, 1}, 0, 3)
+                .solve(TimeUnit.SECONDS.toNanos(1));
+        assertThat(free.stores()).containsExactlyInAnyOrder(0, 1);
+        assertThat(free.totalCost()).isEqualTo(20.0);
+
+        StoreAssignmentSolver.Solution withVisitCost = new StoreAssignmentSolver(prices, new int[]{1, 1}, 2, 3)
+                .solve(TimeUnit.SECONDS.toNanos(1));
+        assertThat(withVisitCost.stores()).containsExactly(2);
+        assertThat(withVisitCost.totalCost()).isEqualTo(23.0);
+        assertThat(withVisitCost.optimal()).isTrue();
+    }
+
+    @Test
+    public void testMatchesExhaustiveSearch() {
+        Random random = new Random(7);
+
+        for (int round = 0; round < 200; round++) {
+            int items = 1 + random.nextInt(12);
+            int stores = 1 + random.nextInt(7);
+            double[][] prices = randomPrices(random, items, stores, 0.3);
+            int[] quantities = random.ints(items, 1, 3).toArray();
+            double visitCost = random.nextInt(4) * 2.5;
+            int maxStores = 1 + random.nextInt(stores);
+
+            double expected = exhaustive(prices, quantities, visitCost, maxStores);
+            StoreAssignmentSolver.Solution solution = new StoreAssignmentSolver(prices, quantities, visitCost, maxStores)
+                    .solve(TimeUnit.SECONDS.toNanos(1));
+
+            if (expected == NOT_SOLD) {
+                assertThat(solution).isNull();
+            } else {
+                assertThat(solution.optimal()).isTrue();
+                assertThat(solution.totalCost()).isCloseTo(expected, within(1e-9));
+                assertThat(solution.stores().length).isLessThanOrEqualTo(maxStores);
+            }
+        }
+    }
+
+    @Test
+    public void testLargeBasketSolvesWithinBudget() {
+        double[][] prices = randomPrices(new Random(11), 100, 12, 0.2);
+        int[] quantities = new int[100];
+        Arrays.fill(quantities, 1);
+
+        long start = System.nanoTime();
+        StoreAssignmentSolver.Solution solution = new StoreAssignmentSolver(prices, quantities, 3, 4)
+                .solve(TimeUnit.MILLISECONDS.toNanos(500));
+
+        assertThat(solution).isNotNull();
+        assertThat(solution.stores().length).isLessThanOrEqualTo(4);
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.SECONDS.toNanos(2));
+    }
+
+    /**
+     * Random prices, making sure every item is sold by at least one store.
+     */
+    private double[][] randomPrices(Random random, int items, int stores, double missingRate) {
+        double[][] prices = new double[items][stores];
+        for (int i = 0; i < items; i++) {
+            for (int s = 0; s < stores; s++) {
+                prices[i][s] = random.nextDouble() < missingRate ? NOT_SOLD : 5 + random.nextInt(200) / 10.0;
+            }
+            int sold = random.nextInt(stores);
+            if (prices[i][sold] == NOT_SOLD) prices[i][sold] = 5 + random.nextInt(200) / 10.0;
+        }
+        return prices;
+    }
+
+    /**
+     * Tries every subset of stores.
+     */
+    private double exhaustive(double[][] prices, int[] quantities, double visitCost, int maxStores) {
+        int stores = prices[0].length;
+        double best = NOT_SOLD;
+
+        for (int mask = 1; mask < (1 << stores); mask++) {
+            if (Integer.bitCount(mask) > maxStores) continue;
+            double cost = visitCost * Integer.bitCount(mask);
+            for (int i = 0; i < prices.length; i++) {
+                double cheapest = NOT_SOLD;
+                for (int s = 0; s < stores; s++) {
+                    if ((mask & (1 << s)) != 0) cheapest = Math.min(cheapest, prices[i][s]);
+                }
+                cost += cheapest * quantities[i];
+            }
+            best = Math.min(best, cost);
+        }
+        return best;
+    }
+}
@@ -0,0 +1,99 @@
+package priceComparator.benchmarks;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReaderBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import priceComparator.models.Currency;
+import priceComparator.models.PackageUnit;
+import priceComparator.utils.CsvRowReader;
+import priceComparator.utils.MappedCsvReader;
+import priceComparator.utils.OpenCsvRowReader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the OpenCSV parser with the memory-mapped parser on a generated product file,
+ * reading every field through the same accessors as the importer.
+ * Run with {@link #main(String[])}; the GC profiler reports the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvParserBenchmark {
+
+    private static final String[] CATEGORIES = {"lactate", "panificație", "băuturi", "legume și fructe", "carne"};
+    private static final String[] BRANDS = {"Zuzu", "Pilos", "Dorna", "Napolact", "Boromir", "Barilla"};
+    private static final String[] UNITS = {"l", "kg", "g", "ml", "buc", "role"};
+
+    @Param({"200000"})
+    private int rows;
+
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void generateFile() throws IOException {
+        file = Files.createTempFile("Lidl_2025-05-01", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            writer.write("product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n");
+            for (int i = 0; i < rows; i++) {
+                writer.write("P" + i + ";produs " + i + ";" + CATEGORIES[i % CATEGORIES.length] + ";"
+                        + BRANDS[i % BRANDS.length] + ";" + (i % 10 + 1) * 0.25 + ";" + UNITS[i % UNITS.length] + ";"
+                        + (i % 5000) / 100.0 + ";RON\n");
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void openCsv(Blackhole blackhole) throws IOException {
+        readProducts(new OpenCsvRowReader(new CSVReaderBuilder(Files.newBufferedReader(file))
+                .withCSVParser(new CSVParserBuilder().withSeparator(';').build())
+                .build()), blackhole);
+    }
+
+    @Benchmark
+    public void mapped(Blackhole blackhole) throws IOException {
+        readProducts(new MappedCsvReader(file, ';'), blackhole);
+    }
+
+    /**
+     * Same field accesses as the product import.
+     */
+    private void readProducts(CsvRowReader reader, Blackhole blackhole) throws IOException {
+        try (reader) {
+            reader.next(); // Header
+            while (reader.next()) {
+                blackhole.consume(reader.getString(0));
+                blackhole.consume(reader.getString(1));
+                blackhole.consume(reader.getSharedString(2));
+                blackhole.consume(reader.getSharedString(3));
+                blackhole.consume(reader.getDouble(4));
+                blackhole.consume(reader.getEnum(5, PackageUnit.class, false));
+                blackhole.consume(reader.getDouble(6));
+                blackhole.consume(reader.getEnum(7, Currency.class, true));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(CsvParserBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,182 @@
+package priceComparator.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Compares ways of fetching the latest product entry for many (productId, store) keys, on an in-memory
+ * H2 database holding a year of daily snapshots for 12 stores:
+ * one {@code findTop...OrderByDateAddedDesc}-style query per key, a single ROW_NUMBER() query and a single
+ * grouped MAX joined back to the table (the query used by {@code ProductRepository}).
+ * The per-key variant costs {@code keys} round trips per operation, the others one. An embedded database has
+ * no network latency, so {@code roundTripMicros} adds a simulated round trip to every executed statement.
+ * Run with {@link #main(String[])}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LatestRowQueryBenchmark {
+
+    private static final String COLUMNS =
+            "id, product_id, name, category, brand, package_unit, package_quantity, price, currency, store_name, date_added";
+
+    private static final String TOP_BY_KEY = "SELECT " + COLUMNS + " FROM product"
+            + " WHERE product_id = ? AND UPPER(store_name) = UPPER(?) ORDER BY date_added DESC LIMIT 1";
+
+    @Param({"12"})
+    private int stores;
+
+    @Param({"365"})
+    private int days;
+
+    @Param({"500"})
+    private int products;
+
+    /**
+     * Number of (productId, store) keys looked up per operation, e.g. the active discounts.
+     */
+    @Param({"200"})
+    private int keys;
+
+    /**
+     * Simulated network round trip per statement, 0 for the raw embedded database.
+     */
+    @Param({"0", "300"})
+    private long roundTripMicros;
+
+    private Connection connection;
+    private List<String[]> lookupKeys;
+    private String windowQuery;
+    private String groupedMaxQuery;
+
+    @Setup(Level.Trial)
+    public void createDatabase() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:latestRow;MODE=MySQL;DB_CLOSE_DELAY=-1;QUERY_CACHE_SIZE=0");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE product (id BIGINT PRIMARY KEY, product_id VARCHAR(255), name VARCHAR(255),"
+                    + " category VARCHAR(255), brand VARCHAR(255), package_unit VARCHAR(16), package_quantity DOUBLE,"
+                    + " price DOUBLE, currency VARCHAR(8), store_name VARCHAR(255), date_added DATE)");
+            statement.execute("CREATE INDEX idx_product_product_store_date ON product (product_id, store_name, date_added)");
+            statement.execute("CREATE INDEX idx_product_name_store_date ON product (name, store_name, date_added)");
+        }
+
+        // One row per (day, store, product)
+        LocalDate firstDay = LocalDate.of(2024, 1, 1);
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO product (" + COLUMNS + ") VALUES (?, ?, ?, 'lactate', 'Zuzu', 'l', 1, ?, 'RON', ?, ?)")) {
+            long id = 0;
+            for (int day = 0; day < days; day++) {
+                Date date = Date.valueOf(firstDay.plusDays(day));
+                for (int store = 0; store < stores; store++) {
+                    for (int product = 0; product < products; product++) {
+                        insert.setLong(1, ++id);
+                        insert.setString(2, "P" + product);
+                        insert.setString(3, "produs " + product);
+                        insert.setDouble(4, 5 + (id * 7919) % 20);
+                        insert.setString(5, "Store" + store);
+                        insert.setDate(6, date);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                connection.commit();
+            }
+        }
+        connection.setAutoCommit(true);
+
+        Random random = new Random(42);
+        lookupKeys = new ArrayList<>();
+        List<String> productIds = new ArrayList<>();
+        for (int key = 0; key < keys; key++) {
+            String productId = "P" + random.nextInt(products);
+            lookupKeys.add(new String[]{productId, "store" + random.nextInt(stores)});
+            productIds.add("'" + productId + "'");
+        }
+
+        String inList = String.join(",", productIds.stream().distinct().toList());
+        windowQuery = "SELECT " + COLUMNS + " FROM ("
+                + " SELECT p.*, ROW_NUMBER() OVER ("
+                + "   PARTITION BY p.product_id, p.store_name ORDER BY p.date_added DESC, p.id DESC) AS rn"
+                + " FROM product p WHERE p.product_id IN (" + inList + ")"
+                + ") latest WHERE rn = 1";
+        // Same statement as ProductRepository.findLatestPerStoreByProductIdIn, with the IN list inlined
+        groupedMaxQuery = "SELECT p.* FROM product p JOIN ("
+                + " SELECT product_id, store_name, MAX(date_added) AS latest FROM product"
+                + " WHERE product_id IN (" + inList + ")"
+                + " GROUP BY product_id, store_name) m"
+                + " ON p.product_id = m.product_id AND p.store_name = m.store_name AND p.date_added = m.latest";
+    }
+
+    @TearDown(Level.Trial)
+    public void dropDatabase() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    /**
+     * {@code keys} round trips per operation.
+     */
+    @Benchmark
+    public void queryPerKey(Blackhole blackhole) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(TOP_BY_KEY)) {
+            for (String[] key : lookupKeys) {
+                statement.setString(1, key[0]);
+                statement.setString(2, key[1]);
+                roundTrip();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    if (resultSet.next()) blackhole.consume(resultSet.getDouble("price"));
+                }
+            }
+        }
+    }
+
+    /**
+     * A single round trip per operation.
+     */
+    @Benchmark
+    public void windowFunction(Blackhole blackhole) throws SQLException {
+        roundTrip();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(windowQuery)) {
+            while (resultSet.next()) blackhole.consume(resultSet.getDouble("price"));
+        }
+    }
+
+    /**
+     * A single round trip per operation.
+     */
+    @Benchmark
+    public void groupedMax(Blackhole blackhole) throws SQLException {
+        roundTrip();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(groupedMaxQuery)) {
+            while (resultSet.next()) blackhole.consume(resultSet.getDouble("price"));
+        }
+    }
+
+    private void roundTrip() {
+        if (roundTripMicros > 0) LockSupport.parkNanos(roundTripMicros * 1000);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(LatestRowQueryBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
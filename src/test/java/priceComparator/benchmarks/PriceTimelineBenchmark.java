@@ -0,0 +1,101 @@
+package priceComparator.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import priceComparator.QuadraticPriceTimeline;
+import priceComparator.dtos.PriceHistoryPointDTO;
+import priceComparator.models.Currency;
+import priceComparator.models.Discount;
+import priceComparator.models.PackageUnit;
+import priceComparator.models.Product;
+import priceComparator.services.PriceTimelineBuilder;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares building the price history timeline of one long-lived product by comparing every price period with
+ * every discount (the former algorithm) and with the per-store sweep of {@link PriceTimelineBuilder}.
+ * The product has a snapshot every day for {@code days} days in every store, its price changing every few days,
+ * and a discount roughly every {@code discountEveryDays} days per store.
+ * Run with {@link #main(String[])}; the GC profiler reports the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceTimelineBenchmark {
+
+    private static final String[] STORES = {"Lidl", "Kaufland", "Profi", "Mega", "Carrefour", "Auchan"};
+
+    @Param({"365", "1095"})
+    private int days;
+
+    @Param({"7"})
+    private int discountEveryDays;
+
+    private Map<String, List<Product>> groupedByStore;
+
+    private List<Discount> discounts;
+
+    private LocalDate today;
+
+    private final PriceTimelineBuilder builder = new PriceTimelineBuilder();
+
+    @Setup(Level.Trial)
+    public void generateHistory() {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2022, 1, 1);
+        today = start.plusDays(days);
+
+        List<Product> products = new ArrayList<>();
+        discounts = new ArrayList<>();
+        for (String store : STORES) {
+            double price = 8;
+            for (int day = 0; day < days; day++) {
+                if (random.nextInt(4) == 0) price = 6 + random.nextInt(60) / 10.0;
+                products.add(new Product(null, "P1", "lapte zuzu", "lactate", "Zuzu", PackageUnit.l, 1.0, price,
+                        Currency.RON, store, start.plusDays(day)));
+            }
+            for (int day = random.nextInt(discountEveryDays); day < days; day += 1 + random.nextInt(2 * discountEveryDays)) {
+                Discount discount = new Discount();
+                discount.setProductId("P1");
+                discount.setName("lapte zuzu");
+                discount.setStoreName(store);
+                discount.setDateFrom(start.plusDays(day));
+                discount.setDateTo(start.plusDays(day + 1 + random.nextInt(6)));
+                discount.setPercentage(5 + random.nextInt(40));
+                discounts.add(discount);
+            }
+        }
+
+        // Same shapes as PriceHistoryService: entries ordered by date and grouped by store, discounts unordered
+        Collections.shuffle(discounts, random);
+        groupedByStore = products.stream()
+                .sorted(Comparator.comparing(Product::getDateAdded))
+                .collect(Collectors.groupingBy(p -> p.getStoreName().toLowerCase()));
+    }
+
+    @Benchmark
+    public List<PriceHistoryPointDTO> quadratic() {
+        return QuadraticPriceTimeline.build(groupedByStore, discounts, today);
+    }
+
+    @Benchmark
+    public List<PriceHistoryPointDTO> sweep() {
+        return builder.build(groupedByStore, discounts, today);
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(PriceTimelineBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}